@@ -2,8 +2,10 @@ package com.bazarPepe.eccomerce;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class EccomerceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,422 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CacheStatsDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//CACHE DE LECTURA DEL CATALOGO (CAFFEINE, W-TinyLFU) LIMITADA POR TAMAÑO APROXIMADO EN BYTES.
+//LOS PRODUCTOS SE GUARDAN UNA SOLA VEZ POR ID; LOS LISTADOS (TODO EL CATALOGO Y CADA CATEGORIA) SOLO GUARDAN LOS IDS.
+//PASADO refresh-after UNA ENTRADA SE SIGUE SIRVIENDO MIENTRAS SE RECARGA EN SEGUNDO PLANO; SI MYSQL FALLA SE SIGUE
+//SIRVIENDO LA COPIA VIEJA HASTA expire-after-write, QUE ES LO MAXIMO QUE PUEDE LLEGAR A ESTAR DESACTUALIZADA
+@Slf4j
+@Component
+public class CatalogCache {
+
+    //COSTE FIJO APROXIMADO DE UN ProductDto SIN CONTAR SUS CADENAS
+    private static final int PRODUCT_OVERHEAD = 96;
+    private static final int LIST_OVERHEAD = 32;
+    private static final int REFRESH_QUEUE_CAPACITY = 256;
+
+    private final ProductRepository productRepository;
+    private final EntityDtoMapper entityDtoMapper;
+    private final HotProductTier hotProductTier;
+
+    private final Cache<Long, ProductDto> products;
+    private final Cache<ListKey, long[]> lists;
+    //IMAGEN DE CADA PRODUCTO (VACIO SI EL PRODUCTO NO EXISTE): /product/{id}/image NO VA A MYSQL EN CADA PETICION
+    private final Cache<Long, Optional<ProductImageDto>> images;
+
+    //LAS CARGAS SE AGRUPAN FUERA DE CAFFEINE: UN FALLO DE CACHE MASIVO (P.EJ. TRAS EDITAR UN PRODUCTO MUY VISTO)
+    //HACE UNA SOLA CONSULTA Y NO BLOQUEA OTRAS CLAVES MIENTRAS MYSQL RESPONDE
+    private final SingleFlight<Long, Optional<ProductDto>> productLoads = new SingleFlight<>();
+    private final SingleFlight<ListKey, List<ProductDto>> listLoads = new SingleFlight<>();
+    private final SingleFlight<Long, Optional<ProductImageDto>> imageLoads = new SingleFlight<>();
+    //CRECE ANTES DE CADA INVALIDACION: UNA CARGA QUE LA HAYA CRUZADO NO DEJA SUS DATOS EN LA CACHE
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Duration refreshAfter;
+    private final ThreadPoolExecutor refreshExecutor;
+    //UNA SOLA RECARGA EN SEGUNDO PLANO POR CLAVE (ID DE PRODUCTO O LISTADO)
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+
+    public CatalogCache(ProductRepository productRepository,
+                        EntityDtoMapper entityDtoMapper,
+                        HotProductTier hotProductTier,
+                        @Value("${catalog.cache.products.max-weight:32MB}") DataSize productsMaxWeight,
+                        @Value("${catalog.cache.lists.max-weight:8MB}") DataSize listsMaxWeight,
+                        @Value("${catalog.cache.images.max-size:100000}") long imagesMaxSize,
+                        @Value("${catalog.cache.expire-after-write:1h}") Duration expireAfterWrite,
+                        @Value("${catalog.cache.refresh-after:5m}") Duration refreshAfter,
+                        @Value("${catalog.cache.refresh-threads:2}") int refreshThreads) {
+        this.productRepository = productRepository;
+        this.entityDtoMapper = entityDtoMapper;
+        this.hotProductTier = hotProductTier;
+        this.refreshAfter = refreshAfter;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                task -> {
+                    Thread thread = new Thread(task, "catalog-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(productsMaxWeight.toBytes())
+                .weigher((Long id, ProductDto product) -> weigh(product))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.lists = Caffeine.newBuilder()
+                .maximumWeight(listsMaxWeight.toBytes())
+                .weigher((ListKey key, long[] ids) -> LIST_OVERHEAD + ids.length * Long.BYTES)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.images = Caffeine.newBuilder()
+                .maximumSize(imagesMaxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<ProductDto> getProduct(Long productId) {
+        //LOS PRODUCTOS CALIENTES NI SIQUIERA PASAN POR CAFFEINE
+        ProductDto pinned = hotProductTier.getPinned(productId);
+        if (pinned != null) {
+            //FIJADO PERO YA FUERA DE CAFFEINE (O VIEJO): TAMBIEN SE RECARGA, ASI NO SE QUEDA DESACTUALIZADO
+            if (age(products, productId).map(this::isStale).orElse(true)) {
+                refreshInBackground(productId, () -> loadProduct(productId));
+            }
+            return Optional.of(pinned);
+        }
+        ProductDto cached = products.getIfPresent(productId);
+        if (cached != null) {
+            hotProductTier.pin(cached);
+            if (age(products, productId).map(this::isStale).orElse(false)) {
+                refreshInBackground(productId, () -> loadProduct(productId));
+            }
+            return Optional.of(cached);
+        }
+        return loadProduct(productId);
+    }
+
+    private Optional<ProductDto> loadProduct(Long productId) {
+        return productLoads.load(productId, id -> {
+            long observed = invalidations.get();
+            Optional<ProductDto> loaded = productRepository.findById(id).map(entityDtoMapper::mapProductToDtoBasic);
+            if (loaded.isPresent()) {
+                products.put(id, loaded.get());
+                hotProductTier.pin(loaded.get());
+            } else {
+                //BORRADO DESDE OTRA INSTANCIA: LA RECARGA QUITA LA COPIA QUE SE ESTABA SIRVIENDO
+                products.invalidate(id);
+                hotProductTier.unpin(id);
+            }
+            if (invalidations.get() != observed) {
+                products.invalidate(id);
+                hotProductTier.unpin(id);
+            }
+            return loaded;
+        });
+    }
+
+    public Optional<ProductImageDto> getProductImage(Long productId) {
+        Optional<ProductImageDto> cached = images.getIfPresent(productId);
+        if (cached != null) {
+            return cached;
+        }
+        return imageLoads.load(productId, id -> {
+            long observed = invalidations.get();
+            Optional<ProductImageDto> loaded = productRepository.findImageById(id);
+            images.put(id, loaded);
+            if (invalidations.get() != observed) {
+                images.invalidate(id);
+            }
+            return loaded;
+        });
+    }
+
+    public List<ProductDto> getAllProducts() {
+        return getList(ListKey.ALL, productRepository::findAllSummaries);
+    }
+
+    public List<ProductDto> getProductsByCategory(Long categoryId) {
+        return getList(new ListKey(categoryId), () -> productRepository.findSummariesByCategoryId(categoryId));
+    }
+
+    private List<ProductDto> getList(ListKey key, Supplier<List<ProductSummary>> loader) {
+        long[] ids = lists.getIfPresent(key);
+        if (ids != null) {
+            if (age(lists, key).map(this::isStale).orElse(false)) {
+                refreshInBackground(key, () -> loadList(key, loader));
+            }
+            return resolve(ids);
+        }
+        return loadList(key, loader);
+    }
+
+    private List<ProductDto> loadList(ListKey key, Supplier<List<ProductSummary>> loader) {
+        return listLoads.load(key, k -> {
+            long observed = invalidations.get();
+            List<ProductDto> productDtoList = loader.get().stream()
+                    .map(entityDtoMapper::mapProductSummaryToDto)
+                    .toList();
+            productDtoList.forEach(product -> products.put(product.getId(), product));
+            lists.put(k, productDtoList.stream().mapToLong(ProductDto::getId).toArray());
+            if (invalidations.get() != observed) {
+                //UN CAMBIO LLEGO A MITAD DE LA CARGA: SE DEVUELVE, PERO NO SE QUEDA EN LA CACHE
+                lists.invalidate(k);
+                productDtoList.forEach(product -> products.invalidate(product.getId()));
+            }
+            return productDtoList;
+        });
+    }
+
+    //CARGA EL CATALOGO ENTERO DE UNA VEZ AL ARRANCAR: CADA PRODUCTO, EL LISTADO COMPLETO Y EL DE CADA CATEGORIA.
+    //DEVUELVE LO CARGADO PARA QUE LOS INDICES DE BUSQUEDA SE CONSTRUYAN SIN REPETIR LA CONSULTA
+    public List<ProductSummary> warm(Supplier<List<ProductSummary>> loader) {
+        long observed = invalidations.get();
+        List<ProductSummary> summaries = loader.get();
+        Map<Long, List<Long>> byCategory = new HashMap<>();
+        long[] all = new long[summaries.size()];
+        for (int i = 0; i < summaries.size(); i++) {
+            ProductSummary summary = summaries.get(i);
+            products.put(summary.getId(), entityDtoMapper.mapProductSummaryToDto(summary));
+            all[i] = summary.getId();
+            if (summary.getCategoryId() != null) {
+                byCategory.computeIfAbsent(summary.getCategoryId(), id -> new ArrayList<>()).add(summary.getId());
+            }
+        }
+        lists.put(ListKey.ALL, all);
+        //POR CATEGORIA EN EL MISMO ORDEN QUE DEVUELVE MYSQL (CLAVE PRIMARIA ASCENDENTE)
+        byCategory.forEach((categoryId, ids) -> lists.put(new ListKey(categoryId), ids.stream().mapToLong(Long::longValue).sorted().toArray()));
+        if (invalidations.get() != observed) {
+            products.invalidateAll();
+            lists.invalidateAll();
+        }
+        return summaries;
+    }
+
+    //LOS PRODUCTOS DEL LISTADO QUE SE HAYAN EXPULSADO SE RECARGAN TODOS EN UNA SOLA CONSULTA
+    private List<ProductDto> resolve(long[] ids) {
+        List<Long> keys = Arrays.stream(ids).boxed().toList();
+        Map<Long, ProductDto> found = new HashMap<>(products.getAllPresent(keys));
+        if (found.size() < keys.size()) {
+            List<Long> missing = keys.stream().filter(id -> !found.containsKey(id)).toList();
+            long observed = invalidations.get();
+            for (ProductSummary summary : productRepository.findSummariesByIdIn(missing)) {
+                ProductDto product = entityDtoMapper.mapProductSummaryToDto(summary);
+                found.put(product.getId(), product);
+                products.put(product.getId(), product);
+            }
+            if (invalidations.get() != observed) {
+                products.invalidateAll(missing);
+            }
+        }
+        List<ProductDto> productDtoList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            ProductDto product = found.get(id);
+            if (product != null) {
+                productDtoList.add(product);
+            }
+        }
+        return productDtoList;
+    }
+
+    //QUIEN LLAMA ESTA SIRVIENDO LA COPIA VIEJA: SE APUNTA PARA QUE LA CACHE DE RESPUESTAS NO LA GUARDE
+    private void refreshInBackground(Object key, Runnable refresh) {
+        StaleReads.mark();
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh.run();
+                    refreshes.incrementAndGet();
+                } catch (RuntimeException e) {
+                    //LA COPIA VIEJA SE QUEDA: LA SIGUIENTE LECTURA LO VUELVE A INTENTAR
+                    failedRefreshes.incrementAndGet();
+                    log.warn("Could not refresh catalog entry {}, serving the stale copy: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private static <K> Optional<Duration> age(Cache<K, ?> cache, K key) {
+        return cache.policy().expireAfterWrite().flatMap(expiration -> expiration.ageOf(key));
+    }
+
+    private boolean isStale(Duration age) {
+        return age.compareTo(refreshAfter) >= 0;
+    }
+
+    //INVALIDACION PRECISA: EL PRODUCTO CAMBIADO Y SOLO LOS LISTADOS CUYA PERTENENCIA HA CAMBIADO.
+    //VA ANTES QUE LA CACHE DE RESPUESTAS, QUE SE RELLENA LEYENDO DE ESTA
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Long productId = event.getProductId();
+        invalidations.incrementAndGet();
+        productLoads.forget(productId);
+        listLoads.forgetAll();
+        imageLoads.forget(productId);
+        products.invalidate(productId);
+        images.invalidate(productId);
+        hotProductTier.unpin(productId);
+        Long newCategoryId = event.isDeleted() ? null : event.getProduct().getCategoryId();
+        lists.asMap().forEach((key, ids) -> {
+            boolean listed = contains(ids, productId);
+            boolean belongs = !event.isDeleted() && (key.isAll() || key.categoryId().equals(newCategoryId));
+            if (listed != belongs) {
+                lists.invalidate(key);
+            }
+        });
+    }
+
+    //RENOMBRAR UNA CATEGORIA NO AFECTA A LOS ProductDto; BORRARLA SE LLEVA SUS PRODUCTOS (CASCADE)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!event.isDeleted()) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        productLoads.forgetAll();
+        listLoads.forgetAll();
+        imageLoads.forgetAll();
+        hotProductTier.unpinAll();
+        images.invalidateAll();
+        ListKey key = new ListKey(event.getCategoryId());
+        long[] ids = lists.getIfPresent(key);
+        if (ids != null) {
+            Arrays.stream(ids).forEach(products::invalidate);
+        } else {
+            //NO SE SABE QUE PRODUCTOS TENIA: SE VACIA ENTERA, BORRAR CATEGORIAS ES MUY RARO
+            products.invalidateAll();
+        }
+        lists.invalidate(key);
+        lists.invalidate(ListKey.ALL);
+    }
+
+    //MYSQL TIENE CAMBIOS HECHOS FUERA DE ESTA INSTANCIA SIN SABER CUALES: SE VACIA ENTERA ANTES DE RECARGAR
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogOutdated(CatalogOutdatedEvent event) {
+        if (!event.isProducts()) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        productLoads.forgetAll();
+        listLoads.forgetAll();
+        imageLoads.forgetAll();
+        hotProductTier.unpinAll();
+        products.invalidateAll();
+        lists.invalidateAll();
+        images.invalidateAll();
+    }
+
+    public List<CacheStatsDto> getStats() {
+        return List.of(stats("products", products), stats("product-lists", lists), stats("product-images", images),
+                stats("product-loads", productLoads), stats("product-list-loads", listLoads),
+                new CacheStatsDto("hot-products", hotProductTier.getPinnedHits(), 0, 1.0, 0, hotProductTier.getPinnedCount(), 0),
+                refreshStats());
+    }
+
+    //ACIERTO = RECARGA EN SEGUNDO PLANO CORRECTA, FALLO = SE SIGUIO SIRVIENDO LA COPIA VIEJA
+    private CacheStatsDto refreshStats() {
+        long succeeded = refreshes.get();
+        long failed = failedRefreshes.get();
+        double rate = succeeded + failed == 0 ? 1.0 : (double) succeeded / (succeeded + failed);
+        return new CacheStatsDto("stale-refreshes", succeeded, failed, rate, 0, refreshing.size(), 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    //APLICA LAS EXPULSIONES PENDIENTES, CAFFEINE LAS HACE EN SEGUNDO PLANO
+    void cleanUp() {
+        products.cleanUp();
+        lists.cleanUp();
+        images.cleanUp();
+    }
+
+    private static CacheStatsDto stats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        long weight = cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+        return new CacheStatsDto(name, stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), cache.estimatedSize(), weight);
+    }
+
+    //PARA LAS CARGAS AGRUPADAS: ACIERTO = SE UNIO A UNA CARGA EN MARCHA, FALLO = TUVO QUE IR A MYSQL
+    private static CacheStatsDto stats(String name, SingleFlight<?, ?> singleFlight) {
+        long coalesced = singleFlight.getCoalescedCount();
+        long loads = singleFlight.getLoadCount();
+        double rate = coalesced + loads == 0 ? 1.0 : (double) coalesced / (coalesced + loads);
+        return new CacheStatsDto(name, coalesced, loads, rate, 0, singleFlight.getInFlightCount(), 0);
+    }
+
+    private static int weigh(ProductDto product) {
+        return PRODUCT_OVERHEAD + 2 * (length(product.getName()) + length(product.getDescription()) + length(product.getImageUrl()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        for (long candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //CLAVE DE UN LISTADO: categoryId NULL ES EL CATALOGO ENTERO
+    private record ListKey(Long categoryId) {
+
+        static final ListKey ALL = new ListKey(null);
+
+        boolean isAll() {
+            return categoryId == null;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+//GUARDA YA SERIALIZADO (Y COMPRIMIDO CON GZIP) EL JSON DE LOS LISTADOS DEL CATALOGO MAS PEDIDOS.
+//EN UN ACIERTO SE ESCRIBEN LOS BYTES TAL CUAL, SIN PASAR POR EL CONTROLADOR, JACKSON NI LA COMPRESION.
+//LOS CAMBIOS HECHOS EN OTRA INSTANCIA LLEGAN CON CatalogOutdatedEvent CUANDO CatalogVersion LOS DETECTA
+@Slf4j
+@Component
+public class CatalogResponseCache extends OncePerRequestFilter {
+
+    //SOLO LOS LISTADOS COMPLETOS; /product/get-all CON CURSOR O LIMITE LLEVA QUERY Y NO SE CACHEA
+    private static final Pattern CACHEABLE_PATHS = Pattern.compile("/category/get-all|/product/get-all|/product/get-by-category-id/\\d+");
+
+    private final Cache<String, CachedResponse> entries;
+    //CAMBIA EN CADA INVALIDACION: UNA RESPUESTA GENERADA ANTES DE UN CAMBIO NO SE GUARDA
+    private final AtomicLong generation = new AtomicLong();
+    private final long maxBytes;
+
+    //NUNCA DURA MAS QUE LOS DATOS DE CatalogCache DE LOS QUE SALE
+    public CatalogResponseCache(@Value("${catalog.response-cache.max-size:16MB}") DataSize maxSize,
+                                @Value("${catalog.response-cache.expire-after-write:${catalog.cache.refresh-after:5m}}") Duration expireAfterWrite,
+                                @Value("${catalog.cache.expire-after-write:1h}") Duration catalogExpireAfterWrite) {
+        this.maxBytes = maxSize.toBytes();
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse cached) -> (int) Math.min(Integer.MAX_VALUE, cached.size()))
+                .expireAfterWrite(expireAfterWrite.compareTo(catalogExpireAfterWrite) < 0 ? expireAfterWrite : catalogExpireAfterWrite)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || request.getQueryString() != null
+                || !CACHEABLE_PATHS.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String key = path(request);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        CachedResponse cached = entries.getIfPresent(key);
+        if (cached != null) {
+            //EL ETAG GUARDADO SIGUE SIENDO EL ACTUAL: CUALQUIER CAMBIO LOCAL HABRIA BORRADO LA ENTRADA
+            if (cached.eTag() != null && new ServletWebRequest(request, response).checkNotModified(cached.eTag(), cached.lastModified())) {
+                return;
+            }
+            write(cached, request, response);
+            return;
+        }
+
+        long observedGeneration = generation.get();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean servedStale;
+        StaleReads.track();
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            servedStale = StaleReads.stop();
+        }
+        String contentType = wrapper.getContentType();
+        //UNA RESPUESTA HECHA CON UNA COPIA VIEJA DE CatalogCache NO SE GUARDA: SE CONGELARIA AQUI AUNQUE ESA SE RECARGUE
+        if (!servedStale && wrapper.getStatus() == HttpServletResponse.SC_OK && contentType != null
+                && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            byte[] body = wrapper.getContentAsByteArray();
+            CachedResponse created = new CachedResponse(contentType, body, gzip(body),
+                    wrapper.getHeader(HttpHeaders.ETAG), lastModified(wrapper.getHeader(HttpHeaders.LAST_MODIFIED)));
+            store(key, created, observedGeneration);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private synchronized void store(String key, CachedResponse created, long observedGeneration) {
+        if (observedGeneration != generation.get()) {
+            return;
+        }
+        if (created.size() > maxBytes) {
+            log.debug("Response for {} not cached, it is larger than the response cache", key);
+            return;
+        }
+        entries.asMap().putIfAbsent(key, created);
+    }
+
+    //SE EJECUTA DESPUES DE LA INVALIDACION DE CatalogCache, ASI NO SE VUELVEN A GUARDAR DATOS VIEJOS
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(key -> key.startsWith("/product/"));
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidate(key -> true);
+    }
+
+    //DESPUES DE QUE CatalogWarmup HAYA RECARGADO LAS CACHES DE LAS QUE SALEN LAS RESPUESTAS
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogOutdated(CatalogOutdatedEvent event) {
+        invalidate(key -> true);
+    }
+
+    private synchronized void invalidate(Predicate<String> affected) {
+        generation.incrementAndGet();
+        entries.asMap().keySet().removeIf(affected);
+    }
+
+    private static void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] body = cached.body();
+        if (cached.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = cached.gzip();
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    //SI COMPRIMIDO NO OCUPA MENOS NO SE GUARDA LA VARIANTE GZIP
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.size() < body.length ? buffer.toByteArray() : null;
+    }
+
+    private static long lastModified(String header) {
+        if (header == null) {
+            return -1;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, header);
+        return headers.getLastModified();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private record CachedResponse(String contentType, byte[] body, byte[] gzip, String eTag, long lastModified) {
+
+        long size() {
+            return body.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
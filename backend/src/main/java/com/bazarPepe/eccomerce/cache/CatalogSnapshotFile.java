@@ -0,0 +1,150 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CategoryDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//FOTO BINARIA DEL CATALOGO EN DISCO PARA ARRANCAR CON LAS CACHES LLENAS. SE ESCRIBE EN UN TEMPORAL QUE DESPUES SE MUEVE
+//DE GOLPE (NUNCA SE LEE UN FICHERO A MEDIAS) Y SE LEE MAPEADO EN MEMORIA. UN CRC AL FINAL DESCARTA FICHEROS DAÑADOS
+final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x42435331;
+    private static final int FORMAT_VERSION = 2;
+
+    private CatalogSnapshotFile() {
+    }
+
+    static void write(Path path, PersistedCatalog catalog) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Files.newOutputStream(temporary), crc)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(catalog.savedAt());
+                out.writeInt(catalog.categories().size());
+                for (CategoryDto category : catalog.categories()) {
+                    out.writeLong(category.getId());
+                    writeString(out, category.getName());
+                }
+                out.writeInt(catalog.products().size());
+                for (ProductSummary product : catalog.products()) {
+                    out.writeLong(product.getId());
+                    writeString(out, product.getName());
+                    writeString(out, product.getDescription());
+                    writeString(out, product.getPrice() == null ? null : product.getPrice().toPlainString());
+                    out.writeLong(product.getCategoryId() == null ? -1 : product.getCategoryId());
+                    writeString(out, product.getImageHash());
+                    out.writeLong(product.getVersion());
+                    writeString(out, product.getUpdatedAt() == null ? null : product.getUpdatedAt().toString());
+                }
+                out.writeInt(catalog.popularity().size());
+                for (Map.Entry<Long, Long> entry : catalog.popularity().entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                out.flush();
+                //EL CRC CUBRE TODO LO ANTERIOR
+                out.writeInt((int) crc.getValue());
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static Optional<PersistedCatalog> read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 3 * Integer.BYTES + Long.BYTES) {
+                throw new IOException("Catalog snapshot is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, buffer.limit() - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - Integer.BYTES)) {
+                throw new IOException("Catalog snapshot checksum does not match");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown catalog snapshot format");
+            }
+            long savedAt = buffer.getLong();
+            int categoryCount = buffer.getInt();
+            List<CategoryDto> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                CategoryDto category = new CategoryDto();
+                category.setId(buffer.getLong());
+                category.setName(readString(buffer));
+                categories.add(category);
+            }
+            int productCount = buffer.getInt();
+            List<ProductSummary> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                long id = buffer.getLong();
+                String name = readString(buffer);
+                String description = readString(buffer);
+                String price = readString(buffer);
+                long categoryId = buffer.getLong();
+                String imageHash = readString(buffer);
+                long version = buffer.getLong();
+                String updatedAt = readString(buffer);
+                products.add(new ProductSummary(id, name, description, price == null ? null : new BigDecimal(price),
+                        categoryId < 0 ? null : categoryId, imageHash, version, updatedAt == null ? null : LocalDateTime.parse(updatedAt)));
+            }
+            int popularityCount = buffer.getInt();
+            Map<Long, Long> popularity = new HashMap<>(popularityCount * 2);
+            for (int i = 0; i < popularityCount; i++) {
+                popularity.put(buffer.getLong(), buffer.getLong());
+            }
+            return Optional.of(new PersistedCatalog(savedAt, categories, products, popularity));
+        } catch (BufferUnderflowException | NegativeArraySizeException | IllegalArgumentException | DateTimeParseException e) {
+            throw new IOException("Catalog snapshot is corrupt", e);
+        }
+    }
+
+    //LONGITUD EN BYTES + UTF-8; -1 ES NULL. writeUTF NO VALE PORQUE SE QUEDA EN 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //LO QUE SE GUARDA: CATEGORIAS, PRODUCTOS SIN IMAGEN (SOLO SU HASH) Y VENTAS PARA ORDENAR LAS SUGERENCIAS.
+    //LOS INDICES DE BUSQUEDA SE RECONSTRUYEN EN MEMORIA A PARTIR DE LOS PRODUCTOS, SIN TOCAR LA BASE DE DATOS
+    record PersistedCatalog(long savedAt, List<CategoryDto> categories, List<ProductSummary> products, Map<Long, Long> popularity) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CatalogStampDto;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.CategoryRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//VERSION DE LOS LISTADOS DEL CATALOGO PARA LOS ETAG Y LAST-MODIFIED, SACADA DE LOS DATOS DE MYSQL (FILAS, ID MAXIMO,
+//SUMA DE VERSIONES Y ULTIMO updated_at). TODAS LAS INSTANCIAS DAN EL MISMO ETAG A LOS MISMOS DATOS, Y UN CAMBIO HECHO
+//EN OTRA (O A MANO) SE VE AL CONSULTARLA CADA POCO. UN 304 SE RESPONDE SIN IR A LA BASE DE DATOS NI SERIALIZAR NADA
+@Slf4j
+@Component
+public class CatalogVersion {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    //SIN COMPROBAR AUN CONTRA MYSQL LA VERSION NO PUEDE REPETIRSE NI COINCIDIR CON LA DE OTRA INSTANCIA: LLEVA UN
+    //IDENTIFICADOR ALEATORIO DE ESTE ARRANQUE Y UN CONTADOR
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong unknown = new AtomicLong();
+
+    private volatile Stamp products;
+    private volatile Stamp categories;
+
+    public CatalogVersion(ProductRepository productRepository,
+                          CategoryRepository categoryRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.products = unknownStamp(null);
+        this.categories = unknownStamp(null);
+    }
+
+    public Validators products() {
+        return validators("p", products);
+    }
+
+    public Validators categories() {
+        return validators("c", categories);
+    }
+
+    //COMPARA CON MYSQL. SI HAY CAMBIOS QUE NO HAN PASADO POR AQUI, PRIMERO SE RECARGAN LAS CACHES (CatalogOutdatedEvent)
+    //Y DESPUES SE PUBLICA LA VERSION NUEVA: NUNCA SE ANUNCIA UNA VERSION MAS NUEVA QUE LOS DATOS QUE SE SIRVEN
+    public synchronized void verify() {
+        Stamp storedProducts = read(productRepository::findCatalogStamp, products);
+        Stamp storedCategories = read(categoryRepository::findCatalogStamp, categories);
+        boolean productsChanged = !storedProducts.tag().equals(products.tag());
+        boolean categoriesChanged = !storedCategories.tag().equals(categories.tag());
+        if (!productsChanged && !categoriesChanged) {
+            return;
+        }
+        eventPublisher.publishEvent(new CatalogOutdatedEvent(productsChanged, categoriesChanged));
+        products = storedProducts;
+        categories = storedCategories;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.version.poll-interval:PT15S}", initialDelayString = "${catalog.version.poll-interval:PT15S}")
+    public void poll() {
+        try {
+            verify();
+        } catch (DataAccessException | TransactionException e) {
+            //SE SIGUE CON LA VERSION QUE HAY; SE VUELVE A MIRAR EN LA SIGUIENTE VUELTA
+            log.warn("Could not check the catalog version: {}", e.getMessage());
+        }
+    }
+
+    //UN CAMBIO HECHO AQUI INVALIDA YA LOS ETAG ANTERIORES. NO SE LEE LA VERSION DE MYSQL EN ESTE MOMENTO: PODRIA LLEVAR
+    //CAMBIOS DE OTRA INSTANCIA QUE LAS CACHES AUN NO TIENEN. LA SIGUIENTE COMPROBACION RECARGA Y PUBLICA LA DE LOS DATOS
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        products = unknownStamp(products);
+    }
+
+    //BORRAR UNA CATEGORIA TAMBIEN BORRA SUS PRODUCTOS
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        categories = unknownStamp(categories);
+        if (event.isDeleted()) {
+            products = unknownStamp(products);
+        }
+    }
+
+    private static Stamp read(Supplier<CatalogStampDto> query, Stamp current) {
+        CatalogStampDto stored = query.get();
+        LocalDateTime lastUpdated = stored.getLastUpdated();
+        //updated_at CON MICROSEGUNDOS: DOS CAMBIOS EN EL MISMO SEGUNDO DAN VERSIONES DISTINTAS
+        long lastUpdatedMicros = lastUpdated == null ? 0
+                : lastUpdated.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastUpdated.getNano() / 1_000;
+        String tag = base36(stored.getCount()) + "-" + base36(stored.getMaxId()) + "-" + base36(stored.getVersions())
+                + "-" + base36(lastUpdatedMicros);
+        if (current != null && tag.equals(current.tag())) {
+            return current;
+        }
+        //UN BORRADO NO MUEVE updated_at: LAST-MODIFIED ES COMO MINIMO CUANDO ESTA INSTANCIA VIO EL CAMBIO
+        long lastModified = lastUpdated == null ? 0 : lastUpdated.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long previous = current == null ? 0 : current.lastModified();
+        return new Stamp(tag, Math.max(Math.max(lastModified, previous), System.currentTimeMillis()));
+    }
+
+    private static String base36(Long value) {
+        return Long.toString(value == null ? 0 : value, 36);
+    }
+
+    private Stamp unknownStamp(Stamp current) {
+        long previous = current == null ? 0 : current.lastModified();
+        return new Stamp("u" + epoch + "-" + unknown.incrementAndGet(), Math.max(previous, System.currentTimeMillis()));
+    }
+
+    private static Validators validators(String prefix, Stamp stamp) {
+        return new Validators("\"" + prefix + stamp.tag() + "\"", stamp.lastModified());
+    }
+
+    private record Stamp(String tag, long lastModified) {
+    }
+
+    //ETAG Y LAST-MODIFIED DE UN MISMO INSTANTE
+    public record Validators(String eTag, long lastModified) {
+    }
+}
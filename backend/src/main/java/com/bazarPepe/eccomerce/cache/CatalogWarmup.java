@@ -0,0 +1,166 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.cache.CatalogSnapshotFile.PersistedCatalog;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import com.bazarPepe.eccomerce.search.ProductSearchIndex;
+import com.bazarPepe.eccomerce.search.ProductSuggester;
+import com.bazarPepe.eccomerce.service.implementation.CategoryServiceImplementation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+//ARRANQUE EN CALIENTE: AL ARRANCAR SE CARGA LA FOTO DEL CATALOGO GUARDADA EN DISCO Y SE SIRVE YA, MIENTRAS EN SEGUNDO PLANO
+//SE VERIFICA CONTRA MYSQL CON UNA SOLA LECTURA. SIN FOTO (O DEMASIADO VIEJA) SE CARGA DE MYSQL ANTES DE SERVIR, COMO SIEMPRE.
+//LA FOTO SE GUARDA CADA POCO SI EL CATALOGO HA CAMBIADO Y AL APAGAR
+@Slf4j
+@Component
+public class CatalogWarmup {
+
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final CatalogCache catalogCache;
+    private final CatalogVersion catalogVersion;
+    private final CategoryServiceImplementation categoryService;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration maxAge;
+
+    //CUANDO SE COMPROBO POR ULTIMA VEZ CONTRA MYSQL: UNA FOTO NO SE REJUVENECE AL VOLVER A GUARDARLA
+    private volatile long verifiedAt;
+    private volatile String savedVersion;
+
+    public CatalogWarmup(ProductRepository productRepository,
+                         ProductSearchIndex productSearchIndex,
+                         ProductSuggester productSuggester,
+                         CatalogCache catalogCache,
+                         CatalogVersion catalogVersion,
+                         CategoryServiceImplementation categoryService,
+                         @Value("${catalog.snapshot.enabled:true}") boolean enabled,
+                         @Value("${catalog.snapshot.path:data/catalog.snapshot}") Path path,
+                         @Value("${catalog.snapshot.max-age:P1D}") Duration maxAge) {
+        this.productRepository = productRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.productSuggester = productSuggester;
+        this.catalogCache = catalogCache;
+        this.catalogVersion = catalogVersion;
+        this.categoryService = categoryService;
+        this.enabled = enabled;
+        this.path = path;
+        this.maxAge = maxAge;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Optional<PersistedCatalog> persisted = readSnapshot();
+        if (persisted.isEmpty()) {
+            catalogVersion.verify();
+            return;
+        }
+        PersistedCatalog catalog = persisted.get();
+        categoryService.preloadSnapshot(catalog.categories());
+        List<ProductSummary> products = catalogCache.warm(catalog::products);
+        productSearchIndex.rebuild(products);
+        productSuggester.rebuild(products, catalog.popularity());
+        verifiedAt = catalog.savedAt();
+        log.info("Catalog restored from {} with {} products, verifying against the database", path, products.size());
+        Thread.ofVirtual().name("catalog-verify").start(() -> {
+            try {
+                catalogVersion.verify();
+            } catch (RuntimeException e) {
+                //SE SIGUE SIRVIENDO LA FOTO; LAS CACHES SE IRAN RECARGANDO SOLAS
+                log.warn("Could not verify the restored catalog: {}", e.getMessage());
+            }
+        });
+    }
+
+    //LA VERSION DE CatalogVersion AUN NO SE HA COMPROBADO AL ARRANCAR, ASI QUE LA PRIMERA COMPROBACION SIEMPRE RECARGA
+    //DESDE AQUI. LUEGO LLEGA CUANDO MYSQL CAMBIA POR FUERA DE ESTA INSTANCIA: CatalogCache YA SE HA VACIADO
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogOutdated(CatalogOutdatedEvent event) {
+        if (event.isProducts()) {
+            refresh();
+        } else {
+            categoryService.rebuildSnapshot();
+        }
+    }
+
+    //UNA SOLA LECTURA DEL CATALOGO COMPLETO ALIMENTA LA CACHE, EL BUSCADOR Y EL AUTOCOMPLETADO. SI MIENTRAS SE LEIA LLEGO
+    //UN CAMBIO DE PRODUCTO, LA LECTURA PUEDE SER ANTERIOR A EL: NO SE SUSTITUYE EL INDICE Y SE VUELVE A LEER
+    void refresh() {
+        long startedAt = System.currentTimeMillis();
+        categoryService.rebuildSnapshot();
+        for (int attempt = 1; attempt <= MAX_REFRESH_ATTEMPTS; attempt++) {
+            long searchChanges = productSearchIndex.changeCount();
+            long suggesterChanges = productSuggester.changeCount();
+            List<ProductSummary> products = catalogCache.warm(productRepository::findAllSummaries);
+            boolean indexed = productSearchIndex.rebuild(products, searchChanges);
+            boolean suggested = productSuggester.rebuild(products, suggesterChanges);
+            if (indexed && suggested) {
+                verifiedAt = startedAt;
+                save();
+                return;
+            }
+        }
+        //SE QUEDA LO QUE HAY, QUE YA LLEVA LOS CAMBIOS; LA FOTO NO SE DA POR VERIFICADA
+        log.warn("Catalog kept changing while it was being loaded, the search indexes were not rebuilt after {} attempts", MAX_REFRESH_ATTEMPTS);
+    }
+
+    private Optional<PersistedCatalog> readSnapshot() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Optional<PersistedCatalog> catalog = CatalogSnapshotFile.read(path);
+            if (catalog.isPresent() && System.currentTimeMillis() - catalog.get().savedAt() > maxAge.toMillis()) {
+                log.info("Catalog snapshot {} is older than {}, loading from the database", path, maxAge);
+                return Optional.empty();
+            }
+            return catalog;
+        } catch (IOException e) {
+            log.warn("Ignoring catalog snapshot {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.save-interval:PT5M}", initialDelayString = "${catalog.snapshot.save-interval:PT5M}")
+    public void save() {
+        String version = catalogVersion.products().eTag() + catalogVersion.categories().eTag();
+        if (!enabled || !productSearchIndex.isReady() || version.equals(savedVersion)) {
+            return;
+        }
+        Optional<CategorySnapshot> categories = categoryService.currentSnapshot();
+        if (categories.isEmpty()) {
+            return;
+        }
+        try {
+            CatalogSnapshotFile.write(path, new PersistedCatalog(verifiedAt, categories.get().categories(),
+                    productSearchIndex.getProducts(), productSuggester.getPopularity()));
+            savedVersion = version;
+        } catch (IOException e) {
+            log.warn("Could not save the catalog snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        save();
+    }
+}
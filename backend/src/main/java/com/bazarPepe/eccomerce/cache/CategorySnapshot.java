@@ -0,0 +1,13 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CategoryDto;
+
+import java.util.List;
+
+//FOTO INMUTABLE DE TODAS LAS CATEGORIAS. LA VERSION CRECE CON CADA RECONSTRUCCION Y NUNCA VUELVE ATRAS
+public record CategorySnapshot(long version, List<CategoryDto> categories) {
+
+    public CategorySnapshot {
+        categories = List.copyOf(categories);
+    }
+}
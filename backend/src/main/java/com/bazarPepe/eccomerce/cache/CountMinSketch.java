@@ -0,0 +1,62 @@
+package com.bazarPepe.eccomerce.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//CONTADOR APROXIMADO DE FRECUENCIAS EN MEMORIA FIJA (depth FILAS DE width CONTADORES), SIN LOCKS.
+//NUNCA CUENTA DE MENOS; CUENTA DE MAS SOLO CUANDO VARIAS CLAVES CHOCAN EN TODAS LAS FILAS
+class CountMinSketch {
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int width;
+    private final int shift;
+
+    CountMinSketch(int width, int depth) {
+        if (width < 2 || Integer.bitCount(width) != 1 || depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("The width must be a power of two and the depth between 1 and " + SEEDS.length);
+        }
+        this.counters = new AtomicLongArray(width * depth);
+        this.depth = depth;
+        this.width = width;
+        this.shift = 64 - Integer.numberOfTrailingZeros(width);
+    }
+
+    //ACTUALIZACION CONSERVADORA: SOLO SUBEN LAS CELDAS QUE ESTAN EN EL MINIMO, ASI LAS COLISIONES INFLAN MENOS
+    long increment(long key) {
+        long estimate = estimate(key);
+        for (int row = 0; row < depth; row++) {
+            int index = index(key, row);
+            long current;
+            do {
+                current = counters.get(index);
+            } while (current <= estimate && !counters.compareAndSet(index, current, estimate + 1));
+        }
+        return estimate + 1;
+    }
+
+    long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(key, row)));
+        }
+        return estimate;
+    }
+
+    //ENVEJECIMIENTO: LO QUE FUE POPULAR HACE RATO PESA LA MITAD EN CADA PASADA
+    void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            long current;
+            do {
+                current = counters.get(i);
+            } while (current != 0 && !counters.compareAndSet(i, current, current >>> 1));
+        }
+    }
+
+    //HASH MULTIPLICATIVO: LOS BITS ALTOS DEL PRODUCTO DEPENDEN DE TODA LA CLAVE
+    private int index(long key, int row) {
+        long hash = (key ^ (key >>> 32)) * SEEDS[row];
+        return row * width + (int) (hash >>> shift);
+    }
+}
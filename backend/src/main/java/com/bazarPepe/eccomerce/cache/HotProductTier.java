@@ -0,0 +1,131 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.HotProductDto;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//DETECTA LOS PRODUCTOS MAS VISTOS (COUNT-MIN SKETCH + TOP-K QUE ENVEJECE) Y LOS FIJA EN MEMORIA FUERA DE CAFFEINE.
+//EN UNA PROMOCION FLASH UNOS POCOS PRODUCTOS SE LLEVAN CASI TODAS LAS VISITAS: MIENTRAS SIGAN CALIENTES NO SE EXPULSAN
+@Component
+public class HotProductTier {
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private final CountMinSketch sketch;
+    private final long threshold;
+    private final int maxHotProducts;
+
+    //PRODUCTOS CALIENTES CON SU ULTIMA ESTIMACION DE VISITAS
+    private final Map<Long, Long> hot = new ConcurrentHashMap<>();
+    private final Map<Long, ProductDto> pinned = new ConcurrentHashMap<>();
+    //CON EL TOP-K LLENO, UNA CLAVE QUE NO SUPERE AL MAS FRIO NI SIQUIERA TOMA EL LOCK
+    private volatile long admissionFloor;
+    private final AtomicLong pinnedHits = new AtomicLong();
+
+    public HotProductTier(@Value("${catalog.hot.threshold:50}") long threshold,
+                          @Value("${catalog.hot.max-products:100}") int maxHotProducts,
+                          @Value("${catalog.hot.sketch-width:4096}") int sketchWidth) {
+        this.sketch = new CountMinSketch(sketchWidth, SKETCH_DEPTH);
+        this.threshold = threshold;
+        this.maxHotProducts = maxHotProducts;
+        this.admissionFloor = threshold - 1;
+    }
+
+    public void record(Long productId) {
+        long estimate = sketch.increment(productId);
+        if (estimate <= admissionFloor) {
+            return;
+        }
+        if (hot.computeIfPresent(productId, (id, previous) -> estimate) == null) {
+            admit(productId, estimate);
+        }
+    }
+
+    private synchronized void admit(Long productId, long estimate) {
+        if (hot.containsKey(productId)) {
+            hot.put(productId, estimate);
+            return;
+        }
+        if (hot.size() >= maxHotProducts) {
+            Map.Entry<Long, Long> coldest = hot.entrySet().stream().min(Map.Entry.comparingByValue()).orElseThrow();
+            if (coldest.getValue() >= estimate) {
+                admissionFloor = coldest.getValue();
+                return;
+            }
+            hot.remove(coldest.getKey());
+            pinned.remove(coldest.getKey());
+        }
+        hot.put(productId, estimate);
+        updateAdmissionFloor();
+    }
+
+    //CADA PASADA LAS VISITAS PASADAS CUENTAN LA MITAD; UN PRODUCTO DEJA DE ESTAR CALIENTE AL BAJAR DE LA MITAD DEL UMBRAL
+    @Scheduled(fixedDelayString = "${catalog.hot.decay-interval:PT1M}")
+    public synchronized void decay() {
+        sketch.halve();
+        hot.replaceAll((id, previous) -> sketch.estimate(id));
+        hot.values().removeIf(estimate -> estimate < threshold / 2);
+        pinned.keySet().removeIf(id -> !hot.containsKey(id));
+        updateAdmissionFloor();
+    }
+
+    private void updateAdmissionFloor() {
+        admissionFloor = hot.size() < maxHotProducts
+                ? threshold - 1
+                : hot.values().stream().mapToLong(Long::longValue).min().orElse(threshold - 1);
+    }
+
+    public boolean isHot(Long productId) {
+        return hot.containsKey(productId);
+    }
+
+    public ProductDto getPinned(Long productId) {
+        ProductDto product = pinned.get(productId);
+        if (product != null) {
+            pinnedHits.incrementAndGet();
+        }
+        return product;
+    }
+
+    public void pin(ProductDto product) {
+        if (hot.containsKey(product.getId())) {
+            pinned.put(product.getId(), product);
+        }
+    }
+
+    //EL PRODUCTO HA CAMBIADO: SIGUE CALIENTE, PERO SE VUELVE A FIJAR CON LA SIGUIENTE CARGA
+    public void unpin(Long productId) {
+        pinned.remove(productId);
+    }
+
+    public void unpinAll() {
+        pinned.clear();
+    }
+
+    public long getPinnedHits() {
+        return pinnedHits.get();
+    }
+
+    public int getPinnedCount() {
+        return pinned.size();
+    }
+
+    public List<HotProductDto> getHotProducts() {
+        return hot.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .map(entry -> {
+                    ProductDto product = pinned.get(entry.getKey());
+                    return new HotProductDto(entry.getKey(), product != null ? product.getName() : null,
+                            entry.getValue(), product != null);
+                })
+                .toList();
+    }
+}
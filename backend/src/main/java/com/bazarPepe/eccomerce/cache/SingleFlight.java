@@ -0,0 +1,73 @@
+package com.bazarPepe.eccomerce.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+//AGRUPA LAS CARGAS CONCURRENTES DE UNA MISMA CLAVE: LA PRIMERA VA A LA BASE DE DATOS Y LAS DEMAS ESPERAN SU RESULTADO.
+//NADA SE GUARDA CUANDO LA CARGA TERMINA, ESO ES COSA DE LA CACHE QUE LO USE
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return join(running);
+        }
+        loads.incrementAndGet();
+        try {
+            V value = loader.apply(key);
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            //LOS QUE ESPERABAN RECIBEN EL MISMO ERROR
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    //TRAS UN CAMBIO, QUIEN LLEGUE DESPUES NO SE UNE A UNA CARGA QUE EMPEZO CON LOS DATOS VIEJOS
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bazarPepe.eccomerce.cache;
+
+//APUNTA, PARA EL HILO DE LA PETICION, SI CatalogCache DEVOLVIO ALGUNA COPIA VIEJA MIENTRAS LA RECARGABA.
+//SOLO SE APUNTA ENTRE track() Y stop(); FUERA DE ESO mark() NO HACE NADA
+final class StaleReads {
+
+    private static final ThreadLocal<boolean[]> TRACKED = new ThreadLocal<>();
+
+    private StaleReads() {
+    }
+
+    static void track() {
+        TRACKED.set(new boolean[1]);
+    }
+
+    static void mark() {
+        boolean[] stale = TRACKED.get();
+        if (stale != null) {
+            stale[0] = true;
+        }
+    }
+
+    //DEJA DE APUNTAR Y DICE SI HUBO ALGUNA LECTURA VIEJA
+    static boolean stop() {
+        boolean[] stale = TRACKED.get();
+        TRACKED.remove();
+        return stale != null && stale[0];
+    }
+}
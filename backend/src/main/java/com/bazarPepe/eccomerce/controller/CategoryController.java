@@ -1,5 +1,6 @@
 package com.bazarPepe.eccomerce.controller;
 
+import com.bazarPepe.eccomerce.cache.CatalogVersion;
 import com.bazarPepe.eccomerce.dto.CategoryDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.service.interfaces.CategoryService;
@@ -7,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/category")
@@ -14,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersion catalogVersion;
 
     @PostMapping("/create")
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -22,7 +25,12 @@ public class CategoryController {
     }
 
     @GetMapping("/get-all")
-    public ResponseEntity<Response>getAllCategories(){
+    public ResponseEntity<Response>getAllCategories(WebRequest webRequest){
+        //SI EL CLIENTE YA TIENE LA VERSION ACTUAL SE CONTESTA 304 SIN LEER NI SERIALIZAR NADA
+        CatalogVersion.Validators validators=catalogVersion.categories();
+        if(webRequest.checkNotModified(validators.eTag(),validators.lastModified())){
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getAllCategories());
     }
 
@@ -39,7 +47,11 @@ public class CategoryController {
     }
 
     @GetMapping("/get-category-by-id/{categoryId}")
-    public ResponseEntity<Response>getCategoryById(@PathVariable Long categoryId){
+    public ResponseEntity<Response>getCategoryById(@PathVariable Long categoryId, WebRequest webRequest){
+        CatalogVersion.Validators validators=catalogVersion.categories();
+        if(webRequest.checkNotModified(validators.eTag(),validators.lastModified())){
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getCategoryById(categoryId));
     }
 
@@ -3,12 +3,16 @@ package com.bazarPepe.eccomerce.controller;
 import com.bazarPepe.eccomerce.dto.OrderRequest;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.order.OrderIdempotency;
+import com.bazarPepe.eccomerce.order.OrderIntakeQueue;
 import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -21,10 +25,33 @@ import java.time.LocalDateTime;
 public class OrderItemController {
 
     private final OrderItemService orderItemService;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final OrderIdempotency orderIdempotency;
 
+    //CON Idempotency-Key UN REINTENTO DEVUELVE LA RESPUESTA ORIGINAL Y NO DUPLICA EL PEDIDO
     @PostMapping("/create")
-    public ResponseEntity<Response>placeOrder(@RequestBody OrderRequest orderRequest){
-        return ResponseEntity.ok(orderItemService.placeOrder(orderRequest));
+    public ResponseEntity<Response>placeOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                              @RequestBody @Valid OrderRequest orderRequest){
+        return ResponseEntity.ok(orderIdempotency.placeOrder(idempotencyKey,orderRequest));
+    }
+
+    //MODO ASINCRONO PARA LOS PICOS: RESPONDE 202 CON UNA REFERENCIA Y EL PEDIDO SE GUARDA EN SEGUNDO PLANO
+    @PostMapping("/create-async")
+    public ResponseEntity<Response>placeOrderAsync(@RequestBody @Valid OrderRequest orderRequest){
+        Response response=Response.builder()
+                .status(HttpStatus.ACCEPTED.value())
+                .message("The order has been queued.")
+                .orderIntake(orderIntakeQueue.submit(orderRequest))
+                .build();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/intake/{reference}")
+    public ResponseEntity<Response>getOrderIntakeStatus(@PathVariable String reference){
+        return ResponseEntity.ok(Response.builder()
+                .status(200)
+                .orderIntake(orderIntakeQueue.getStatus(reference))
+                .build());
     }
 
     @PutMapping("/update-item-status/{orderItemId}")
@@ -1,22 +1,49 @@
 package com.bazarPepe.eccomerce.controller;
 
+import com.bazarPepe.eccomerce.cache.CatalogVersion;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.exception.InvalidCredentialsException;
+import com.bazarPepe.eccomerce.image.ImageResponseWriter;
+import com.bazarPepe.eccomerce.image.ImageVariant;
+import com.bazarPepe.eccomerce.image.ThumbnailGenerator;
 import com.bazarPepe.eccomerce.service.interfaces.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/product")
 @RequiredArgsConstructor
 public class ProductController {
 
+    //LA URL DE LA IMAGEN LLEVA EL HASH, ASI QUE EL CONTENIDO DE UNA URL NUNCA CAMBIA
+    private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    //SIN ?v= O CON UNO QUE YA NO ES EL DE LA IMAGEN: LA MISMA URL SERVIRA OTRA IMAGEN, SE REVALIDA CON EL ETAG
+    private static final CacheControl UNVERSIONED_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+    //SE PIDIO UNA MINIATURA QUE AUN SE ESTA GENERANDO: EL ORIGINAL SE CACHEA POCO PARA QUE LUEGO LLEGUE LA VARIANTE
+    private static final CacheControl FALLBACK_CACHE_CONTROL = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+    //LOS CARACTERES DEL HASH QUE LLEVA ?v= EN LAS URLS DE IMAGEN
+    private static final int MIN_IMAGE_VERSION_LENGTH = 16;
+
     private final ProductService productService;
+    private final ImageResponseWriter imageResponseWriter;
+    private final ThumbnailGenerator thumbnailGenerator;
+    private final CatalogVersion catalogVersion;
 
     @PostMapping("/create")
     @PreAuthorize("hasAuthority('ADMIN')")
@@ -46,6 +73,16 @@ public class ProductController {
         return ResponseEntity.ok(productService.updateProduct(productId,categoryId,image,name,description,price));
     }
 
+    //UNIDADES DISPONIBLES A PARTIR DE AHORA; LOS PRODUCTOS SIN STOCK FIJADO SE VENDEN SIN LIMITE
+    @PutMapping("/update-stock/{productId}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response>updateStock(@PathVariable Long productId, @RequestParam long quantity){
+        if(quantity<0){
+            throw new InvalidCredentialsException("The stock cannot be negative.");
+        }
+        return ResponseEntity.ok(productService.updateStock(productId,quantity));
+    }
+
     @DeleteMapping("/delete/{productId}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<Response>deleteProduct(@PathVariable Long productId){
@@ -53,25 +90,159 @@ public class ProductController {
     }
 
     @GetMapping("/get-by-product-id/{productId}")
-    public ResponseEntity<Response>getProductById(@PathVariable Long productId){
-        return ResponseEntity.ok(productService.getProductById(productId));
+    public ResponseEntity<Response>getProductById(@PathVariable Long productId, WebRequest webRequest){
+        Response response=productService.getProductById(productId);
+        //EL DETALLE SALE DE LA CACHE DEL CATALOGO; CON SU VERSION SE CONTESTA 304 SIN SERIALIZAR NADA
+        ProductDto product=response.getProduct();
+        if(product!=null&&product.getVersion()!=null&&isNotModified(webRequest,product)){
+            return null;
+        }
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/get-all")
-    public ResponseEntity<Response>getAllProduct(){
-        return ResponseEntity.ok(productService.getAllProduct());
+    public ResponseEntity<Response>getAllProduct(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest
+    ){
+        //SI EL CLIENTE YA TIENE LA VERSION ACTUAL DEL CATALOGO NO SE TOCA NI LA CACHE NI LA BASE DE DATOS
+        CatalogVersion.Validators validators=catalogVersion.products();
+        if(webRequest.checkNotModified(validators.eTag(),validators.lastModified())){
+            return null;
+        }
+        //SIN CURSOR NI LIMITE SE DEVUELVE EL CATALOGO ENTERO COMO ANTES
+        if(cursor==null&&limit==null){
+            return ResponseEntity.ok(productService.getAllProduct());
+        }
+        return ResponseEntity.ok(productService.getProductPage(cursor,limit));
     }
 
     @GetMapping("/get-by-category-id/{categoryId}")
-    public ResponseEntity<Response>getProductsByCategory(@PathVariable Long categoryId){
+    public ResponseEntity<Response>getProductsByCategory(@PathVariable Long categoryId, WebRequest webRequest){
+        CatalogVersion.Validators validators=catalogVersion.products();
+        if(webRequest.checkNotModified(validators.eTag(),validators.lastModified())){
+            return null;
+        }
         return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Response>searchForProduct(@RequestParam String searchValue){
-        return ResponseEntity.ok(productService.searchProduct(searchValue));
+    public ResponseEntity<Response>searchForProduct(
+            @RequestParam String searchValue,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String priceRange
+    ){
+        return ResponseEntity.ok(productService.searchProduct(searchValue,categoryId,priceRange));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Response>suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit
+    ){
+        return ResponseEntity.ok(productService.suggestProducts(prefix,limit));
+    }
+
+    @GetMapping("/cache-stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response>getCacheStats(){
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    @GetMapping("/hot")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response>getHotProducts(){
+        return ResponseEntity.ok(productService.getHotProducts());
+    }
+
+    @GetMapping("/{productId}/image")
+    public void getProductImage(@PathVariable Long productId,
+                                @RequestParam(required = false) Integer width,
+                                @RequestParam(name = "v", required = false) String version,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        //LA URL VERSIONADA YA DICE QUE IMAGEN ES: SI EL CLIENTE TIENE ESA MISMA, 304 SIN BUSCAR NADA. SIN MIRAR EL PRODUCTO
+        //NO SE SABE SI v SIGUE SIENDO LA ACTUAL, ASI QUE NO SE ALARGA LA VIDA DE LA COPIA: SE QUEDA CON LA CABECERA QUE TENIA
+        String cachedETag = versionedETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), version, width);
+        if (cachedETag != null) {
+            response.setHeader(HttpHeaders.ETAG, cachedETag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        ProductImageDto original = productService.getProductImage(productId);
+        ProductImageDto image = thumbnailGenerator.resolve(original, width);
+        boolean fallback = width != null && image == original;
+        boolean versioned = version != null && version.length() >= MIN_IMAGE_VERSION_LENGTH && original.getHash().startsWith(version);
+        //CADA VARIANTE TIENE SU PROPIA CLAVE, ASI QUE TAMBIEN SU PROPIO ETAG
+        String eTag = "\"" + image.getHash() + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, (!versioned ? UNVERSIONED_CACHE_CONTROL
+                : fallback ? FALLBACK_CACHE_CONTROL : IMAGE_CACHE_CONTROL).getHeaderValue());
+        if (eTagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(image.getContentType());
+        imageResponseWriter.write(image.getHash(), request, response);
+    }
+
+    private static boolean isNotModified(WebRequest webRequest, ProductDto product) {
+        String eTag = "\"" + product.getId() + "-" + product.getVersion() + "\"";
+        if (product.getUpdatedAt() == null) {
+            return webRequest.checkNotModified(eTag);
+        }
+        return webRequest.checkNotModified(eTag, product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    //EL ETAG QUE TRAE EL CLIENTE SI ES EL DE ESTA URL: EMPIEZA POR v Y, CON width, ES EL DE SU VARIANTE.
+    //EL ORIGINAL SERVIDO MIENTRAS SE GENERABA LA VARIANTE NO VALE: ASI EL CLIENTE ACABA RECIBIENDO LA MINIATURA
+    private static String versionedETag(String ifNoneMatch, String version, Integer width) {
+        if (ifNoneMatch == null || version == null || version.length() < MIN_IMAGE_VERSION_LENGTH) {
+            return null;
+        }
+        String suffix = "";
+        if (width != null) {
+            Optional<ImageVariant> variant = ImageVariant.forWidth(width);
+            if (variant.isEmpty()) {
+                return null;
+            }
+            suffix = variant.get().keyFor("");
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() > 2 && value.startsWith("\"" + version) && value.endsWith(suffix + "\"")
+                    && isHex(value.substring(1, value.length() - 1 - suffix.length()))) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isHex(String value) {
+        return !value.isEmpty() && value.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
     }
 
+    private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
 
 
 
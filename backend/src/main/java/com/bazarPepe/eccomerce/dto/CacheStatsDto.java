@@ -0,0 +1,22 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//ESTADISTICAS DE UNA CACHE EN MEMORIA PARA EL PANEL DE ADMINISTRACION
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatsDto {
+
+    private String name;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long size;
+    //TAMAÑO APROXIMADO EN BYTES DE LO QUE HAY GUARDADO
+    private long weight;
+
+}
@@ -0,0 +1,21 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//RESUMEN DE UNA TABLA DEL CATALOGO EN UNA SOLA FILA: CAMBIA CON CUALQUIER ALTA, BAJA O MODIFICACION, LA HAGA LA INSTANCIA
+//QUE LA HAGA. CON LA TABLA VACIA TODO MENOS count ES NULL
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogStampDto {
+
+    private Long count;
+    private Long maxId;
+    private Long versions;
+    private LocalDateTime lastUpdated;
+
+}
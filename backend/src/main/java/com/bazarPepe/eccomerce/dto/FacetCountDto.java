@@ -0,0 +1,16 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//UN VALOR DE UNA FACETA (CATEGORIA O TRAMO DE PRECIO) Y CUANTOS PRODUCTOS DE LA BUSQUEDA TIENE
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetCountDto {
+
+    private String value;
+    private int count;
+
+}
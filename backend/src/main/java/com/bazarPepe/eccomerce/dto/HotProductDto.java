@@ -0,0 +1,18 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//PRODUCTO CALIENTE: VISITAS ESTIMADAS (YA ENVEJECIDAS) Y SI ESTA FIJADO EN MEMORIA
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HotProductDto {
+
+    private Long productId;
+    private String name;
+    private long views;
+    private boolean pinned;
+
+}
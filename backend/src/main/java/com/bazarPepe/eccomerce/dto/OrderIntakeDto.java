@@ -0,0 +1,21 @@
+package com.bazarPepe.eccomerce.dto;
+
+import com.bazarPepe.eccomerce.enums.OrderIntakeStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//ESTADO DE UN PEDIDO ENVIADO A LA COLA: LA REFERENCIA SIRVE PARA CONSULTARLO HASTA QUE TENGA orderId
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderIntakeDto {
+
+    private String reference;
+    private OrderIntakeStatus status;
+    private Long orderId;
+    private String message;
+
+}
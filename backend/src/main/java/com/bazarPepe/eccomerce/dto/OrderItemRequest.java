@@ -1,10 +1,14 @@
 package com.bazarPepe.eccomerce.dto;
 
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 @Data
 public class OrderItemRequest {
 
+    @NotNull(message = "The product is required.")
     private Long productId;
+    @Positive(message = "The quantity must be greater than zero.")
     private int quantity;
 }
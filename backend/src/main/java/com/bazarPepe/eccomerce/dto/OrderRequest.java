@@ -2,6 +2,8 @@ package com.bazarPepe.eccomerce.dto;
 
 import com.bazarPepe.eccomerce.entity.Payment;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -12,7 +14,8 @@ import java.util.List;
 public class OrderRequest {
 
     private BigDecimal totalPrice;
-    private List<OrderItemRequest> items;
+    @NotEmpty(message = "The order must contain at least one product.")
+    private List<@Valid OrderItemRequest> items;
     private Payment paymentInfo;
 
 }
@@ -7,7 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
-import java.util.Base64;
+import java.time.LocalDateTime;
 
 @Data
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -19,17 +19,10 @@ public class ProductDto {
     private String name;
     private String description;
     private BigDecimal price;
-    private String image;
+    private String imageUrl;
     private CategoryDto category;
-
-    // Constructor que toma la imagen como byte[] y la convierte a Base64
-    public ProductDto(Long id, String name, String description, BigDecimal price, byte[] image) {
-        this.id = id;
-        this.name = name;
-        this.description = description;
-        this.price = price;
-        this.image = (image != null) ? Base64.getEncoder().encodeToString(image) : null;
-
-    }
+    //SOLO EN EL DETALLE DE UN PRODUCTO, PARA SU ETAG Y SU LAST-MODIFIED
+    private Long version;
+    private LocalDateTime updatedAt;
 
 }
@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImageDto {
+
+    private String hash;
+    private String contentType;
+
+}
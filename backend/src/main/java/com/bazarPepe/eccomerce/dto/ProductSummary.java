@@ -0,0 +1,26 @@
+package com.bazarPepe.eccomerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//SOLO LAS COLUMNAS QUE NECESITAN LOS LISTADOS Y LA CACHE: HIBERNATE LA CREA CON "select new", SIN ENTIDADES GESTIONADAS.
+//LLEVA LA VERSION Y LA FECHA DE CAMBIO PARA QUE CUALQUIER DTO CACHEADO PUEDA RESPONDER CON ETag Y Last-Modified
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSummary {
+
+    private Long id;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private Long categoryId;
+    private String imageHash;
+    private long version;
+    private LocalDateTime updatedAt;
+
+}
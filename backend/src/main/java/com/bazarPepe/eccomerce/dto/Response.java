@@ -3,12 +3,15 @@ package com.bazarPepe.eccomerce.dto;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Builder
+//SE PUEDE LEER DE JSON: LAS RESPUESTAS DE PEDIDOS CON Idempotency-Key SE GUARDAN SERIALIZADAS
+@Jacksonized
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Response {
 
@@ -28,6 +31,8 @@ public class Response {
 
     private long totalElement;
 
+    private String nextCursor;
+
     private AddressDto address;
 
     private UserDto user;
@@ -38,12 +43,18 @@ public class Response {
 
     private ProductDto product;
     private List<ProductDto>productList;
+    private List<String>suggestions;
+    private List<FacetCountDto>categoryFacets;
+    private List<FacetCountDto>priceFacets;
+    private List<CacheStatsDto>cacheStats;
+    private List<HotProductDto>hotProducts;
 
     private OrderItemDto orderItem;
     private List<OrderItemDto>orderItemList;
 
     private OrderDto order;
     private List<OrderDto>orderList;
+    private OrderIntakeDto orderIntake;
 
 
 }
@@ -25,4 +25,18 @@ public class Category {
 
     @Column(name = "created_at")
     private final LocalDateTime createdAt=LocalDateTime.now();
+
+    //CRECE EN CADA UPDATE
+    @Version
+    private long version;
+
+    //CON EL NUMERO DE CATEGORIAS DA LA VERSION DE LOS LISTADOS DE CATEGORIAS
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,35 @@
+package com.bazarPepe.eccomerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//RESPUESTA YA ENVIADA PARA CADA Idempotency-Key DE UN USUARIO; LA RESTRICCION UNICA IMPIDE DOS PEDIDOS CON LA MISMA CLAVE
+@Data
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}))
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    //SHA-256 DEL CUERPO DE LA PETICION: LA MISMA CLAVE CON OTRO PEDIDO ES UN ERROR DEL CLIENTE
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Lob
+    @Column(name = "response", nullable = false)
+    private String response;
+
+    @Column(name = "created_at")
+    private final LocalDateTime createdAt=LocalDateTime.now();
+
+}
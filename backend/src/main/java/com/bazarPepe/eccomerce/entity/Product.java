@@ -21,11 +21,20 @@ public class Product {
 
     private String description;
 
-    @Lob  // Indica que el campo se almacenará como BLOB
-    private byte[] image;  // Campo para almacenar la imagen como bytes
+    //SHA-256 DE LA IMAGEN, SE USA COMO ETAG Y COMO VERSION DE LA URL
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "image_content_type")
+    private String imageContentType;
 
     private BigDecimal price;
 
+    //UNIDADES DISPONIBLES; NULL = SIN CONTROL DE STOCK. SOLO LA CAMBIA StockLedger CON UPDATES CONDICIONALES,
+    //POR ESO JPA NUNCA LA ESCRIBE (EDITAR UN PRODUCTO NO PISA LAS RESERVAS)
+    @Column(name = "stock", insertable = false, updatable = false)
+    private Long stock;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
@@ -37,4 +46,17 @@ public class Product {
     @Column(name = "created_at")
     private final LocalDateTime createdAt=LocalDateTime.now();
 
+    //CRECE EN CADA UPDATE, SE USA COMO ETAG DEL PRODUCTO
+    @Version
+    private long version;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
 }
@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.enums;
+
+public enum OrderIntakeStatus {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
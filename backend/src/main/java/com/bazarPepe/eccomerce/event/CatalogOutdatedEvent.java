@@ -0,0 +1,16 @@
+package com.bazarPepe.eccomerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//LO PUBLICA CatalogVersion CUANDO MYSQL TIENE CAMBIOS QUE NO HAN PASADO POR ESTA INSTANCIA (OTRA INSTANCIA O A MANO):
+//LAS CACHES SE RECARGAN ANTES DE QUE SE ANUNCIE LA VERSION NUEVA
+@Getter
+@AllArgsConstructor
+public class CatalogOutdatedEvent {
+
+    private final boolean products;
+
+    private final boolean categories;
+
+}
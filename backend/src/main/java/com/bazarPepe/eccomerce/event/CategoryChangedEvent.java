@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//SE PUBLICA AL CREAR, RENOMBRAR O BORRAR UNA CATEGORIA. AL BORRARLA TAMBIEN SE BORRAN SUS PRODUCTOS (CASCADE)
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+
+    private final boolean deleted;
+
+}
@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+//SE PUBLICA AL GUARDAR UN PEDIDO: UNIDADES PEDIDAS DE CADA PRODUCTO
+@Getter
+@AllArgsConstructor
+public class OrderPlacedEvent {
+
+    private final Map<Long, Integer> quantitiesByProduct;
+
+}
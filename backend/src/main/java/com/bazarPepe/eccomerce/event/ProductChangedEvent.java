@@ -0,0 +1,28 @@
+package com.bazarPepe.eccomerce.event;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//SE PUBLICA AL CREAR, ACTUALIZAR O BORRAR UN PRODUCTO PARA QUE LOS INDICES EN MEMORIA SE PONGAN AL DIA
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    private final Long productId;
+
+    //ESTADO NUEVO DEL PRODUCTO, NULL SI SE HA BORRADO
+    private final ProductSummary product;
+
+    public static ProductChangedEvent saved(ProductSummary product) {
+        return new ProductChangedEvent(product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
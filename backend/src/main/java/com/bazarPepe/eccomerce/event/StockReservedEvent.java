@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+//SE PUBLICA AL RESERVAR STOCK PARA UN PEDIDO; SI SU TRANSACCION SE DESHACE, LAS UNIDADES SE DEVUELVEN
+@Getter
+@AllArgsConstructor
+public class StockReservedEvent {
+
+    private final Map<Long, Integer> quantitiesByProduct;
+
+}
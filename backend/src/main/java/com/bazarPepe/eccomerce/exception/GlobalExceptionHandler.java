@@ -2,12 +2,17 @@ package com.bazarPepe.eccomerce.exception;
 
 import com.bazarPepe.eccomerce.dto.Response;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
@@ -39,6 +44,15 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidImageException.class)
+    public ResponseEntity<Response> handleInvalidImageException(InvalidImageException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(exception.getMessage())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Response> handleValidationExceptions(MethodArgumentNotValidException ex, WebRequest request) {
         String errorMessage = "Incorrect data, please try another option.";
@@ -62,4 +76,75 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(UploadRejectedException.class)
+    public ResponseEntity<Response> handleUploadRejectedException(UploadRejectedException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Response> handleOutOfStockException(OutOfStockException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message(exception.getMessage())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Response> handleIdempotencyKeyException(IdempotencyKeyException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.UNPROCESSABLE_ENTITY.value())
+                .message(exception.getMessage())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(OrderIntakeRejectedException.class)
+    public ResponseEntity<Response> handleOrderIntakeRejectedException(OrderIntakeRejectedException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    //BASE DE DATOS CAIDA O SIN RESPONDER Y NADA EN CACHE QUE SERVIR: EL CLIENTE PUEDE REINTENTAR
+    @ExceptionHandler({DataAccessResourceFailureException.class, TransientDataAccessException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<Response> handleDatabaseUnavailableException(Exception exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .message("The service is temporarily unavailable, please try again later.")
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Response> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE.value())
+                .message("The image exceeds the maximum allowed size.")
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    //LA MISMA RESPUESTA QUE EL LIMITE DEL MULTIPART: EL TAMAÑO DECLARADO O EL LEIDO PASAN DE image.upload.max-size
+    @ExceptionHandler(ImageTooLargeException.class)
+    public ResponseEntity<Response> handleImageTooLargeException(ImageTooLargeException exception, WebRequest request) {
+        Response errorResponse = Response.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE.value())
+                .message(exception.getMessage())
+                .build();
+        return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 }
@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.exception;
+
+public class IdempotencyKeyException extends RuntimeException {
+
+    public IdempotencyKeyException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.exception;
+
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.exception;
+
+public class InvalidImageException extends RuntimeException {
+
+    public InvalidImageException(String message){
+        super(message);
+    }
+}
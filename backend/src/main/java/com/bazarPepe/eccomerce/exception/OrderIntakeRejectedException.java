@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.exception;
+
+public class OrderIntakeRejectedException extends RuntimeException {
+
+    public OrderIntakeRejectedException(String message){
+        super(message);
+    }
+}
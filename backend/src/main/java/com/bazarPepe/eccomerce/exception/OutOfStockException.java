@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.exception;
+
+public class OutOfStockException extends RuntimeException {
+
+    public OutOfStockException(String message){
+        super(message);
+    }
+}
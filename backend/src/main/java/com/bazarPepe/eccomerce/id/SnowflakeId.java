@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//SUSTITUYE A @GeneratedValue: EL ID SE ASIGNA EN MEMORIA ANTES DEL INSERT, ASI HIBERNATE PUEDE AGRUPARLOS EN LOTES
+@IdGeneratorType(SnowflakeIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+}
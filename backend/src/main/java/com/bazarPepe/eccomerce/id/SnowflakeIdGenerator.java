@@ -0,0 +1,39 @@
+package com.bazarPepe.eccomerce.id;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+//LO CREA HIBERNATE, UNO POR ENTIDAD. EL NODO SE CONFIGURA CON spring.jpa.properties.bazar.id.node-id (NODE_ID)
+//Y TIENE QUE SER DISTINTO EN CADA INSTANCIA QUE ESCRIBA EN LA MISMA BASE DE DATOS. NO HAY VALOR POR DEFECTO: DOS
+//INSTANCIAS ARRANCADAS SIN CONFIGURAR TENDRIAN EL MISMO NODO Y REPETIRIAN IDS, ASI QUE SIN EL NO SE ARRANCA
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    public static final String NODE_ID_SETTING = "bazar.id.node-id";
+
+    private final SnowflakeIds ids;
+
+    public SnowflakeIdGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        String nodeId = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSetting(NODE_ID_SETTING, StandardConverters.STRING);
+        this.ids = new SnowflakeIds(nodeId(nodeId));
+    }
+
+    //UN ${NODE_ID} SIN RESOLVER LLEGA TAL CUAL: TAMBIEN CUENTA COMO SIN CONFIGURAR
+    static int nodeId(String setting) {
+        if (setting == null || !setting.trim().matches("\\d{1,9}")) {
+            throw new IllegalStateException("The Snowflake node id is not set: give every instance a distinct NODE_ID between 0 and "
+                    + SnowflakeIds.MAX_NODE_ID + " (found '" + setting + "')");
+        }
+        return Integer.parseInt(setting.trim());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object entity) {
+        return ids.next();
+    }
+}
@@ -0,0 +1,54 @@
+package com.bazarPepe.eccomerce.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//IDS DE 53 BITS ORDENADOS POR TIEMPO SIN TOCAR LA BASE DE DATOS: 41 BITS DE MILISEGUNDOS DESDE 2024 (69 AÑOS),
+//5 DE NODO (32 INSTANCIAS) Y 7 DE SECUENCIA (128 POR MILISEGUNDO). CABEN EN UN Number DE JAVASCRIPT SIN PERDER PRECISION
+public class SnowflakeIds {
+
+    public static final long EPOCH = 1704067200000L;
+    static final int NODE_BITS = 5;
+    static final int SEQUENCE_BITS = 7;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    //(MILISEGUNDO << SEQUENCE_BITS) | SECUENCIA DEL ULTIMO ID: UN SOLO CAS POR ID, SIN LOCKS
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIds(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIds(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("The node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    //SI SE AGOTAN LOS 128 DEL MILISEGUNDO (O EL RELOJ VA HACIA ATRAS) SE SIGUE CONTANDO SOBRE EL SIGUIENTE:
+    //NUNCA SE ESPERA NI SE REPITE UN ID, COMO MUCHO SE ADELANTA UNOS MILISEGUNDOS AL RELOJ
+    public long next() {
+        long now = clock.getAsLong() - EPOCH;
+        long current;
+        long next;
+        do {
+            current = last.get();
+            next = Math.max(now << SEQUENCE_BITS, current + 1);
+        } while (!last.compareAndSet(current, next));
+        long timestamp = next >>> SEQUENCE_BITS;
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeId << SEQUENCE_BITS | next & SEQUENCE_MASK;
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
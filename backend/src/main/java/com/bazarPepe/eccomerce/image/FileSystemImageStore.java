@@ -0,0 +1,101 @@
+package com.bazarPepe.eccomerce.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "image.store.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStore implements ImageStore {
+
+    private final Path rootDirectory;
+    private final Path tempDirectory;
+
+    public FileSystemImageStore(@Value("${image.store.directory:data/images}") String directory) {
+        this.rootDirectory = Paths.get(directory).toAbsolutePath().normalize();
+        this.tempDirectory = rootDirectory.resolve("tmp");
+        try {
+            Files.createDirectories(tempDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the image directory " + rootDirectory, e);
+        }
+    }
+
+    @Override
+    public String save(InputStream content, String contentType) throws IOException {
+        //SE ESCRIBE A UN TEMPORAL DEL MISMO DISCO Y SE RENOMBRA AL FINAL, ASI NUNCA HAY FICHEROS A MEDIAS
+        Path tempFile = Files.createTempFile(tempDirectory, "upload-", ".part");
+        try {
+            MessageDigest digest = ImageKeys.sha256();
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String key = ImageKeys.toKey(digest);
+            Path target = pathFor(key);
+            if (Files.exists(target)) {
+                //MISMA IMAGEN YA GUARDADA: NO SE DUPLICA
+                log.debug("Image {} already stored, skipping write", key);
+                return key;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("Image {} stored concurrently", key);
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void saveVariant(String key, byte[] content, String contentType) throws IOException {
+        Path target = pathFor(key);
+        Path tempFile = Files.createTempFile(tempDirectory, "variant-", ".part");
+        try {
+            Files.write(tempFile, content);
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(pathFor(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(pathFor(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        Path path = pathFor(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    //REPARTE LOS FICHEROS EN SUBCARPETAS (ab/cd/abcd...) PARA NO TENER MILES EN UN SOLO DIRECTORIO
+    private Path pathFor(String key) {
+        ImageKeys.validate(key);
+        return rootDirectory.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.exception.ImageTooLargeException;
+import com.bazarPepe.eccomerce.exception.InvalidImageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+//PASA LA SUBIDA DEL MULTIPART AL ImageStore EN STREAMING: NUNCA SE CARGA LA IMAGEN ENTERA EN MEMORIA
+@Slf4j
+@Component
+public class ImageIngestor {
+
+    private final ImageStore imageStore;
+    private final UploadMemoryBudget uploadMemoryBudget;
+    private final long maxSize;
+    private final int bufferSize;
+
+    public ImageIngestor(ImageStore imageStore,
+                         UploadMemoryBudget uploadMemoryBudget,
+                         @Value("${image.upload.max-size:10MB}") DataSize maxSize,
+                         @Value("${image.upload.buffer-size:64KB}") DataSize bufferSize) {
+        this.imageStore = imageStore;
+        this.uploadMemoryBudget = uploadMemoryBudget;
+        this.maxSize = maxSize.toBytes();
+        this.bufferSize = (int) bufferSize.toBytes();
+    }
+
+    public ProductImageDto ingest(MultipartFile image) {
+        if (image.getSize() > maxSize) {
+            throw new ImageTooLargeException("The image exceeds the maximum allowed size.");
+        }
+        try (UploadMemoryBudget.Lease lease = uploadMemoryBudget.acquire(bufferSize);
+             InputStream in = new BufferedInputStream(new SizeLimitedInputStream(image.getInputStream(), maxSize), bufferSize)) {
+            ImageFormat format = sniff(in);
+            String key = imageStore.save(in, format.getContentType());
+            return new ProductImageDto(key, format.getContentType());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error processing the image", e);
+        }
+    }
+
+    //BORRA UNA IMAGEN QUE YA NO USA NINGUN PRODUCTO, CON SUS MINIATURAS. SI FALLA SOLO QUEDA UN FICHERO HUERFANO
+    public void discard(String key) {
+        try {
+            for (ImageVariant variant : ImageVariant.values()) {
+                imageStore.delete(variant.keyFor(key));
+            }
+            imageStore.delete(key);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete image {}: {}", key, e.getMessage());
+        }
+    }
+
+    //MIRA LOS PRIMEROS BYTES SIN CONSUMIRLOS, EL STORE RECIBE EL FICHERO COMPLETO
+    private static ImageFormat sniff(InputStream in) throws IOException {
+        byte[] header = new byte[ImageFormat.HEADER_LENGTH];
+        in.mark(header.length);
+        int length = in.readNBytes(header, 0, header.length);
+        in.reset();
+        return ImageFormat.detect(header, length)
+                .orElseThrow(() -> new InvalidImageException("The provided file is not a valid image."));
+    }
+
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long maxSize;
+        private long count;
+
+        private SizeLimitedInputStream(InputStream in, long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        //EL TAMAÑO DECLARADO PUEDE MENTIR: SE CORTA AL LEER MAS DE LA CUENTA
+        private void count(long bytes) {
+            count += bytes;
+            if (count > maxSize) {
+                throw new ImageTooLargeException("The image exceeds the maximum allowed size.");
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.bazarPepe.eccomerce.image;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+final class ImageKeys {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{4,}(-w[0-9]+)?");
+
+    private ImageKeys() {
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    static String toKey(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    //SOLO EL HASH EN HEX Y, EN LAS VARIANTES, SU SUFIJO -w<ANCHO>: LA CLAVE NUNCA PUEDE SALIRSE DEL ALMACEN
+    static String validate(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid image key: " + key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class ImageResponseWriter {
+
+    //ATRIBUTOS CON LOS QUE TOMCAT ENVIA UN FICHERO CON SENDFILE SIN PASAR POR LA JVM
+    static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    //POR DEBAJO DE ESTE TAMAÑO SENDFILE NO COMPENSA (MISMO UMBRAL QUE EL DefaultServlet DE TOMCAT)
+    static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    //LA REDIRECCION A UNA URL FIRMADA SOLO SE CACHEA UN RATO, LA FIRMA CADUCA
+    static final String REDIRECT_CACHE_CONTROL = "private, max-age=300";
+
+    private final ImageStore imageStore;
+
+    public void write(String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<URL> presignedUrl = imageStore.presignedUrl(key);
+        if (presignedUrl.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REDIRECT_CACHE_CONTROL);
+            response.sendRedirect(presignedUrl.get().toString());
+            return;
+        }
+        Optional<Path> localPath = imageStore.localPath(key);
+        if (localPath.isPresent()) {
+            writeFile(localPath.get(), request, response);
+            return;
+        }
+        if (!imageStore.exists(key)) {
+            throw new NotFoundException("The product has no image.");
+        }
+        try (InputStream in = imageStore.open(key)) {
+            StreamUtils.copy(in, response.getOutputStream());
+        }
+    }
+
+    private void writeFile(Path path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = Files.size(path);
+        response.setContentLengthLong(size);
+        if (size >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toString());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, size);
+            return;
+        }
+        //SIN SENDFILE (FICHERO PEQUEÑO, OTRO CONTENEDOR O HTTPS) SE COPIA CON UN BUFFER NORMAL: EL STREAM DEL SERVLET NO ES
+        //UN CANAL DEL SISTEMA, ASI QUE ESTE CAMINO SIEMPRE PASA LOS BYTES POR LA JVM
+        Files.copy(path, response.getOutputStream());
+        response.flushBuffer();
+    }
+}
@@ -0,0 +1,32 @@
+package com.bazarPepe.eccomerce.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface ImageStore {
+
+    //GUARDA EL CONTENIDO Y DEVUELVE SU SHA-256, QUE ES LA CLAVE DE LA IMAGEN
+    String save(InputStream content, String contentType) throws IOException;
+
+    //GUARDA UNA VARIANTE (MINIATURA) BAJO UNA CLAVE DERIVADA DEL HASH DEL ORIGINAL
+    void saveVariant(String key, byte[] content, String contentType) throws IOException;
+
+    boolean exists(String key);
+
+    InputStream open(String key) throws IOException;
+
+    //NO FALLA SI YA NO EXISTE
+    void delete(String key) throws IOException;
+
+    //FICHERO LOCAL PARA ENVIARLO SIN COPIAS (SENDFILE), VACIO SI EL ALMACEN NO ES LOCAL
+    Optional<Path> localPath(String key);
+
+    //URL FIRMADA PARA QUE EL CLIENTE DESCARGUE LA IMAGEN DIRECTAMENTE DEL ALMACEN, VACIO SI NO SE PUEDE
+    default Optional<URL> presignedUrl(String key) {
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.bazarPepe.eccomerce.image;
+
+import java.util.Optional;
+
+//TAMAÑOS REDUCIDOS QUE SE GENERAN DE CADA IMAGEN PARA LOS LISTADOS Y PANTALLAS PEQUEÑAS
+public enum ImageVariant {
+
+    SMALL(128),
+    MEDIUM(320),
+    LARGE(800);
+
+    private final int width;
+
+    ImageVariant(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    //LA CLAVE SE DERIVA DEL HASH DEL ORIGINAL, ASI NO HACE FALTA GUARDARLA EN LA BASE DE DATOS
+    public String keyFor(String originalKey) {
+        return originalKey + "-w" + width;
+    }
+
+    //LA VARIANTE MAS PEQUEÑA QUE CUBRE EL ANCHO PEDIDO; SI PIDEN MAS QUE LA MAYOR SE SIRVE EL ORIGINAL
+    public static Optional<ImageVariant> forWidth(int requestedWidth) {
+        for (ImageVariant variant : values()) {
+            if (variant.width >= requestedWidth) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.empty();
+    }
+
+    //LAS VARIANTES SE RECODIFICAN: JPEG SI EL ORIGINAL ES JPEG, PNG SI PUEDE TENER TRANSPARENCIA.
+    //WEBP NO LO LEE ImageIO, ASI QUE ESAS IMAGENES SE SIRVEN SIEMPRE EN ORIGINAL
+    public static Optional<String> contentTypeFor(String originalContentType) {
+        if (ImageFormat.JPEG.getContentType().equals(originalContentType)) {
+            return Optional.of(ImageFormat.JPEG.getContentType());
+        }
+        if (ImageFormat.PNG.getContentType().equals(originalContentType)
+                || ImageFormat.GIF.getContentType().equals(originalContentType)) {
+            return Optional.of(ImageFormat.PNG.getContentType());
+        }
+        return Optional.empty();
+    }
+}
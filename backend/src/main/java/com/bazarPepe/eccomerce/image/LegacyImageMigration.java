@@ -0,0 +1,63 @@
+package com.bazarPepe.eccomerce.image;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+//COPIA AL ImageStore LAS IMAGENES QUE AUN ESTAN EN MYSQL (products.image Y product_images) Y LAS QUITA DE ALLI:
+//product_images QUEDA VACIA Y products.image A NULL, ASI NINGUNA CONSULTA VUELVE A ARRASTRAR LOS BYTES
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LegacyImageMigration implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStore imageStore;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate("SELECT p.id FROM products p JOIN product_images pi ON pi.product_id = p.id WHERE p.image_hash IS NULL",
+                "SELECT data, content_type FROM product_images WHERE product_id = ?",
+                "DELETE FROM product_images WHERE product_id IN (SELECT id FROM products WHERE image_hash IS NOT NULL)");
+        migrate("SELECT id FROM products WHERE image IS NOT NULL AND image_hash IS NULL",
+                "SELECT image, NULL FROM products WHERE id = ?",
+                "UPDATE products SET image = NULL WHERE image IS NOT NULL AND image_hash IS NOT NULL");
+    }
+
+    private void migrate(String pendingSql, String imageSql, String cleanupSql) {
+        List<Long> pending;
+        try {
+            pending = jdbcTemplate.queryForList(pendingSql, Long.class);
+        } catch (DataAccessException e) {
+            //LA TABLA O LA COLUMNA ANTIGUA NO EXISTE: NO HAY NADA QUE MIGRAR
+            return;
+        }
+        for (Long productId : pending) {
+            jdbcTemplate.query(imageSql, resultSet -> {
+                String contentType = resultSet.getString(2) != null ? resultSet.getString(2) : "image/jpeg";
+                String key;
+                try (InputStream in = resultSet.getBinaryStream(1)) {
+                    key = imageStore.save(in, contentType);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                jdbcTemplate.update("UPDATE products SET image_hash = ?, image_content_type = ? WHERE id = ?",
+                        key, contentType, productId);
+            }, productId);
+        }
+        //SOLO LAS QUE YA TIENEN image_hash, ES DECIR, LAS QUE YA ESTAN EN EL ALMACEN
+        int cleaned = jdbcTemplate.update(cleanupSql);
+        if (!pending.isEmpty() || cleaned > 0) {
+            log.info("Migrated {} product images from MySQL to the image store, removed {} copies from MySQL", pending.size(), cleaned);
+        }
+    }
+}
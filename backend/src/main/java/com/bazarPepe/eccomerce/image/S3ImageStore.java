@@ -0,0 +1,118 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "image.store.type", havingValue = "s3")
+public class S3ImageStore implements ImageStore {
+
+    //EL NAVEGADOR CACHEA LA REDIRECCION 5 MINUTOS, LA FIRMA TIENE QUE DURAR MAS
+    private static final Duration MIN_PRESIGNED_URL_TTL = Duration.ofMinutes(10);
+
+    private final AmazonS3 amazonS3;
+    private final TransferManager transferManager;
+    private final String bucket;
+    private final Duration presignedUrlTtl;
+
+    public S3ImageStore(AmazonS3 amazonS3,
+                        TransferManager transferManager,
+                        @Value("${image.store.s3.bucket}") String bucket,
+                        @Value("${image.store.s3.presigned-url-ttl:1h}") Duration presignedUrlTtl) {
+        if (presignedUrlTtl.compareTo(MIN_PRESIGNED_URL_TTL) < 0) {
+            throw new IllegalArgumentException("image.store.s3.presigned-url-ttl must be at least " + MIN_PRESIGNED_URL_TTL);
+        }
+        this.amazonS3 = amazonS3;
+        this.transferManager = transferManager;
+        this.bucket = bucket;
+        this.presignedUrlTtl = presignedUrlTtl;
+    }
+
+    @Override
+    public String save(InputStream content, String contentType) throws IOException {
+        //LA CLAVE ES EL HASH, ASI QUE HAY QUE LEER TODO ANTES DE SUBIR: SE VUELCA A UN TEMPORAL, NO A MEMORIA
+        Path tempFile = Files.createTempFile("image-upload-", ".part");
+        try {
+            MessageDigest digest = ImageKeys.sha256();
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String key = ImageKeys.toKey(digest);
+            if (amazonS3.doesObjectExist(bucket, key)) {
+                log.debug("Image {} already in bucket {}, skipping upload", key, bucket);
+                return key;
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType(contentType);
+            metadata.setContentLength(Files.size(tempFile));
+            metadata.setCacheControl("public, max-age=31536000, immutable");
+            //TransferManager HACE SUBIDA MULTIPARTE EN PARALELO CUANDO EL FICHERO SUPERA EL UMBRAL CONFIGURADO
+            transferManager.upload(new PutObjectRequest(bucket, key, tempFile.toFile()).withMetadata(metadata))
+                    .waitForCompletion();
+            return key;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Image upload to S3 was interrupted");
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void saveVariant(String key, byte[] content, String contentType) {
+        //LAS VARIANTES SON PEQUEÑAS: UNA SUBIDA SIMPLE DESDE MEMORIA
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(content.length);
+        metadata.setCacheControl("public, max-age=31536000, immutable");
+        amazonS3.putObject(new PutObjectRequest(bucket, ImageKeys.validate(key), new ByteArrayInputStream(content), metadata));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return amazonS3.doesObjectExist(bucket, ImageKeys.validate(key));
+    }
+
+    @Override
+    public InputStream open(String key) {
+        return amazonS3.getObject(bucket, ImageKeys.validate(key)).getObjectContent();
+    }
+
+    @Override
+    public void delete(String key) {
+        amazonS3.deleteObject(bucket, ImageKeys.validate(key));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URL> presignedUrl(String key) {
+        Date expiration = new Date(System.currentTimeMillis() + presignedUrlTtl.toMillis());
+        return Optional.of(amazonS3.generatePresignedUrl(bucket, ImageKeys.validate(key), expiration, HttpMethod.GET));
+    }
+}
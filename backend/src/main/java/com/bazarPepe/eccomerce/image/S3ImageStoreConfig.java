@@ -0,0 +1,55 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+@ConditionalOnProperty(name = "image.store.type", havingValue = "s3")
+public class S3ImageStoreConfig {
+
+    @Bean
+    public AmazonS3 amazonS3(
+            @Value("${image.store.s3.endpoint:}") String endpoint,
+            @Value("${image.store.s3.region:eu-west-1}") String region,
+            @Value("${image.store.s3.access-key:}") String accessKey,
+            @Value("${image.store.s3.secret-key:}") String secretKey,
+            @Value("${image.store.s3.path-style-access:false}") boolean pathStyleAccess
+    ) {
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withPathStyleAccessEnabled(pathStyleAccess);
+        //CON ENDPOINT SE PUEDE APUNTAR A MINIO U OTRO SERVICIO COMPATIBLE CON S3
+        if (!endpoint.isBlank()) {
+            builder.withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region));
+        } else {
+            builder.withRegion(region);
+        }
+        //SIN CLAVES EXPLICITAS SE USA LA CADENA POR DEFECTO (VARIABLES DE ENTORNO, PERFIL, ROL DE LA INSTANCIA)
+        if (!accessKey.isBlank()) {
+            builder.withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)));
+        }
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public TransferManager transferManager(
+            AmazonS3 amazonS3,
+            @Value("${image.store.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+            @Value("${image.store.s3.multipart-part-size:8MB}") DataSize partSize
+    ) {
+        return TransferManagerBuilder.standard()
+                .withS3Client(amazonS3)
+                .withMultipartUploadThreshold(multipartThreshold.toBytes())
+                .withMinimumUploadPartSize(partSize.toBytes())
+                .build();
+    }
+}
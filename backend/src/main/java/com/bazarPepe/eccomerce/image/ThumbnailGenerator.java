@@ -0,0 +1,241 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//GENERA LAS MINIATURAS EN SEGUNDO PLANO CON UN POOL ACOTADO: LA SUBIDA NO ESPERA A QUE TERMINEN
+@Slf4j
+@Component
+public class ThumbnailGenerator {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ImageStore imageStore;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    //LO QUE SE SABE DE CADA VARIANTE, ASI resolve NO PREGUNTA AL ImageStore (UN HEAD EN S3) EN CADA PETICION.
+    //UNA QUE FALTA SE VUELVE A MIRAR PASADO missing-recheck: LA PUEDE HABER GENERADO OTRA INSTANCIA
+    private final Cache<String, VariantState> variants;
+
+    public ThumbnailGenerator(ImageStore imageStore,
+                              @Value("${image.thumbnails.threads:2}") int threads,
+                              @Value("${image.thumbnails.queue-capacity:100}") int queueCapacity,
+                              @Value("${image.thumbnails.max-pixels:40000000}") long maxPixels,
+                              @Value("${image.thumbnails.known-variants:100000}") long knownVariants,
+                              @Value("${image.thumbnails.missing-recheck:PT10M}") Duration missingRecheck) {
+        this.imageStore = imageStore;
+        this.maxPixels = maxPixels;
+        this.variants = Caffeine.newBuilder()
+                .maximumSize(knownVariants)
+                .expireAfter(new VariantExpiry(missingRecheck.toNanos()))
+                .build();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    //ENCOLA LA GENERACION; SI LA COLA ESTA LLENA SE DESCARTA Y SE SIGUE SIRVIENDO EL ORIGINAL
+    public void submit(String originalKey, String contentType) {
+        if (ImageVariant.contentTypeFor(contentType).isEmpty() || !pending.add(originalKey)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(originalKey, contentType);
+                } finally {
+                    pending.remove(originalKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(originalKey);
+            log.warn("Thumbnail queue is full, skipping variants for image {}", originalKey);
+        }
+    }
+
+    //DEVUELVE LA VARIANTE QUE MEJOR CUBRE EL ANCHO PEDIDO, O EL ORIGINAL SI AUN NO ESTA GENERADA
+    public ProductImageDto resolve(ProductImageDto original, Integer width) {
+        if (width == null) {
+            return original;
+        }
+        Optional<String> variantContentType = ImageVariant.contentTypeFor(original.getContentType());
+        Optional<ImageVariant> variant = ImageVariant.forWidth(width);
+        if (variantContentType.isEmpty() || variant.isEmpty()) {
+            return original;
+        }
+        String key = variant.get().keyFor(original.getHash());
+        VariantState state = variants.get(key, k -> imageStore.exists(k) ? VariantState.PRESENT : VariantState.MISSING);
+        return state == VariantState.PRESENT ? new ProductImageDto(key, variantContentType.get()) : original;
+    }
+
+    //LA IMAGEN SE HA BORRADO DEL ALMACEN: SUS VARIANTES YA NO ESTAN
+    public void forget(String originalKey) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            variants.invalidate(variant.keyFor(originalKey));
+        }
+    }
+
+    void generate(String originalKey, String contentType) {
+        String variantContentType = ImageVariant.contentTypeFor(contentType).orElseThrow();
+        boolean jpeg = ImageFormat.JPEG.getContentType().equals(variantContentType);
+        try {
+            BufferedImage source = read(originalKey);
+            for (ImageVariant variant : ImageVariant.values()) {
+                String key = variant.keyFor(originalKey);
+                //SOLO SE REDUCE: SI EL ORIGINAL YA ES PEQUEÑO (O NO SE PUEDE LEER) SE SIRVE TAL CUAL, Y ESO YA NO CAMBIA
+                if (source == null || variant.getWidth() >= source.getWidth()) {
+                    variants.put(key, VariantState.NOT_NEEDED);
+                    continue;
+                }
+                BufferedImage scaled = scale(source, variant.getWidth(), jpeg);
+                imageStore.saveVariant(key, encode(scaled, jpeg), variantContentType);
+                variants.put(key, VariantState.PRESENT);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate thumbnails for image {}", originalKey, e);
+        }
+    }
+
+    //LEE SOLO LAS DIMENSIONES PRIMERO Y DECODIFICA CON SUBMUESTREO: NO HACE FALTA EL ORIGINAL A TAMAÑO COMPLETO
+    private BufferedImage read(String originalKey) throws IOException {
+        try (InputStream in = imageStore.open(originalKey);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                log.warn("No image reader available for image {}", originalKey);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Image {} is too large for thumbnails ({}x{})", originalKey, width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, width / (ImageVariant.LARGE.getWidth() * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    //REDUCE A MITADES HASTA ACERCARSE AL TAMAÑO FINAL: CON BILINEAL DE UN SOLO PASO SALEN DIENTES DE SIERRA
+    static BufferedImage scale(BufferedImage source, int targetWidth, boolean opaque) {
+        int targetHeight = Math.max(1, Math.round((float) source.getHeight() * targetWidth / source.getWidth()));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = width == targetWidth ? targetHeight : Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (opaque) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, width, height);
+                }
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean jpeg) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!jpeg) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private enum VariantState {
+        PRESENT, MISSING, NOT_NEEDED
+    }
+
+    //SOLO CADUCA LO QUE FALTA; LO DEMAS SE QUEDA MIENTRAS QUEPA
+    private record VariantExpiry(long missingRecheckNanos) implements Expiry<String, VariantState> {
+
+        @Override
+        public long expireAfterCreate(String key, VariantState state, long currentTime) {
+            return state == VariantState.MISSING ? missingRecheckNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VariantState state, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, state, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VariantState state, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.exception.UploadRejectedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+//LIMITE GLOBAL DE MEMORIA QUE PUEDEN OCUPAR A LA VEZ LAS SUBIDAS DE IMAGENES
+@Component
+public class UploadMemoryBudget {
+
+    private static final long UNIT = 1024;
+
+    private final Semaphore permits;
+    private final int totalPermits;
+    private final Duration maxWait;
+
+    public UploadMemoryBudget(@Value("${image.upload.memory-budget:16MB}") DataSize budget,
+                              @Value("${image.upload.budget-wait:5s}") Duration maxWait) {
+        this.totalPermits = (int) Math.max(1, budget.toBytes() / UNIT);
+        this.permits = new Semaphore(totalPermits, true);
+        this.maxWait = maxWait;
+    }
+
+    //ESPERA COMO MUCHO maxWait A QUE HAYA MEMORIA; SI NO, LA SUBIDA SE RECHAZA
+    public Lease acquire(long bytes) {
+        int requested = (int) Math.min(totalPermits, Math.max(1, (bytes + UNIT - 1) / UNIT));
+        try {
+            if (!permits.tryAcquire(requested, maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new UploadRejectedException("Too many uploads in progress, please try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UploadRejectedException("The upload was interrupted.");
+        }
+        return new Lease(requested);
+    }
+
+    public long availableBytes() {
+        return permits.availablePermits() * UNIT;
+    }
+
+    public final class Lease implements AutoCloseable {
+
+        private final int acquired;
+        private boolean released;
+
+        private Lease(int acquired) {
+            this.acquired = acquired;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                permits.release(acquired);
+            }
+        }
+    }
+}
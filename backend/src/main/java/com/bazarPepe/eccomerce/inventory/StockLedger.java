@@ -0,0 +1,224 @@
+package com.bazarPepe.eccomerce.inventory;
+
+import com.bazarPepe.eccomerce.event.StockReservedEvent;
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OutOfStockException;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+//STOCK DE LOS PRODUCTOS. MYSQL ES LA FUENTE DE VERDAD: CADA PEDIDO DESCUENTA SUS LINEAS CON UPDATES CONDICIONALES DENTRO
+//DE SU PROPIA TRANSACCION, ASI NI DOS INSTANCIAS VENDEN LAS MISMAS UNIDADES NI UNA CAIDA ANTES DEL COMMIT SE LLEVA
+//UNIDADES: SI EL PEDIDO NO SE GUARDA, MYSQL DESHACE EL DESCUENTO CON EL.
+//EN MEMORIA QUEDA UNA VISTA POR PRODUCTO QUE RECHAZA SIN IR A MYSQL LO QUE YA NO TIENE STOCK. LAS RESERVAS TOMAN LOS
+//LOCKS (POR FRANJAS DE PRODUCTOS) DE TODAS LAS LINEAS EN ORDEN: DOS PEDIDOS DE PRODUCTOS DISTINTOS NO SE ESPERAN
+@Component
+public class StockLedger {
+
+    //STOCK NULL ES UN PRODUCTO SIN CONTROL: NO SE LIMITA Y SIGUE EN NULL
+    private static final String RESERVE = "update products set stock = stock - ? where id = ? and (stock is null or stock >= ?)";
+    private static final String RETURN = "update products set stock = stock + ? where id = ?";
+    private static final String SET_STOCK = "update products set stock = ? where id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReentrantLock[] locks;
+    private final int stripeShift;
+    //SOLO LOS PRODUCTOS CON CONTROL DE STOCK; LOS DEMAS NO SE LIMITAN
+    private final Map<Long, AtomicLong> available = new ConcurrentHashMap<>();
+    //RESERVADO EN PEDIDOS AUN SIN CONFIRMAR: LAS LECTURAS DE MYSQL TODAVIA NO LO VEN DESCONTADO
+    private final Map<Long, AtomicLong> uncommitted = new ConcurrentHashMap<>();
+
+    public StockLedger(ProductRepository productRepository,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${inventory.lock-stripes:64}") int lockStripes) {
+        if (lockStripes < 2 || Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("The number of lock stripes must be a power of two");
+        }
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.locks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(lockStripes);
+    }
+
+    @PostConstruct
+    public void load() {
+        productRepository.findAllStock().forEach(row -> available.put((Long) row[0], new AtomicLong((Long) row[1])));
+    }
+
+    //TODO O NADA Y DENTRO DE LA TRANSACCION DEL PEDIDO. DEVUELVE LO DESCONTADO DE LA VISTA (SOLO PRODUCTOS CON CONTROL),
+    //QUE SE CONFIRMA O SE DEVUELVE CON StockReservedEvent AL TERMINAR LA TRANSACCION
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("The quantity must be greater than zero.");
+            }
+        });
+        Map<Long, Integer> reserved = new HashMap<>();
+        int[] stripes = stripesOf(quantities.keySet());
+        lock(stripes);
+        try {
+            quantities.forEach((productId, quantity) -> {
+                AtomicLong stock = available.get(productId);
+                if (stock == null) {
+                    return;
+                }
+                if (stock.get() < quantity) {
+                    throw new OutOfStockException("There is not enough stock for product " + productId + ".");
+                }
+                reserved.put(productId, quantity);
+            });
+            reserved.forEach((productId, quantity) -> {
+                available.get(productId).addAndGet(-quantity);
+                uncommitted.computeIfAbsent(productId, id -> new AtomicLong()).addAndGet(quantity);
+            });
+        } finally {
+            unlock(stripes);
+        }
+        try {
+            reserveInDatabase(new TreeMap<>(quantities));
+        } catch (RuntimeException e) {
+            settle(reserved, true);
+            throw e;
+        }
+        return reserved;
+    }
+
+    //UN UPDATE POR LINEA EN ORDEN DE PRODUCTO (DOS PEDIDOS NUNCA SE BLOQUEAN LAS FILAS EN CRUZ). CON rewriteBatchedStatements
+    //UN LOTE NO DICE QUE FILAS CAMBIARON, Y 0 FILAS ES JUSTO LO QUE HAY QUE DETECTAR. LO YA DESCONTADO SE DEVUELVE EN LA
+    //MISMA TRANSACCION: LA COLA DE PEDIDOS SIGUE CON LOS DEMAS PEDIDOS DEL LOTE
+    private void reserveInDatabase(SortedMap<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> applied = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (jdbcTemplate.update(RESERVE, line.getValue(), line.getKey(), line.getValue()) == 0) {
+                applied.forEach(done -> jdbcTemplate.update(RETURN, done.getValue(), done.getKey()));
+                throw new OutOfStockException("There is not enough stock for product " + line.getKey() + ".");
+            }
+            applied.add(line);
+        }
+    }
+
+    //FIJA LAS UNIDADES DISPONIBLES EN MYSQL COMO VALOR ABSOLUTO, NO COMO DIFERENCIA CON LA VISTA LOCAL, QUE PUEDE IR POR
+    //DETRAS DE LAS VENTAS DE OTRAS INSTANCIAS. UN PEDIDO SIN CONFIRMAR TIENE LA FILA BLOQUEADA: EL UPDATE LO ESPERA
+    public void setStock(Long productId, long quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("The stock cannot be negative.");
+        }
+        int[] stripes = stripesOf(Set.of(productId));
+        lock(stripes);
+        try {
+            if (jdbcTemplate.update(SET_STOCK, quantity, productId) == 0) {
+                throw new NotFoundException("The product was not found.");
+            }
+            available.computeIfAbsent(productId, id -> new AtomicLong()).set(quantity);
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    //NULL SI EL PRODUCTO NO CONTROLA STOCK
+    public Long getAvailable(Long productId) {
+        AtomicLong stock = available.get(productId);
+        return stock == null ? null : stock.get();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReservationCommitted(StockReservedEvent event) {
+        settle(event.getQuantitiesByProduct(), false);
+    }
+
+    //LA TRANSACCION DEL PEDIDO SE HA DESHECHO (Y CON ELLA EL DESCUENTO EN MYSQL): LAS UNIDADES VUELVEN A LA VISTA
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onReservationRolledBack(StockReservedEvent event) {
+        settle(event.getQuantitiesByProduct(), true);
+    }
+
+    private void settle(Map<Long, Integer> quantities, boolean rolledBack) {
+        int[] stripes = stripesOf(quantities.keySet());
+        lock(stripes);
+        try {
+            quantities.forEach((productId, quantity) -> {
+                AtomicLong pending = uncommitted.get(productId);
+                if (pending != null && pending.addAndGet(-quantity) <= 0) {
+                    uncommitted.remove(productId);
+                }
+                AtomicLong stock = available.get(productId);
+                if (rolledBack && stock != null) {
+                    stock.addAndGet(quantity);
+                }
+            });
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    //LA VISTA EN MEMORIA PASA A SER LO QUE HAY EN MYSQL MENOS LO RESERVADO AQUI Y AUN SIN CONFIRMAR.
+    //ASI LLEGAN LAS VENTAS, LOS CAMBIOS DE STOCK Y LOS BORRADOS HECHOS EN OTRAS INSTANCIAS
+    @Scheduled(fixedDelayString = "${inventory.reconcile-interval:PT30S}", initialDelayString = "${inventory.reconcile-interval:PT30S}")
+    public void reconcile() {
+        Set<Long> missing = new HashSet<>(available.keySet());
+        for (Object[] row : productRepository.findAllStock()) {
+            Long productId = (Long) row[0];
+            long stored = (Long) row[1];
+            missing.remove(productId);
+            int[] stripes = stripesOf(Set.of(productId));
+            lock(stripes);
+            try {
+                AtomicLong pending = uncommitted.get(productId);
+                available.computeIfAbsent(productId, id -> new AtomicLong()).set(stored - (pending == null ? 0 : pending.get()));
+            } finally {
+                unlock(stripes);
+            }
+        }
+        missing.forEach(this::remove);
+    }
+
+    //PRODUCTO BORRADO: DEJA DE ESTAR EN LA VISTA Y NINGUNA RESERVA LO VUELVE A TOCAR
+    public void remove(Long productId) {
+        int[] stripes = stripesOf(Set.of(productId));
+        lock(stripes);
+        try {
+            available.remove(productId);
+        } finally {
+            unlock(stripes);
+        }
+    }
+
+    //SIEMPRE EN ORDEN ASCENDENTE Y SIN REPETIR: DOS PEDIDOS NUNCA SE ESPERAN EL UNO AL OTRO EN CRUZ
+    private int[] stripesOf(Collection<Long> productIds) {
+        return productIds.stream()
+                .mapToInt(productId -> (int) ((productId * 0x9E3779B97F4A7C15L) >>> stripeShift))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private void lock(int[] stripes) {
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+    }
+
+    private void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.bazarPepe.eccomerce.dto.*;
 import com.bazarPepe.eccomerce.entity.*;
 import org.springframework.stereotype.Component;
 
-import java.util.Base64;
 import java.util.stream.Collectors;
 
 @Component
@@ -59,13 +58,40 @@ public class EntityDtoMapper {
         productDto.setName(product.getName());
         productDto.setDescription(product.getDescription());
         productDto.setPrice(product.getPrice());
-        // Convertir la imagen a Base64 y asignarla a productDto
-        productDto.setImage(product.getImage() != null ?
-                Base64.getEncoder().encodeToString(product.getImage()) : null);
+        productDto.setImageUrl(mapProductImageUrl(product.getId(), product.getImageHash()));
+        productDto.setVersion(product.getVersion());
+        productDto.setUpdatedAt(product.getUpdatedAt());
+        return productDto;
+    }
+
+    //ENTITY PRODUCT TO PROYECCION DE LISTADO, PARA AVISAR A LOS INDICES EN MEMORIA
+    public ProductSummary mapProductToSummary(Product product){
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        return new ProductSummary(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), categoryId, product.getImageHash(), product.getVersion(), product.getUpdatedAt());
+    }
 
+    //PROYECCION DE LISTADO TO PRODUCT DTO BASIC, MISMO RESULTADO QUE DESDE LA ENTIDAD
+    public ProductDto mapProductSummaryToDto(ProductSummary productSummary){
+        ProductDto productDto=new ProductDto();
+        productDto.setId(productSummary.getId());
+        productDto.setName(productSummary.getName());
+        productDto.setDescription(productSummary.getDescription());
+        productDto.setPrice(productSummary.getPrice());
+        productDto.setImageUrl(mapProductImageUrl(productSummary.getId(), productSummary.getImageHash()));
+        productDto.setVersion(productSummary.getVersion());
+        productDto.setUpdatedAt(productSummary.getUpdatedAt());
         return productDto;
     }
 
+    //URL DE LA IMAGEN VERSIONADA CON EL HASH, ASI EL NAVEGADOR LA PUEDE CACHEAR PARA SIEMPRE
+    public String mapProductImageUrl(Long productId, String imageHash){
+        if (imageHash == null) {
+            return null;
+        }
+        return "/product/" + productId + "/image?v=" + imageHash.substring(0, Math.min(16, imageHash.length()));
+    }
+
     //ADD ADDRESS TO USER DTO
     public UserDto mapUserToDtoPlusAddress(User user){
         UserDto userDto=mapUserToDtoBasic(user);
@@ -0,0 +1,166 @@
+package com.bazarPepe.eccomerce.order;
+
+import com.bazarPepe.eccomerce.cache.SingleFlight;
+import com.bazarPepe.eccomerce.dto.OrderItemRequest;
+import com.bazarPepe.eccomerce.dto.OrderRequest;
+import com.bazarPepe.eccomerce.dto.Response;
+import com.bazarPepe.eccomerce.entity.IdempotencyRecord;
+import com.bazarPepe.eccomerce.exception.IdempotencyKeyException;
+import com.bazarPepe.eccomerce.repository.IdempotencyRecordRepository;
+import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
+import com.bazarPepe.eccomerce.service.interfaces.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+//REINTENTOS DE /order/create CON LA MISMA Idempotency-Key: SE DEVUELVE LA RESPUESTA ORIGINAL SIN VOLVER A CREAR EL PEDIDO.
+//LAS CLAVES RECIENTES SE MIRAN EN MEMORIA; LA TABLA idempotency_keys CUBRE LOS REINICIOS Y LAS DEMAS INSTANCIAS
+@Slf4j
+@Component
+public class OrderIdempotency {
+
+    static final int MAX_KEY_LENGTH = 64;
+
+    private final OrderItemService orderItemService;
+    private final UserService userService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+
+    //CLAVE: USUARIO + Idempotency-Key, CADA USUARIO TIENE SUS PROPIAS CLAVES
+    private final Cache<String, StoredResponse> recent;
+    //DOS REINTENTOS A LA VEZ EN ESTA INSTANCIA: EL SEGUNDO ESPERA AL PRIMERO EN LUGAR DE CHOCAR CON LA RESTRICCION UNICA
+    private final SingleFlight<String, StoredResponse> inFlight = new SingleFlight<>();
+
+    public OrderIdempotency(OrderItemService orderItemService,
+                            UserService userService,
+                            IdempotencyRecordRepository idempotencyRecordRepository,
+                            PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper,
+                            @Value("${order.idempotency.recent-keys:10000}") long recentKeys,
+                            @Value("${order.idempotency.retention:P1D}") Duration retention) {
+        this.orderItemService = orderItemService;
+        this.userService = userService;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(recentKeys)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    public Response placeOrder(String idempotencyKey, OrderRequest orderRequest) {
+        if (idempotencyKey == null) {
+            return orderItemService.placeOrder(orderRequest);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("The Idempotency-Key header must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+        Long userId = userService.getLoginUser().getId();
+        String key = userId + ":" + idempotencyKey;
+        String requestHash = hash(orderRequest);
+        StoredResponse stored = recent.getIfPresent(key);
+        if (stored == null) {
+            stored = inFlight.load(key, ignored -> {
+                StoredResponse loaded = recent.getIfPresent(key);
+                if (loaded == null) {
+                    loaded = findOrPlace(userId, idempotencyKey, requestHash, orderRequest);
+                    recent.put(key, loaded);
+                }
+                return loaded;
+            });
+        }
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException("The Idempotency-Key was already used for a different order.");
+        }
+        return stored.response();
+    }
+
+    //EL PEDIDO Y SU CLAVE SE GUARDAN EN LA MISMA TRANSACCION: SI OTRA INSTANCIA GANO LA CARRERA, ESTE PEDIDO SE DESHACE
+    private StoredResponse findOrPlace(Long userId, String idempotencyKey, String requestHash, OrderRequest orderRequest) {
+        return idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(this::toStoredResponse)
+                .orElseGet(() -> {
+                    try {
+                        return transactionTemplate.execute(status -> {
+                            Response response = orderItemService.placeOrder(orderRequest);
+                            IdempotencyRecord idempotencyRecord = new IdempotencyRecord();
+                            idempotencyRecord.setUserId(userId);
+                            idempotencyRecord.setIdempotencyKey(idempotencyKey);
+                            idempotencyRecord.setRequestHash(requestHash);
+                            idempotencyRecord.setResponse(write(response));
+                            idempotencyRecordRepository.saveAndFlush(idempotencyRecord);
+                            return new StoredResponse(requestHash, response);
+                        });
+                    } catch (DataIntegrityViolationException e) {
+                        return idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                                .map(this::toStoredResponse)
+                                .orElseThrow(() -> e);
+                    }
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    //SOLO CUENTA LO QUE CAMBIA EL PEDIDO; paymentInfo LLEVA UNA FECHA DE CREACION QUE CAMBIA EN CADA REINTENTO
+    static String hash(OrderRequest orderRequest) {
+        StringBuilder canonical = new StringBuilder();
+        BigDecimal totalPrice = orderRequest.getTotalPrice();
+        canonical.append(totalPrice == null ? "" : totalPrice.stripTrailingZeros().toPlainString());
+        if (orderRequest.getItems() != null) {
+            for (OrderItemRequest item : orderRequest.getItems()) {
+                canonical.append('|').append(item.getProductId()).append('x').append(item.getQuantity());
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private String write(Response response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store the order response", e);
+        }
+    }
+
+    private StoredResponse toStoredResponse(IdempotencyRecord idempotencyRecord) {
+        try {
+            return new StoredResponse(idempotencyRecord.getRequestHash(), objectMapper.readValue(idempotencyRecord.getResponse(), Response.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the stored order response", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, Response response) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.bazarPepe.eccomerce.order;
+
+import com.bazarPepe.eccomerce.dto.OrderIntakeDto;
+import com.bazarPepe.eccomerce.dto.OrderRequest;
+import com.bazarPepe.eccomerce.entity.User;
+import com.bazarPepe.eccomerce.enums.OrderIntakeStatus;
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OrderIntakeRejectedException;
+import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
+import com.bazarPepe.eccomerce.service.interfaces.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//ENTRADA ASINCRONA DE PEDIDOS PARA LOS PICOS DE TRAFICO: LA PETICION SOLO VALIDA Y ENCOLA, Y UNOS POCOS HILOS VIRTUALES
+//GUARDAN LOS PEDIDOS EN LOTES (UNA TRANSACCION POR LOTE). ASI NI TOMCAT NI EL POOL DE CONEXIONES SE AGOTAN ESPERANDO A MYSQL.
+//SE PARA ANTES QUE EL SERVIDOR WEB: MIENTRAS SE VACIA LA COLA LOS CLIENTES AUN PUEDEN CONSULTAR SU REFERENCIA
+@Slf4j
+@Component
+public class OrderIntakeQueue implements SmartLifecycle {
+
+    private static final long POLL_MILLIS = 200;
+
+    private final OrderItemService orderItemService;
+    private final UserService userService;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration drainTimeout;
+
+    private final BlockingQueue<QueuedOrder> queue;
+    //ESTADO DE CADA REFERENCIA PARA QUE EL CLIENTE PREGUNTE; SE OLVIDA PASADO status-ttl
+    private final Cache<String, Ticket> tickets;
+    private final List<Thread> workers = new ArrayList<>();
+    //LOTES QUE LOS HILOS ESTAN GUARDANDO EN ESTE MOMENTO
+    private final Set<QueuedOrder> inFlight = ConcurrentHashMap.newKeySet();
+    //LOS PEDIDOS SE ENCOLAN CON EL DE LECTURA Y EL APAGADO CIERRA LA ENTRADA CON EL DE ESCRITURA: UNA VEZ CERRADA YA NO
+    //QUEDA NINGUN PEDIDO A MEDIO ENCOLAR QUE LLEGUE DESPUES DE VACIAR LA COLA
+    private final ReadWriteLock intakeLock = new ReentrantReadWriteLock();
+    private volatile boolean accepting = true;
+    private volatile boolean running;
+
+    public OrderIntakeQueue(OrderItemService orderItemService,
+                            UserService userService,
+                            @Value("${order.intake.queue-capacity:1000}") int queueCapacity,
+                            @Value("${order.intake.workers:4}") int workerCount,
+                            @Value("${order.intake.batch-size:20}") int batchSize,
+                            @Value("${order.intake.status-ttl:1h}") Duration statusTtl,
+                            @Value("${order.intake.drain-timeout:30s}") Duration drainTimeout) {
+        this.orderItemService = orderItemService;
+        this.userService = userService;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.drainTimeout = drainTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .maximumSize(queueCapacity * 100L)
+                .build();
+    }
+
+    public OrderIntakeDto submit(OrderRequest orderRequest) {
+        User user = userService.getLoginUser();
+        String reference = UUID.randomUUID().toString();
+        OrderIntakeDto queued = new OrderIntakeDto(reference, OrderIntakeStatus.QUEUED, null, null);
+        tickets.put(reference, new Ticket(user.getId(), queued));
+        boolean queuedOrder;
+        intakeLock.readLock().lock();
+        try {
+            queuedOrder = accepting && queue.offer(new QueuedOrder(reference, user, orderRequest));
+        } finally {
+            intakeLock.readLock().unlock();
+        }
+        if (!queuedOrder) {
+            tickets.invalidate(reference);
+            throw new OrderIntakeRejectedException("Too many orders in progress, please try again later.");
+        }
+        return queued;
+    }
+
+    //CADA USUARIO SOLO VE SUS PROPIOS PEDIDOS
+    public OrderIntakeDto getStatus(String reference) {
+        Ticket ticket = tickets.getIfPresent(reference);
+        if (ticket == null || !ticket.userId().equals(userService.getLoginUser().getId())) {
+            throw new NotFoundException("The order reference was not found.");
+        }
+        return ticket.status();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void work() {
+        List<QueuedOrder> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedOrder first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                //AL APAGAR SE SALE SOLO CUANDO LA COLA ESTA VACIA
+                if (!accepting) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            batch.forEach(order -> update(order, new OrderIntakeDto(order.reference(), OrderIntakeStatus.PROCESSING, null, null)));
+            inFlight.addAll(batch);
+            try {
+                persist(batch);
+            } finally {
+                batch.forEach(inFlight::remove);
+                batch.clear();
+            }
+        }
+    }
+
+    void persist(List<QueuedOrder> batch) {
+        try {
+            Map<String, Long> placed = orderItemService.placeQueuedOrders(batch);
+            for (QueuedOrder order : batch) {
+                Long orderId = placed.get(order.reference());
+                update(order, orderId != null
+                        ? new OrderIntakeDto(order.reference(), OrderIntakeStatus.COMPLETED, orderId, "The order has been completed.")
+                        : new OrderIntakeDto(order.reference(), OrderIntakeStatus.FAILED, null, "The product was not found or is out of stock."));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                //UN PEDIDO QUE FALLA NO TUMBA EL LOTE: SE REINTENTAN DE UNO EN UNO
+                batch.forEach(order -> persist(List.of(order)));
+                return;
+            }
+            QueuedOrder order = batch.get(0);
+            log.warn("Could not place queued order {}: {}", order.reference(), e.getMessage());
+            update(order, new OrderIntakeDto(order.reference(), OrderIntakeStatus.FAILED, null, "The order could not be completed."));
+        }
+    }
+
+    private void update(QueuedOrder order, OrderIntakeDto status) {
+        tickets.put(order.reference(), new Ticket(order.user().getId(), status));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !accepting) {
+            return;
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("order-intake-" + i).start(this::work));
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //DEJA DE ACEPTAR PEDIDOS Y ESPERA A QUE LOS HILOS VACIEN LA COLA ANTES DE QUE SE CIERRE LA BASE DE DATOS.
+    //LO QUE NO DA TIEMPO A GUARDAR QUEDA COMO FALLIDO: EL CLIENTE YA TIENE SU REFERENCIA Y ASI SABE QUE DEBE REPETIRLO
+    @PreDestroy
+    public synchronized void shutdown() throws InterruptedException {
+        intakeLock.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            intakeLock.writeLock().unlock();
+        }
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !worker.join(Duration.ofNanos(remaining))) {
+                break;
+            }
+        }
+        //SE CORTAN LOS HILOS ANTES DE VACIAR: NINGUNO SE LLEVA YA UN PEDIDO QUE SE HAYA DADO POR FALLIDO
+        workers.forEach(Thread::interrupt);
+        List<QueuedOrder> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        if (!leftover.isEmpty()) {
+            log.warn("Order intake queue not drained on shutdown, {} orders were marked as failed", leftover.size());
+            leftover.forEach(order -> update(order, new OrderIntakeDto(order.reference(), OrderIntakeStatus.FAILED, null,
+                    "The server stopped before the order could be placed, please place it again.")));
+        }
+        //LOS LOTES CORTADOS A MEDIAS QUEDAN FALLIDOS SI EL HILO NO LLEGO A DEJAR SU RESULTADO
+        for (QueuedOrder order : inFlight) {
+            tickets.asMap().computeIfPresent(order.reference(), (reference, ticket) ->
+                    ticket.status().getStatus() != OrderIntakeStatus.PROCESSING ? ticket
+                            : new Ticket(ticket.userId(), new OrderIntakeDto(reference, OrderIntakeStatus.FAILED, null,
+                            "The server stopped while the order was being placed, please check your orders before placing it again.")));
+        }
+        running = false;
+    }
+
+    private record Ticket(Long userId, OrderIntakeDto status) {
+    }
+}
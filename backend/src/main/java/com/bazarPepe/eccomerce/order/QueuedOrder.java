@@ -0,0 +1,8 @@
+package com.bazarPepe.eccomerce.order;
+
+import com.bazarPepe.eccomerce.dto.OrderRequest;
+import com.bazarPepe.eccomerce.entity.User;
+
+//PEDIDO ACEPTADO PERO AUN NO GUARDADO. EL USUARIO SE RESUELVE AL ENCOLAR: LOS HILOS DE LA COLA NO TIENEN CONTEXTO DE SEGURIDAD
+public record QueuedOrder(String reference, User user, OrderRequest request) {
+}
@@ -1,7 +1,13 @@
 package com.bazarPepe.eccomerce.repository;
 
+import com.bazarPepe.eccomerce.dto.CatalogStampDto;
 import com.bazarPepe.eccomerce.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CategoryRepository extends JpaRepository<Category,Long> {
+
+    //VERSION DE LOS LISTADOS DE CATEGORIAS SACADA DE LOS PROPIOS DATOS
+    @Query("select new com.bazarPepe.eccomerce.dto.CatalogStampDto(count(c), max(c.id), sum(c.version), max(c.updatedAt)) from Category c")
+    CatalogStampDto findCatalogStamp();
 }
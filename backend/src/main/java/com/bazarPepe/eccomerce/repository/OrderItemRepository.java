@@ -3,9 +3,15 @@ package com.bazarPepe.eccomerce.repository;
 import com.bazarPepe.eccomerce.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, JpaSpecificationExecutor<OrderItem> {
 
+    //UNIDADES VENDIDAS POR PRODUCTO: [productId, cantidad]
+    @Query("select oi.product.id, sum(oi.quantity) from OrderItem oi where oi.product is not null group by oi.product.id")
+    List<Object[]> sumQuantitiesByProduct();
 
 
 
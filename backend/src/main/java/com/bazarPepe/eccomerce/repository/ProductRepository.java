@@ -1,16 +1,58 @@
 package com.bazarPepe.eccomerce.repository;
 
+import com.bazarPepe.eccomerce.dto.CatalogStampDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
 import com.bazarPepe.eccomerce.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    String SUMMARY = "select new com.bazarPepe.eccomerce.dto.ProductSummary(p.id, p.name, p.description, p.price, p.category.id, p.imageHash, p.version, p.updatedAt) from Product p ";
+
+    //TODO EL CATALOGO, LOS MAS NUEVOS PRIMERO
+    @Query(SUMMARY + "order by p.id desc")
+    List<ProductSummary>findAllSummaries();
+
+    //PAGINACION POR CURSOR: WHERE id < ? ORDER BY id DESC LIMIT ?, USA LA CLAVE PRIMARIA Y NO SE RECORRE LO YA SERVIDO
+    @Query(SUMMARY + "where p.id < :id order by p.id desc")
+    List<ProductSummary>findSummariesBefore(@Param("id") Long id, Limit limit);
+
+    //PRIMERA PAGINA DEL CURSOR
+    @Query(SUMMARY + "order by p.id desc")
+    List<ProductSummary>findFirstSummaries(Limit limit);
+
+    //PARA RECARGAR DE UNA VEZ LOS PRODUCTOS QUE LA CACHE HA EXPULSADO
+    @Query(SUMMARY + "where p.id in :ids")
+    List<ProductSummary>findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
     //PARA BUSCAR SEGUN LA CATEGORIA
-    List<Product>findByCategoryId(Long categoryId);
+    @Query(SUMMARY + "where p.category.id = :categoryId")
+    List<ProductSummary>findSummariesByCategoryId(@Param("categoryId") Long categoryId);
 
     //PARA BUSCAR FILTRANDO POR EL NOMBRE O LA DESCRIPCION, EJEMPLO CA ENCONTRARIA CAMISA
-    List<Product>findByNameContainingOrDescriptionContaining(String name,String description);
+    @Query(SUMMARY + "where p.name like concat('%', :value, '%') or p.description like concat('%', :value, '%')")
+    List<ProductSummary>searchSummaries(@Param("value") String value);
+
+    //SOLO LO QUE NECESITA /product/{id}/image: HASH (NULL SI NO TIENE IMAGEN) Y TIPO
+    @Query("select new com.bazarPepe.eccomerce.dto.ProductImageDto(p.imageHash, p.imageContentType) from Product p where p.id = :id")
+    Optional<ProductImageDto>findImageById(@Param("id") Long id);
+
+    //UNA IMAGEN DEDUPLICADA PUEDE SER DE VARIOS PRODUCTOS: SOLO SE BORRA CUANDO YA NO ES DE NINGUNO
+    boolean existsByImageHash(String imageHash);
+
+    //STOCK DE LOS PRODUCTOS QUE LO CONTROLAN: [productId, stock]
+    @Query("select p.id, p.stock from Product p where p.stock is not null")
+    List<Object[]>findAllStock();
 
+    //VERSION DE LOS LISTADOS DE PRODUCTOS SACADA DE LOS PROPIOS DATOS
+    @Query("select new com.bazarPepe.eccomerce.dto.CatalogStampDto(count(p), max(p.id), sum(p.version), max(p.updatedAt)) from Product p")
+    CatalogStampDto findCatalogStamp();
 }
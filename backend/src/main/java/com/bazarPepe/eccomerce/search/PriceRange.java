@@ -0,0 +1,48 @@
+package com.bazarPepe.eccomerce.search;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+//TRAMOS FIJOS DE PRECIO PARA LAS FACETAS, CADA UNO HASTA SU LIMITE (SIN INCLUIRLO)
+public enum PriceRange {
+
+    UNDER_10("0-10", 10),
+    FROM_10_TO_25("10-25", 25),
+    FROM_25_TO_50("25-50", 50),
+    FROM_50_TO_100("50-100", 100),
+    FROM_100_TO_250("100-250", 250),
+    OVER_250("250+", Integer.MAX_VALUE);
+
+    private final String key;
+    private final BigDecimal to;
+
+    PriceRange(String key, int to) {
+        this.key = key;
+        this.to = BigDecimal.valueOf(to);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Optional<PriceRange> of(BigDecimal price) {
+        if (price == null || price.signum() < 0) {
+            return Optional.empty();
+        }
+        for (PriceRange range : values()) {
+            if (price.compareTo(range.to) < 0) {
+                return Optional.of(range);
+            }
+        }
+        return Optional.of(OVER_250);
+    }
+
+    public static Optional<PriceRange> fromKey(String key) {
+        for (PriceRange range : values()) {
+            if (range.key.equals(key)) {
+                return Optional.of(range);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,366 @@
+package com.bazarPepe.eccomerce.search;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//INDICE INVERTIDO EN MEMORIA SOBRE NOMBRE Y DESCRIPCION, ORDENADO CON BM25.
+//SUSTITUYE A LOS LIKE '%x%' QUE RECORRIAN LA TABLA ENTERA EN CADA BUSQUEDA
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    //EL NOMBRE PESA MAS QUE LA DESCRIPCION: CADA APARICION CUENTA DOBLE
+    private static final int NAME_BOOST = 2;
+    //"cami" ENCUENTRA "camisa", PERO PUNTUA MENOS QUE UNA PALABRA EXACTA
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_TERMS = 64;
+    //CORRECCION DE ERRORES: CANDIDATOS POR TRIGRAMAS Y DESPUES DISTANCIA DE EDICION
+    private static final int MIN_CORRECTABLE_LENGTH = 3;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.2;
+    private static final int MAX_CORRECTION_CANDIDATES = 32;
+
+    private final ProductRepository productRepository;
+    private final int maxResults;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    //CADA PRODUCTO OCUPA UNA POSICION FIJA EN LOS BITSETS DE LAS FACETAS
+    private final BitSet usedSlots = new BitSet();
+    private final Map<Long, BitSet> categorySlots = new HashMap<>();
+    private final Map<PriceRange, BitSet> priceRangeSlots = new EnumMap<>(PriceRange.class);
+    //TERMINO -> (PRODUCTO -> FRECUENCIA). ORDENADO PARA PODER EXPANDIR PREFIJOS
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private TrigramIndex trigramIndex = new TrigramIndex();
+    private long totalLength;
+    //CAMBIOS APLICADOS POR EVENTO: UNA RECONSTRUCCION LEIDA ANTES DE ALGUNO LO DESHARIA
+    private long changes;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              @Value("${search.max-results:200}") int maxResults) {
+        this.productRepository = productRepository;
+        this.maxResults = maxResults;
+    }
+
+    //MIENTRAS NO ESTE CARGADO LAS BUSQUEDAS VAN A LA BASE DE DATOS
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild() {
+        rebuild(productRepository.findAllSummaries());
+    }
+
+    public long changeCount() {
+        lock.readLock().lock();
+        try {
+            return changes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //AL ARRANCAR LO LLAMA CatalogWarmup CON LOS PRODUCTOS DE LA FOTO EN DISCO O DE LA BASE DE DATOS
+    public void rebuild(List<ProductSummary> products) {
+        lock.writeLock().lock();
+        try {
+            replace(products);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //SOLO SI NINGUN EVENTO SE HA APLICADO DESDE changeCount(): SI NO, products ES MAS VIEJO QUE EL INDICE Y NO SE TOCA
+    public boolean rebuild(List<ProductSummary> products, long observedChanges) {
+        lock.writeLock().lock();
+        try {
+            if (changes != observedChanges) {
+                return false;
+            }
+            replace(products);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replace(List<ProductSummary> products) {
+        documents.clear();
+        usedSlots.clear();
+        categorySlots.clear();
+        priceRangeSlots.clear();
+        postings.clear();
+        trigramIndex = new TrigramIndex();
+        totalLength = 0;
+        for (ProductSummary product : products) {
+            add(product);
+        }
+        ready = true;
+        log.info("Search index built with {} products and {} terms", documents.size(), trigramIndex.size());
+    }
+
+    //TODOS LOS PRODUCTOS INDEXADOS, LOS MAS NUEVOS PRIMERO, PARA GUARDAR LA FOTO DEL CATALOGO
+    public List<ProductSummary> getProducts() {
+        lock.readLock().lock();
+        try {
+            return documents.values().stream()
+                    .map(IndexedProduct::product)
+                    .sorted(Comparator.comparing(ProductSummary::getId).reversed())
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //SE APLICA TRAS EL COMMIT, O EN EL MOMENTO SI NO HAY TRANSACCION
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getProductId());
+            if (!event.isDeleted()) {
+                add(event.getProduct());
+            }
+            changes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!event.isDeleted()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Long> removed = documents.values().stream()
+                    .filter(document -> event.getCategoryId().equals(document.product.getCategoryId()))
+                    .map(document -> document.product.getId())
+                    .toList();
+            removed.forEach(this::remove);
+            changes++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSummary> search(String query) {
+        return search(query, null, null).getProducts();
+    }
+
+    //BUSQUEDA CON FILTROS OPCIONALES. LAS FACETAS SE CUENTAN CRUZANDO BITSETS: CADA FACETA APLICA EL FILTRO
+    //DE LA OTRA PERO NO EL SUYO, ASI EL CLIENTE VE CUANTOS HABRIA AL CAMBIAR DE CATEGORIA O DE TRAMO
+    public SearchResult search(String query, Long categoryId, PriceRange priceRange) {
+        List<String> queryTerms = TextAnalyzer.tokenize(query).stream().distinct().toList();
+        if (queryTerms.isEmpty()) {
+            return SearchResult.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return SearchResult.empty();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<Long, Match> matches = new HashMap<>();
+            for (String queryTerm : queryTerms) {
+                //CADA PALABRA DE LA BUSQUEDA SUMA SU MEJOR COINCIDENCIA EN CADA PRODUCTO
+                Map<Long, Double> termScores = new HashMap<>();
+                score(queryTerm, 1.0, documentCount, averageLength, termScores);
+                int expanded = 0;
+                for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                    if (++expanded > MAX_PREFIX_TERMS) {
+                        break;
+                    }
+                    score(term, PREFIX_WEIGHT, documentCount, averageLength, termScores);
+                }
+                termScores.forEach((productId, termScore) -> {
+                    Match match = matches.computeIfAbsent(productId, id -> new Match());
+                    match.matchedTerms++;
+                    match.score += termScore;
+                });
+            }
+
+            BitSet matched = new BitSet(usedSlots.length());
+            matches.keySet().forEach(productId -> matched.set(documents.get(productId).slot));
+            BitSet inCategory = categoryId == null ? null : categorySlots.getOrDefault(categoryId, new BitSet());
+            BitSet inPriceRange = priceRange == null ? null : priceRangeSlots.getOrDefault(priceRange, new BitSet());
+
+            BitSet categoryBase = intersect(matched, inPriceRange);
+            Map<Long, Integer> categoryCounts = new LinkedHashMap<>();
+            categorySlots.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), countIntersection(categoryBase, entry.getValue())))
+                    .filter(entry -> entry.getValue() > 0)
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> categoryCounts.put(entry.getKey(), entry.getValue()));
+
+            BitSet priceRangeBase = intersect(matched, inCategory);
+            Map<PriceRange, Integer> priceRangeCounts = new EnumMap<>(PriceRange.class);
+            priceRangeSlots.forEach((range, slots) -> {
+                int count = countIntersection(priceRangeBase, slots);
+                if (count > 0) {
+                    priceRangeCounts.put(range, count);
+                }
+            });
+
+            BitSet selected = intersect(categoryBase, inCategory);
+            //PRIMERO LOS QUE CONTIENEN MAS PALABRAS DE LA BUSQUEDA, DESPUES POR BM25 Y LOS MAS NUEVOS DELANTE
+            List<ProductSummary> products = matches.entrySet().stream()
+                    .filter(entry -> selected.get(documents.get(entry.getKey()).slot))
+                    .sorted(Comparator.<Map.Entry<Long, Match>>comparingInt(entry -> entry.getValue().matchedTerms).reversed()
+                            .thenComparing(entry -> entry.getValue().score, Comparator.reverseOrder())
+                            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder()))
+                    .limit(maxResults)
+                    .map(entry -> documents.get(entry.getKey()).product)
+                    .toList();
+            return new SearchResult(products, matches.size(), categoryCounts, priceRangeCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static BitSet intersect(BitSet slots, BitSet filter) {
+        if (filter == null) {
+            return slots;
+        }
+        BitSet result = (BitSet) slots.clone();
+        result.and(filter);
+        return result;
+    }
+
+    private static int countIntersection(BitSet slots, BitSet facet) {
+        BitSet result = (BitSet) facet.clone();
+        result.and(slots);
+        return result.cardinality();
+    }
+
+    //PARA UNA BUSQUEDA SIN RESULTADOS: CAMBIA CADA PALABRA DESCONOCIDA POR LA MAS PARECIDA DEL CATALOGO.
+    //VACIO SI NO HAY NADA QUE CORREGIR
+    public Optional<String> correct(String query) {
+        List<String> queryTerms = TextAnalyzer.tokenize(query);
+        lock.readLock().lock();
+        try {
+            boolean corrected = false;
+            List<String> correctedTerms = new ArrayList<>(queryTerms.size());
+            for (String queryTerm : queryTerms) {
+                String correction = isKnown(queryTerm) ? null : closestTerm(queryTerm);
+                correctedTerms.add(correction != null ? correction : queryTerm);
+                corrected |= correction != null;
+            }
+            return corrected ? Optional.of(String.join(" ", correctedTerms)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isKnown(String term) {
+        String next = postings.ceilingKey(term);
+        return next != null && next.startsWith(term);
+    }
+
+    private String closestTerm(String term) {
+        if (term.length() < MIN_CORRECTABLE_LENGTH) {
+            return null;
+        }
+        //PALABRAS CORTAS ADMITEN UN ERROR, LAS LARGAS DOS
+        int maxEdits = term.length() <= 4 ? 1 : 2;
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestFrequency = 0;
+        for (String candidate : trigramIndex.candidates(term, MIN_TRIGRAM_SIMILARITY, MAX_CORRECTION_CANDIDATES)) {
+            int distance = TrigramIndex.editDistance(term, candidate);
+            int frequency = postings.get(candidate).size();
+            if (distance <= maxEdits && (distance < bestDistance || distance == bestDistance && frequency > bestFrequency)) {
+                best = candidate;
+                bestDistance = distance;
+                bestFrequency = frequency;
+            }
+        }
+        return best;
+    }
+
+    private void score(String term, double weight, int documentCount, double averageLength, Map<Long, Double> termScores) {
+        Map<Long, Integer> termPostings = postings.get(term);
+        if (termPostings == null) {
+            return;
+        }
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        termPostings.forEach((productId, frequency) -> {
+            int length = documents.get(productId).length;
+            double tf = frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+            termScores.merge(productId, weight * idf * tf, Math::max);
+        });
+    }
+
+    private void add(ProductSummary product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> nameTerms = TextAnalyzer.tokenize(product.getName());
+        List<String> descriptionTerms = TextAnalyzer.tokenize(product.getDescription());
+        nameTerms.forEach(term -> frequencies.merge(term, NAME_BOOST, Integer::sum));
+        descriptionTerms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        int length = nameTerms.size() * NAME_BOOST + descriptionTerms.size();
+
+        int slot = usedSlots.nextClearBit(0);
+        usedSlots.set(slot);
+        if (product.getCategoryId() != null) {
+            categorySlots.computeIfAbsent(product.getCategoryId(), id -> new BitSet()).set(slot);
+        }
+        PriceRange.of(product.getPrice()).ifPresent(range -> priceRangeSlots.computeIfAbsent(range, r -> new BitSet()).set(slot));
+
+        documents.put(product.getId(), new IndexedProduct(product, frequencies.keySet(), length, slot));
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> {
+            trigramIndex.add(t);
+            return new HashMap<>();
+        }).put(product.getId(), frequency));
+        totalLength += length;
+    }
+
+    private void remove(Long productId) {
+        IndexedProduct previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            termPostings.remove(productId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                trigramIndex.remove(term);
+            }
+        }
+        totalLength -= previous.length;
+
+        usedSlots.clear(previous.slot);
+        Long categoryId = previous.product.getCategoryId();
+        if (categoryId != null) {
+            BitSet slots = categorySlots.get(categoryId);
+            slots.clear(previous.slot);
+            if (slots.isEmpty()) {
+                categorySlots.remove(categoryId);
+            }
+        }
+        PriceRange.of(previous.product.getPrice()).ifPresent(range -> priceRangeSlots.get(range).clear(previous.slot));
+    }
+
+    private record IndexedProduct(ProductSummary product, Set<String> terms, int length, int slot) {
+    }
+
+    private static final class Match {
+        private int matchedTerms;
+        private double score;
+    }
+}
@@ -0,0 +1,242 @@
+package com.bazarPepe.eccomerce.search;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.OrderPlacedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.OrderItemRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//AUTOCOMPLETADO DE NOMBRES DE PRODUCTO. LAS CONSULTAS LEEN UNA FOTO INMUTABLE (ARRAYS ORDENADOS + BUSQUEDA BINARIA)
+//SIN LOCKS NI BASE DE DATOS; LOS CAMBIOS CONSTRUYEN UNA FOTO NUEVA Y LA SUSTITUYEN DE GOLPE
+@Slf4j
+@Component
+public class ProductSuggester {
+
+    public static final int MAX_SUGGESTIONS = 20;
+    //LOS PREFIJOS DE 1 Y 2 LETRAS ABARCAN MEDIO CATALOGO: SU RESPUESTA SE CALCULA AL CONSTRUIR LA FOTO
+    private static final int MEMO_PREFIX_LENGTH = 2;
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    //ESTADO DEL QUE SE CONSTRUYEN LAS FOTOS, SOLO SE TOCA DENTRO DE synchronized
+    private final Map<Long, String> names = new HashMap<>();
+    private final Map<Long, Long> popularity = new HashMap<>();
+    private final AtomicBoolean popularityChanged = new AtomicBoolean();
+    //CAMBIOS DE PRODUCTO APLICADOS POR EVENTO, COMO EN ProductSearchIndex
+    private long changes;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public ProductSuggester(ProductRepository productRepository, OrderItemRepository orderItemRepository) {
+        this.productRepository = productRepository;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    public void rebuild() {
+        rebuild(productRepository.findAllSummaries());
+    }
+
+    public void rebuild(List<ProductSummary> products) {
+        rebuild(products, soldQuantities());
+    }
+
+    public synchronized long changeCount() {
+        return changes;
+    }
+
+    //SOLO SI NINGUN EVENTO SE HA APLICADO DESDE changeCount(); LAS VENTAS SE LEEN FUERA PARA NO BLOQUEAR LOS EVENTOS
+    public boolean rebuild(List<ProductSummary> products, long observedChanges) {
+        Map<Long, Long> sold = soldQuantities();
+        synchronized (this) {
+            if (changes != observedChanges) {
+                return false;
+            }
+            rebuild(products, sold);
+            return true;
+        }
+    }
+
+    //AL ARRANCAR DESDE LA FOTO EN DISCO LAS VENTAS TAMBIEN VIENEN DE LA FOTO
+    public synchronized void rebuild(List<ProductSummary> products, Map<Long, Long> sold) {
+        names.clear();
+        popularity.clear();
+        for (ProductSummary product : products) {
+            names.put(product.getId(), product.getName());
+        }
+        popularity.putAll(sold);
+        publishSnapshot();
+        log.info("Suggestion index built with {} products", names.size());
+    }
+
+    public synchronized Map<Long, Long> getPopularity() {
+        return new HashMap<>(popularity);
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        return snapshot.suggest(key, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            names.remove(event.getProductId());
+            popularity.remove(event.getProductId());
+        } else {
+            names.put(event.getProductId(), event.getProduct().getName());
+        }
+        changes++;
+        publishSnapshot();
+    }
+
+    //AL BORRAR UNA CATEGORIA SE BORRAN SUS PRODUCTOS: SE RECARGA TODO
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (event.isDeleted()) {
+            rebuild();
+        }
+    }
+
+    //LAS VENTAS SOLO CAMBIAN EL ORDEN: SE ACUMULAN Y LA FOTO SE REHACE COMO MUCHO CADA POCO TIEMPO
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderPlaced(OrderPlacedEvent event) {
+        event.getQuantitiesByProduct().forEach((productId, quantity) -> popularity.merge(productId, (long) quantity, Long::sum));
+        popularityChanged.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${search.suggest.popularity-refresh:PT30S}")
+    public synchronized void refreshPopularity() {
+        if (popularityChanged.getAndSet(false)) {
+            publishSnapshot();
+        }
+    }
+
+    private Map<Long, Long> soldQuantities() {
+        Map<Long, Long> sold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantitiesByProduct()) {
+            sold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return sold;
+    }
+
+    private void publishSnapshot() {
+        snapshot = Snapshot.build(names, popularity);
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", TextAnalyzer.tokenize(text));
+    }
+
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = build(Map.of(), Map.of());
+
+        //UNA ENTRADA POR CADA PALABRA DEL NOMBRE HASTA EL FINAL ("camisa de algodon", "de algodon", "algodon"),
+        //ASI "algo" TAMBIEN ENCUENTRA LA CAMISA. ORDENADAS PARA BUSCAR EL RANGO DEL PREFIJO CON BUSQUEDA BINARIA
+        private final String[] keys;
+        private final int[] products;
+        private final String[] productNames;
+        private final Map<String, List<String>> memo;
+
+        private Snapshot(String[] keys, int[] products, String[] productNames) {
+            this.keys = keys;
+            this.products = products;
+            this.productNames = productNames;
+            this.memo = new HashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                for (int length = 1; length <= Math.min(MEMO_PREFIX_LENGTH, key.length()); length++) {
+                    String prefix = key.substring(0, length);
+                    if (prefix.endsWith(" ") || memo.containsKey(prefix)) {
+                        continue;
+                    }
+                    memo.put(prefix, topProducts(prefix, MAX_SUGGESTIONS));
+                }
+            }
+        }
+
+        static Snapshot build(Map<Long, String> names, Map<Long, Long> popularity) {
+            //LOS PRODUCTOS SE NUMERAN DEL MAS VENDIDO AL MENOS: ASI COMPARAR POPULARIDAD ES COMPARAR ENTEROS
+            List<Long> ids = new ArrayList<>(names.keySet());
+            ids.sort(Comparator.<Long>comparingLong(id -> popularity.getOrDefault(id, 0L)).reversed()
+                    .thenComparing(Comparator.reverseOrder()));
+            String[] productNames = new String[ids.size()];
+            List<String> keyList = new ArrayList<>();
+            List<Integer> keyProducts = new ArrayList<>();
+            for (int rank = 0; rank < ids.size(); rank++) {
+                Long id = ids.get(rank);
+                productNames[rank] = names.get(id);
+                List<String> words = TextAnalyzer.tokenize(productNames[rank]);
+                for (int start = 0; start < words.size(); start++) {
+                    keyList.add(String.join(" ", words.subList(start, words.size())));
+                    keyProducts.add(rank);
+                }
+            }
+            Integer[] order = new Integer[keyList.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keyList::get));
+            String[] keys = new String[order.length];
+            int[] products = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = keyList.get(order[i]);
+                products[i] = keyProducts.get(order[i]);
+            }
+            return new Snapshot(keys, products, productNames);
+        }
+
+        List<String> suggest(String prefix, int limit) {
+            List<String> memoized = memo.get(prefix);
+            if (memoized != null) {
+                return memoized.subList(0, Math.min(limit, memoized.size()));
+            }
+            if (prefix.length() <= MEMO_PREFIX_LENGTH) {
+                return List.of();
+            }
+            return topProducts(prefix, limit);
+        }
+
+        //RANGO [from, to) DE CLAVES QUE EMPIEZAN POR EL PREFIJO Y LOS limit PRODUCTOS DE MEJOR RANKING EN EL
+        private List<String> topProducts(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            BitSet ranks = new BitSet(productNames.length);
+            for (int i = from; i < to; i++) {
+                ranks.set(products[i]);
+            }
+            //DOS PRODUCTOS CON EL MISMO NOMBRE SE SUGIEREN UNA SOLA VEZ
+            Set<String> result = new LinkedHashSet<>();
+            for (int rank = ranks.nextSetBit(0); rank >= 0 && result.size() < limit; rank = ranks.nextSetBit(rank + 1)) {
+                result.add(productNames[rank]);
+            }
+            return List.copyOf(result);
+        }
+
+        private int lowerBound(String value) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(value) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bazarPepe.eccomerce.search;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+//PRODUCTOS ENCONTRADOS Y, PARA CADA FACETA, CUANTOS HAY EN CADA VALOR
+@Getter
+@AllArgsConstructor
+public class SearchResult {
+
+    private final List<ProductSummary> products;
+
+    //PRODUCTOS QUE CASAN CON EL TEXTO ANTES DE APLICAR LOS FILTROS
+    private final int totalMatches;
+
+    //CATEGORIA -> PRODUCTOS, DE MAS A MENOS
+    private final Map<Long, Integer> categoryCounts;
+
+    //TRAMO DE PRECIO -> PRODUCTOS, EN ORDEN DE PRECIO
+    private final Map<PriceRange, Integer> priceRangeCounts;
+
+    static SearchResult empty() {
+        return new SearchResult(List.of(), 0, Map.of(), Map.of());
+    }
+}
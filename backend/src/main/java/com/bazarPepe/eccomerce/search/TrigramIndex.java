@@ -0,0 +1,187 @@
+package com.bazarPepe.eccomerce.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//INDICE DE TRIGRAMAS SOBRE LOS TERMINOS DEL DICCIONARIO PARA ENCONTRAR PALABRAS PARECIDAS A UNA MAL ESCRITA.
+//TODO EN ARRAYS DE int: CADA TRIGRAMA ES UN NUMERO (ALFABETO DE 38 SIMBOLOS) Y SUS LISTAS SON int[] SIN OBJETOS.
+//NO ES THREAD-SAFE PARA ESCRIBIR: LO PROTEGE EL LOCK DE ProductSearchIndex
+final class TrigramIndex {
+
+    private static final int ALPHABET = 38;
+    private static final int TRIGRAM_COUNT = ALPHABET * ALPHABET * ALPHABET;
+    private static final char PADDING = '$';
+
+    private final int[][] postings = new int[TRIGRAM_COUNT][];
+    private final int[] postingSizes = new int[TRIGRAM_COUNT];
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private String[] terms = new String[256];
+    private int[] termTrigramCounts = new int[256];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+
+    //CONTADORES POR TERMINO REUTILIZADOS ENTRE CONSULTAS DEL MISMO HILO
+    private final ThreadLocal<int[]> counters = ThreadLocal.withInitial(() -> new int[0]);
+
+    int size() {
+        return termIds.size();
+    }
+
+    void add(String term) {
+        if (termIds.containsKey(term)) {
+            return;
+        }
+        int id = allocateId();
+        terms[id] = term;
+        int[] trigrams = trigrams(term);
+        termTrigramCounts[id] = trigrams.length;
+        termIds.put(term, id);
+        for (int trigram : trigrams) {
+            int[] list = postings[trigram];
+            if (list == null) {
+                list = postings[trigram] = new int[4];
+            } else if (postingSizes[trigram] == list.length) {
+                list = postings[trigram] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[postingSizes[trigram]++] = id;
+        }
+    }
+
+    void remove(String term) {
+        Integer id = termIds.remove(term);
+        if (id == null) {
+            return;
+        }
+        for (int trigram : trigrams(term)) {
+            int[] list = postings[trigram];
+            int size = postingSizes[trigram];
+            for (int i = 0; i < size; i++) {
+                if (list[i] == id) {
+                    //EL ORDEN NO IMPORTA: SE PISA CON EL ULTIMO
+                    list[i] = list[--size];
+                    break;
+                }
+            }
+            postingSizes[trigram] = size;
+            if (size == 0) {
+                postings[trigram] = null;
+            }
+        }
+        terms[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    //TERMINOS QUE COMPARTEN MAS TRIGRAMAS CON LA PALABRA (COEFICIENTE DE DICE), LOS MEJORES PRIMERO
+    List<String> candidates(String word, double minSimilarity, int limit) {
+        int[] trigrams = trigrams(word);
+        int[] counts = counters.get();
+        if (counts.length < nextId) {
+            counts = new int[terms.length];
+            counters.set(counts);
+        }
+        int[] touched = new int[32];
+        int touchedCount = 0;
+        for (int trigram : trigrams) {
+            int[] list = postings[trigram];
+            int size = postingSizes[trigram];
+            for (int i = 0; i < size; i++) {
+                int id = list[i];
+                if (counts[id]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    }
+                    touched[touchedCount++] = id;
+                }
+            }
+        }
+        //SE GUARDA SIMILITUD E ID EN UN long PARA ORDENAR SIN CREAR OBJETOS
+        long[] scored = new long[touchedCount];
+        int scoredCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            double similarity = 2.0 * counts[id] / (trigrams.length + termTrigramCounts[id]);
+            counts[id] = 0;
+            if (similarity >= minSimilarity) {
+                scored[scoredCount++] = ((long) (similarity * 1_000_000) << 32) | id;
+            }
+        }
+        Arrays.sort(scored, 0, scoredCount);
+        List<String> result = new ArrayList<>(Math.min(limit, scoredCount));
+        for (int i = scoredCount - 1; i >= 0 && result.size() < limit; i--) {
+            result.add(terms[(int) scored[i]]);
+        }
+        return result;
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if (nextId == terms.length) {
+            terms = Arrays.copyOf(terms, terms.length * 2);
+            termTrigramCounts = Arrays.copyOf(termTrigramCounts, termTrigramCounts.length * 2);
+        }
+        return nextId++;
+    }
+
+    //"$$camisa$": LOS BORDES TAMBIEN CUENTAN, ASI EL PRINCIPIO DE LA PALABRA PESA MAS
+    static int[] trigrams(String term) {
+        String padded = "" + PADDING + PADDING + term + PADDING;
+        int[] trigrams = new int[padded.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (symbol(padded.charAt(i)) * ALPHABET + symbol(padded.charAt(i + 1))) * ALPHABET + symbol(padded.charAt(i + 2));
+        }
+        //SIN REPETIDOS, CADA TRIGRAMA SE CUENTA UNA VEZ POR TERMINO
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return c == PADDING ? 0 : ALPHABET - 1;
+    }
+
+    //DISTANCIA DE DAMERAU-LEVENSHTEIN (TRANSPOSICIONES ADYACENTES CUENTAN COMO UN SOLO ERROR)
+    static int editDistance(String a, String b) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previousPrevious[j - 2] + 1);
+                }
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,34 +1,57 @@
 package com.bazarPepe.eccomerce.service.implementation;
 
+import com.bazarPepe.eccomerce.cache.CategorySnapshot;
+import com.bazarPepe.eccomerce.cache.SingleFlight;
 import com.bazarPepe.eccomerce.dto.CategoryDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.entity.Category;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
 import com.bazarPepe.eccomerce.repository.CategoryRepository;
 import com.bazarPepe.eccomerce.service.interfaces.CategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CategoryServiceImplementation implements CategoryService {
 
+    //CON LA BASE DE DATOS CAIDA, CADA CUANTO SE VUELVE A INTENTAR CARGAR UNA FOTO DESACTUALIZADA
+    private static final long STALE_RETRY_MILLIS = 5_000;
+
     //INYECCION DE DEPENDENCIAS
     private final CategoryRepository categoryRepository;
     private final EntityDtoMapper entityDtoMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
+    //LAS CATEGORIAS CASI NUNCA CAMBIAN: LAS LECTURAS SALEN DE UNA FOTO INMUTABLE SIN LOCKS
+    private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    //ULTIMA VERSION QUE NO SE PUDO CARGAR: UNA FOTO MAS ANTIGUA ESTA DESACTUALIZADA
+    private final AtomicLong failedVersion = new AtomicLong();
+    private volatile long retryStaleAt;
+    //LECTURAS CONCURRENTES QUE NECESITAN IR A LA BASE DE DATOS COMPARTEN UNA SOLA CONSULTA
+    private final SingleFlight<String, CategorySnapshot> snapshotLoads = new SingleFlight<>();
+    private final SingleFlight<Long, Optional<Category>> categoryLoads = new SingleFlight<>();
 
     @Override
     public Response createCategory(CategoryDto categoryRequest) {
         Category category=new Category();
         category.setName(categoryRequest.getName());
         categoryRepository.save(category);
+        rebuildSnapshot();
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId(), false));
         return Response.builder()
                 .status(200)
                 .message("Category created successfully.")
@@ -40,6 +63,8 @@ public class CategoryServiceImplementation implements CategoryService {
         Category category=categoryRepository.findById(categoryId).orElseThrow(()->new NotFoundException("No se ha encontrado esa categoria"));
         category.setName(categoryRequest.getName());
         categoryRepository.save(category);
+        rebuildSnapshot();
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, false));
         return Response.builder()
                 .status(200)
                 .message("Successfully updated.")
@@ -48,20 +73,86 @@ public class CategoryServiceImplementation implements CategoryService {
 
     @Override
     public Response getAllCategories() {
-        List<Category>categories=categoryRepository.findAll();
-        List<CategoryDto>categoryDtosList=categories.stream()
-                .map(entityDtoMapper::mapCategoryToDtoBasic)
-                .collect(Collectors.toList());
         return Response.builder()
                 .status(200)
-                .categoryList(categoryDtosList)
+                .categoryList(getSnapshot().categories())
                 .build();
     }
 
+    private CategorySnapshot getSnapshot() {
+        CategorySnapshot current = snapshot.get();
+        //SOLO LA PRIMERA LECTURA (O TRAS UN FALLO AL RECONSTRUIR) VA A LA BASE DE DATOS
+        if (current != null && (current.version() > failedVersion.get() || System.currentTimeMillis() < retryStaleAt)) {
+            return current;
+        }
+        try {
+            return snapshotLoads.load("categories", key -> refreshSnapshot());
+        } catch (DataAccessException | TransactionException e) {
+            //MEJOR UNA LISTA DE CATEGORIAS ALGO VIEJA QUE UN ERROR MIENTRAS MYSQL NO RESPONDE
+            if (current == null) {
+                throw e;
+            }
+            retryStaleAt = System.currentTimeMillis() + STALE_RETRY_MILLIS;
+            log.warn("Serving a stale category snapshot: {}", e.getMessage());
+            return current;
+        }
+    }
+
+    //AL ARRANCAR: LA FOTO GUARDADA EN DISCO SE SIRVE HASTA QUE LLEGUE LA DE LA BASE DE DATOS
+    public void preloadSnapshot(List<CategoryDto> categories) {
+        snapshot.compareAndSet(null, new CategorySnapshot(versions.incrementAndGet(), categories));
+    }
+
+    //LA FOTO QUE SE ESTA SIRVIENDO, SIN IR A LA BASE DE DATOS SI AUN NO HAY NINGUNA
+    public Optional<CategorySnapshot> currentSnapshot() {
+        return Optional.ofNullable(snapshot.get());
+    }
+
+    public void rebuildSnapshot() {
+        try {
+            refreshSnapshot();
+        } catch (RuntimeException e) {
+            //EL CAMBIO YA ESTA GUARDADO: LA SIGUIENTE LECTURA VOLVERA A CARGAR LA FOTO
+            log.warn("Could not rebuild the category snapshot: {}", e.getMessage());
+        }
+    }
+
+    //SE RECONSTRUYE AL CREAR, RENOMBRAR O BORRAR. LA VERSION SE TOMA ANTES DE LEER, ASI UNA RECONSTRUCCION
+    //MAS ANTIGUA QUE TERMINE TARDE NUNCA PISA A UNA MAS NUEVA
+    private CategorySnapshot refreshSnapshot() {
+        long version = versions.incrementAndGet();
+        try {
+            List<CategoryDto> categories = categoryRepository.findAll().stream()
+                    .map(entityDtoMapper::mapCategoryToDtoBasic)
+                    .toList();
+            CategorySnapshot rebuilt = new CategorySnapshot(version, categories);
+            return snapshot.accumulateAndGet(rebuilt, (current, next) ->
+                    current == null || next.version() > current.version() ? next : current);
+        } catch (RuntimeException e) {
+            //LA FOTO ANTERIOR QUEDA MARCADA COMO DESACTUALIZADA: SOLO SE SIRVE SI LA BASE DE DATOS SIGUE FALLANDO
+            failedVersion.accumulateAndGet(version, Math::max);
+            throw e;
+        }
+    }
+
     @Override
     public Response getCategoryById(Long categoryId) {
-        Category category=categoryRepository.findById(categoryId).orElseThrow(()->new NotFoundException("No se ha encontrado la categoria"));
-        CategoryDto categoryDto=entityDtoMapper.mapCategoryToDtoBasic(category);
+        CategoryDto categoryDto;
+        try {
+            Category category=categoryLoads.load(categoryId,categoryRepository::findById).orElseThrow(()->new NotFoundException("No se ha encontrado la categoria"));
+            categoryDto=entityDtoMapper.mapCategoryToDtoBasic(category);
+        } catch (DataAccessException | TransactionException e) {
+            //SIN BASE DE DATOS SE BUSCA EN LA ULTIMA FOTO CARGADA
+            CategorySnapshot current = snapshot.get();
+            categoryDto = current == null ? null : current.categories().stream()
+                    .filter(category -> categoryId.equals(category.getId()))
+                    .findFirst()
+                    .orElse(null);
+            if (categoryDto == null) {
+                throw e;
+            }
+            log.warn("Serving stale category {}: {}", categoryId, e.getMessage());
+        }
         return Response.builder()
                 .status(200)
                 .category(categoryDto)
@@ -72,6 +163,8 @@ public class CategoryServiceImplementation implements CategoryService {
     public Response deleteCategory(Long categoryId) {
         Category category=categoryRepository.findById(categoryId).orElseThrow(()->new NotFoundException("No se ha encontrado esa categoria"));
         categoryRepository.delete(category);
+        rebuildSnapshot();
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, true));
         return Response.builder()
                 .status(200)
                 .message("The category has been successfully deleted.")
@@ -1,6 +1,7 @@
 package com.bazarPepe.eccomerce.service.implementation;
 
 import com.bazarPepe.eccomerce.dto.OrderItemDto;
+import com.bazarPepe.eccomerce.dto.OrderItemRequest;
 import com.bazarPepe.eccomerce.dto.OrderRequest;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.entity.Order;
@@ -8,8 +9,13 @@ import com.bazarPepe.eccomerce.entity.OrderItem;
 import com.bazarPepe.eccomerce.entity.Product;
 import com.bazarPepe.eccomerce.entity.User;
 import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.event.OrderPlacedEvent;
+import com.bazarPepe.eccomerce.event.StockReservedEvent;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OutOfStockException;
+import com.bazarPepe.eccomerce.inventory.StockLedger;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
+import com.bazarPepe.eccomerce.order.QueuedOrder;
 import com.bazarPepe.eccomerce.repository.OrderItemRepository;
 import com.bazarPepe.eccomerce.repository.OrderRepository;
 import com.bazarPepe.eccomerce.repository.ProductRepository;
@@ -18,14 +24,17 @@ import com.bazarPepe.eccomerce.service.interfaces.UserService;
 import com.bazarPepe.eccomerce.specification.OrderItemSpecification;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +48,8 @@ public class OrderItemServiceImplementation implements OrderItemService {
     private final ProductRepository productRepository;
     private final UserService userService;
     private final EntityDtoMapper entityDtoMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
 
 
     @Override
@@ -62,13 +73,69 @@ public class OrderItemServiceImplementation implements OrderItemService {
                 .build();
     }
 
+    //UNA SOLA TRANSACCION: LOS PRODUCTOS SE LEEN CON UNA CONSULTA Y EL PEDIDO CON SUS LINEAS SE INSERTA EN LOTES JDBC
     @Override
+    @Transactional
     public Response placeOrder(OrderRequest orderRequest) {
         User user=userService.getLoginUser();
+        Map<Long,Product>products=loadProducts(List.of(orderRequest));
+        if(!hasAllProducts(orderRequest,products)){
+            throw new NotFoundException("The product was not found.");
+        }
+        reserveStock(orderRequest);
+        orderRepository.save(buildOrder(user,orderRequest,products));
+        publishOrderPlaced(orderRequest);
+
+        return Response.builder()
+                .status(200)
+                .message("The order has been completed.")
+                .build();
+    }
+
+    //LOTE DE LA COLA ASINCRONA: UNA TRANSACCION Y UNA LECTURA DE PRODUCTOS PARA TODOS LOS PEDIDOS.
+    //LOS PEDIDOS CON ALGUN PRODUCTO QUE NO EXISTE O SIN STOCK NO SE GUARDAN Y NO APARECEN EN EL RESULTADO
+    @Override
+    @Transactional
+    public Map<String, Long> placeQueuedOrders(List<QueuedOrder> queuedOrders) {
+        Map<Long,Product>products=loadProducts(queuedOrders.stream().map(QueuedOrder::request).toList());
+        Map<String,Order>orders=new LinkedHashMap<>();
+        for(QueuedOrder queuedOrder:queuedOrders){
+            if(!hasAllProducts(queuedOrder.request(),products)){
+                continue;
+            }
+            try{
+                reserveStock(queuedOrder.request());
+            }catch(OutOfStockException e){
+                continue;
+            }
+            orders.put(queuedOrder.reference(),buildOrder(queuedOrder.user(),queuedOrder.request(),products));
+        }
+        orderRepository.saveAll(orders.values());
+        queuedOrders.stream()
+                .filter(queuedOrder -> orders.containsKey(queuedOrder.reference()))
+                .forEach(queuedOrder -> publishOrderPlaced(queuedOrder.request()));
+        Map<String,Long>placed=new HashMap<>();
+        orders.forEach((reference,order)->placed.put(reference,order.getId()));
+        return placed;
+    }
+
+    private Map<Long,Product> loadProducts(List<OrderRequest> orderRequests) {
+        Set<Long>productIds=orderRequests.stream()
+                .flatMap(orderRequest -> orderRequest.getItems().stream())
+                .map(OrderItemRequest::getProductId)
+                .collect(Collectors.toSet());
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private static boolean hasAllProducts(OrderRequest orderRequest, Map<Long,Product> products) {
+        return orderRequest.getItems().stream().allMatch(item -> products.containsKey(item.getProductId()));
+    }
+
+    private Order buildOrder(User user, OrderRequest orderRequest, Map<Long,Product> products) {
         //MAP ORDER REQUEST ITEM TO ORDER ENTITY
         List<OrderItem>orderItems=orderRequest.getItems().stream().map(orderItemRequest -> {
-            Product product=productRepository.findById(orderItemRequest.getProductId())
-                    .orElseThrow(()->new NotFoundException("The product was not found."));
+            Product product=products.get(orderItemRequest.getProductId());
             OrderItem orderItem=new OrderItem();
             orderItem.setProduct(product);
             orderItem.setQuantity(orderItemRequest.getQuantity());
@@ -90,13 +157,24 @@ public class OrderItemServiceImplementation implements OrderItemService {
 
         //ESTABLECER LA REFERENCIA DE PEDIDO EN CADA PRODUCTO DEL PEDIDO
         orderItems.forEach(orderItem -> orderItem.setOrder(order));
+        return order;
+    }
+
+    //TODAS LAS LINEAS O NINGUNA, EN LA TRANSACCION DEL PEDIDO; EL EVENTO CONFIRMA O DEVUELVE LAS UNIDADES DE LA VISTA EN MEMORIA
+    private void reserveStock(OrderRequest orderRequest) {
+        Map<Long,Integer>reserved=stockLedger.reserve(quantitiesByProduct(orderRequest));
+        if(!reserved.isEmpty()){
+            eventPublisher.publishEvent(new StockReservedEvent(reserved));
+        }
+    }
 
-        orderRepository.save(order);
+    private void publishOrderPlaced(OrderRequest orderRequest) {
+        eventPublisher.publishEvent(new OrderPlacedEvent(quantitiesByProduct(orderRequest)));
+    }
 
-        return Response.builder()
-                .status(200)
-                .message("The order has been completed.")
-                .build();
+    private static Map<Long,Integer> quantitiesByProduct(OrderRequest orderRequest) {
+        return orderRequest.getItems().stream()
+                .collect(Collectors.toMap(OrderItemRequest::getProductId, OrderItemRequest::getQuantity, Integer::sum));
     }
 
     @Override
@@ -1,23 +1,41 @@
 package com.bazarPepe.eccomerce.service.implementation;
 
+import com.bazarPepe.eccomerce.cache.CatalogCache;
+import com.bazarPepe.eccomerce.cache.HotProductTier;
+import com.bazarPepe.eccomerce.cache.SingleFlight;
+import com.bazarPepe.eccomerce.dto.FacetCountDto;
 import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.entity.Category;
 import com.bazarPepe.eccomerce.entity.Product;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
 import com.bazarPepe.eccomerce.exception.InvalidCredentialsException;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.image.ImageIngestor;
+import com.bazarPepe.eccomerce.image.ThumbnailGenerator;
+import com.bazarPepe.eccomerce.inventory.StockLedger;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
 import com.bazarPepe.eccomerce.repository.CategoryRepository;
 import com.bazarPepe.eccomerce.repository.ProductRepository;
+import com.bazarPepe.eccomerce.search.PriceRange;
+import com.bazarPepe.eccomerce.search.ProductSearchIndex;
+import com.bazarPepe.eccomerce.search.ProductSuggester;
+import com.bazarPepe.eccomerce.search.SearchResult;
 import com.bazarPepe.eccomerce.service.interfaces.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,9 +43,26 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProductServiceImplementation implements ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_SUGGESTIONS = 8;
+    //EN UNA BUSQUEDA SOLO CUENTAN COMO VISTOS LOS PRIMEROS RESULTADOS
+    private static final int SEARCH_VIEWS = 10;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ImageIngestor imageIngestor;
+    private final ThumbnailGenerator thumbnailGenerator;
     private final EntityDtoMapper entityDtoMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final CatalogCache catalogCache;
+    private final HotProductTier hotProductTier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
+
+    //MIENTRAS ARRANCA EL INDICE, LA MISMA BUSQUEDA REPETIDA A LA VEZ HACE UN SOLO LIKE EN MYSQL
+    private final SingleFlight<String, List<ProductSummary>> fallbackSearches = new SingleFlight<>();
 
     @Override
     public Response createProduct(Long categoryId, MultipartFile image, String name, String description, BigDecimal price) {
@@ -44,22 +79,32 @@ public class ProductServiceImplementation implements ProductService {
             throw new InvalidCredentialsException("The provided file is not a valid image.");
         }
 
-        try {
-            Product product = new Product();
-            product.setCategory(category);
-            product.setPrice(price);
-            product.setName(name);
-            product.setDescription(description);
-            product.setImage(image.getBytes());
-            productRepository.save(product);
+        //LA IMAGEN VA AL ImageStore EN STREAMING, EN MYSQL SOLO QUEDA SU HASH
+        ProductImageDto storedImage = imageIngestor.ingest(image);
 
-            return Response.builder()
-                    .status(200)
-                    .message("Product created successfully.")
-                    .build();
-        } catch (Exception e) {
-            throw new RuntimeException("Error processing the image ", e);
+        Product product = new Product();
+        product.setCategory(category);
+        product.setPrice(price);
+        product.setName(name);
+        product.setDescription(description);
+        product.setImageHash(storedImage.getHash());
+        product.setImageContentType(storedImage.getContentType());
+        Product saved;
+        try {
+            saved = productRepository.save(product);
+        } catch (RuntimeException e) {
+            //EL PRODUCTO NO SE HA GUARDADO: LA IMAGEN RECIEN SUBIDA NO SE QUEDA EN EL ALMACEN SIN DUEÑO
+            releaseImage(storedImage.getHash());
+            throw e;
         }
+        eventPublisher.publishEvent(ProductChangedEvent.saved(entityDtoMapper.mapProductToSummary(saved)));
+        //LAS MINIATURAS SE GENERAN EN SEGUNDO PLANO, MIENTRAS TANTO SE SIRVE EL ORIGINAL
+        thumbnailGenerator.submit(storedImage.getHash(), storedImage.getContentType());
+
+        return Response.builder()
+                .status(200)
+                .message("Product created successfully.")
+                .build();
     }
 
     @Override
@@ -73,18 +118,13 @@ public class ProductServiceImplementation implements ProductService {
                     .orElseThrow(() -> new NotFoundException("That category does not exist."));
         }
 
-        byte[] productImage = null;
+        ProductImageDto storedImage = null;
         if (image != null && !image.isEmpty()) {
             String contentType = image.getContentType();
             if (contentType == null || !contentType.startsWith("image/")) {
                 throw new InvalidCredentialsException("The provided file is not a valid image.");
             }
-
-            try {
-                productImage = image.getBytes();
-            } catch (Exception e) {
-                throw new RuntimeException("Error processing the image ", e);
-            }
+            storedImage = imageIngestor.ingest(image);
         }
 
         if (category != null) {
@@ -99,11 +139,29 @@ public class ProductServiceImplementation implements ProductService {
         if (description != null && !description.isEmpty()) {
             product.setDescription(description);
         }
-        if (productImage != null) {
-            product.setImage(productImage);
+        String replacedHash = product.getImageHash();
+        if (storedImage != null) {
+            product.setImageHash(storedImage.getHash());
+            product.setImageContentType(storedImage.getContentType());
         }
 
-        productRepository.save(product);
+        //LA VERSION NUEVA ESTA EN LA ENTIDAD QUE DEVUELVE save, NO EN LA QUE SE LE PASA
+        Product saved;
+        try {
+            saved = productRepository.save(product);
+        } catch (RuntimeException e) {
+            if (storedImage != null && !storedImage.getHash().equals(replacedHash)) {
+                releaseImage(storedImage.getHash());
+            }
+            throw e;
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.saved(entityDtoMapper.mapProductToSummary(saved)));
+        if (storedImage != null) {
+            thumbnailGenerator.submit(storedImage.getHash(), storedImage.getContentType());
+            if (!storedImage.getHash().equals(replacedHash)) {
+                releaseImage(replacedHash);
+            }
+        }
 
         return Response.builder()
                 .status(200)
@@ -116,17 +174,42 @@ public class ProductServiceImplementation implements ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("The product was not found."));
         productRepository.delete(product);
+        stockLedger.remove(productId);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+        releaseImage(product.getImageHash());
         return Response.builder()
                 .status(200)
                 .message("The product has been deleted successfully.")
                 .build();
     }
 
+    //LAS IMAGENES SE DEDUPLICAN POR HASH: SOLO SE BORRA SI YA NINGUN PRODUCTO LA USA
+    private void releaseImage(String hash) {
+        if (hash == null || productRepository.existsByImageHash(hash)) {
+            return;
+        }
+        thumbnailGenerator.forget(hash);
+        imageIngestor.discard(hash);
+    }
+
+    @Override
+    public Response updateStock(Long productId, long quantity) {
+        if (!productRepository.existsById(productId)) {
+            throw new NotFoundException("The product was not found.");
+        }
+        stockLedger.setStock(productId, quantity);
+        return Response.builder()
+                .status(200)
+                .message("The stock has been updated successfully.")
+                .build();
+    }
+
     @Override
     public Response getProductById(Long productId) {
-        Product product = productRepository.findById(productId)
+        ProductDto productDto = catalogCache.getProduct(productId)
                 .orElseThrow(() -> new NotFoundException("The product was not found."));
-        ProductDto productDto = entityDtoMapper.mapProductToDtoBasic(product);
+        //SOLO CUENTAN LAS VISITAS A PRODUCTOS QUE EXISTEN: LOS IDS INVENTADOS NO OCUPAN SITIO EN EL CONTADOR
+        hotProductTier.record(productId);
         return Response.builder()
                 .status(200)
                 .product(productDto)
@@ -135,25 +218,45 @@ public class ProductServiceImplementation implements ProductService {
 
     @Override
     public Response getAllProduct() {
-        List<Product> products = productRepository.findAll(Sort.by(Sort.Direction.DESC, "id"));
+        //SE LEE DE LA CACHE DEL CATALOGO; SI NO ESTA, PROYECCION SIN ENTIDADES NI SNAPSHOTS DE DIRTY CHECKING
+        List<ProductDto> productDtoList = catalogCache.getAllProducts();
+        return Response.builder()
+                .status(200)
+                .productList(productDtoList)
+                .build();
+    }
+
+    @Override
+    public Response getProductPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidCredentialsException("The limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        //SE PIDE UNO DE MAS PARA SABER SI HAY SIGUIENTE PAGINA SIN HACER UN COUNT
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<ProductSummary> products = cursor == null || cursor.isBlank()
+                ? productRepository.findFirstSummaries(fetchLimit)
+                : productRepository.findSummariesBefore(decodeCursor(cursor), fetchLimit);
+        boolean hasNext = products.size() > pageSize;
+        if (hasNext) {
+            products = products.subList(0, pageSize);
+        }
         List<ProductDto> productDtoList = products.stream()
-                .map(entityDtoMapper::mapProductToDtoBasic)
+                .map(entityDtoMapper::mapProductSummaryToDto)
                 .collect(Collectors.toList());
         return Response.builder()
                 .status(200)
                 .productList(productDtoList)
+                .nextCursor(hasNext ? encodeCursor(products.get(products.size() - 1).getId()) : null)
                 .build();
     }
 
     @Override
     public Response getProductsByCategory(Long categoryId) {
-        List<Product> productsByCategory = productRepository.findByCategoryId(categoryId);
-        if (productsByCategory == null || productsByCategory.isEmpty()) {
+        List<ProductDto> productDtoList = catalogCache.getProductsByCategory(categoryId);
+        if (productDtoList.isEmpty()) {
             throw new NotFoundException("No products were found for this category.");
         }
-        List<ProductDto> productDtoList = productsByCategory.stream()
-                .map(entityDtoMapper::mapProductToDtoBasic)
-                .collect(Collectors.toList());
 
         return Response.builder()
                 .status(200)
@@ -162,18 +265,114 @@ public class ProductServiceImplementation implements ProductService {
     }
 
     @Override
-    public Response searchProduct(String searchValue) {
-        List<Product> products = productRepository.findByNameContainingOrDescriptionContaining(searchValue, searchValue);
+    public Response searchProduct(String searchValue, Long categoryId, String priceRange) {
+        PriceRange range = null;
+        if (priceRange != null && !priceRange.isBlank()) {
+            range = PriceRange.fromKey(priceRange)
+                    .orElseThrow(() -> new InvalidCredentialsException("Invalid price range."));
+        }
+        if (!productSearchIndex.isReady()) {
+            //SOLO MIENTRAS ARRANCA: LIKE EN MYSQL, FILTRADO EN MEMORIA Y SIN FACETAS
+            PriceRange selectedRange = range;
+            List<ProductSummary> products = fallbackSearches.load(searchValue, productRepository::searchSummaries).stream()
+                    .filter(product -> categoryId == null || categoryId.equals(product.getCategoryId()))
+                    .filter(product -> selectedRange == null || PriceRange.of(product.getPrice()).orElse(null) == selectedRange)
+                    .toList();
+            return buildSearchResponse(products, null, null, null);
+        }
+        //EL INDICE EN MEMORIA RESPONDE SIN TOCAR MYSQL, CON LAS FACETAS EN LA MISMA RESPUESTA
+        SearchResult result = productSearchIndex.search(searchValue, categoryId, range);
+        String message = null;
+        if (result.getTotalMatches() == 0) {
+            //NADA CON LO QUE HA ESCRITO: SE PRUEBA CORRIGIENDO ERRORES DE TECLEO
+            Optional<String> correctedValue = productSearchIndex.correct(searchValue);
+            if (correctedValue.isPresent()) {
+                result = productSearchIndex.search(correctedValue.get(), categoryId, range);
+                message = "Showing results for: " + correctedValue.get();
+            }
+        }
+        List<FacetCountDto> categoryFacets = result.getCategoryCounts().entrySet().stream()
+                .map(entry -> new FacetCountDto(String.valueOf(entry.getKey()), entry.getValue()))
+                .collect(Collectors.toList());
+        List<FacetCountDto> priceFacets = result.getPriceRangeCounts().entrySet().stream()
+                .map(entry -> new FacetCountDto(entry.getKey().getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        return buildSearchResponse(result.getProducts(), message, categoryFacets, priceFacets);
+    }
+
+    private Response buildSearchResponse(List<ProductSummary> products, String message,
+                                         List<FacetCountDto> categoryFacets, List<FacetCountDto> priceFacets) {
         if (products.isEmpty()) {
             throw new NotFoundException("No products were found.");
         }
+        products.stream().limit(SEARCH_VIEWS).forEach(product -> hotProductTier.record(product.getId()));
         List<ProductDto> productDtoList = products.stream()
-                .map(entityDtoMapper::mapProductToDtoBasic)
+                .map(entityDtoMapper::mapProductSummaryToDto)
                 .collect(Collectors.toList());
 
         return Response.builder()
                 .status(200)
+                .message(message)
                 .productList(productDtoList)
+                .categoryFacets(categoryFacets)
+                .priceFacets(priceFacets)
+                .build();
+    }
+
+    @Override
+    public Response suggestProducts(String prefix, Integer limit) {
+        int suggestionCount = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (suggestionCount < 1 || suggestionCount > ProductSuggester.MAX_SUGGESTIONS) {
+            throw new InvalidCredentialsException("The limit must be between 1 and " + ProductSuggester.MAX_SUGGESTIONS + ".");
+        }
+        //SE LLAMA EN CADA TECLA: SOLO MEMORIA, NUNCA MYSQL
+        return Response.builder()
+                .status(200)
+                .suggestions(productSuggester.suggest(prefix, suggestionCount))
                 .build();
     }
+
+    @Override
+    public Response getCacheStats() {
+        return Response.builder()
+                .status(200)
+                .cacheStats(catalogCache.getStats())
+                .build();
+    }
+
+    @Override
+    public Response getHotProducts() {
+        return Response.builder()
+                .status(200)
+                .hotProducts(hotProductTier.getHotProducts())
+                .build();
+    }
+
+    //EL CURSOR ES OPACO PARA EL CLIENTE: SOLO LO DEVUELVE TAL CUAL PARA PEDIR LA SIGUIENTE PAGINA
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("p:" + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith("p:")) {
+                throw new IllegalArgumentException(value);
+            }
+            return Long.parseLong(value.substring(2));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCredentialsException("Invalid cursor.");
+        }
+    }
+
+    @Override
+    public ProductImageDto getProductImage(Long productId) {
+        ProductImageDto image = catalogCache.getProductImage(productId)
+                .orElseThrow(() -> new NotFoundException("The product was not found."));
+        if (image.getHash() == null) {
+            throw new NotFoundException("The product has no image.");
+        }
+        String contentType = image.getContentType() != null ? image.getContentType() : "image/jpeg";
+        return new ProductImageDto(image.getHash(), contentType);
+    }
 }
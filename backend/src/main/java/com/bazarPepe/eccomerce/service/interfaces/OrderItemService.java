@@ -3,14 +3,19 @@ package com.bazarPepe.eccomerce.service.interfaces;
 import com.bazarPepe.eccomerce.dto.OrderRequest;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.order.QueuedOrder;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 public interface OrderItemService {
 
     Response placeOrder(OrderRequest orderRequest);
 
+    Map<String, Long> placeQueuedOrders(List<QueuedOrder> queuedOrders);
+
     Response updateOrderItemStatus(Long orderItemID, String status);
 
     Response filterOrderItems(OrderStatus orderStatus, LocalDateTime startDate, LocalDateTime endDate, Long itemId, Pageable pageable);
@@ -1,5 +1,6 @@
 package com.bazarPepe.eccomerce.service.interfaces;
 
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -13,11 +14,23 @@ public interface ProductService {
 
     Response deleteProduct(Long productId);
 
+    Response updateStock(Long productId, long quantity);
+
     Response getProductById(Long productId);
 
     Response getAllProduct();
 
+    Response getProductPage(String cursor, Integer limit);
+
     Response getProductsByCategory(Long categoryId);
 
-    Response searchProduct(String searchValue);
+    Response searchProduct(String searchValue, Long categoryId, String priceRange);
+
+    Response suggestProducts(String prefix, Integer limit);
+
+    ProductImageDto getProductImage(Long productId);
+
+    Response getCacheStats();
+
+    Response getHotProducts();
 }
@@ -3,7 +3,7 @@ package com.bazarPepe.eccomerce;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "NODE_ID=0")
 class EccomerceApplicationTests {
 
 	@Test
@@ -0,0 +1,319 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CacheStatsDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.entity.Product;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CatalogCacheTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private ProductRepository productRepository;
+    private HotProductTier hotProductTier;
+    private CatalogCache catalogCache;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        hotProductTier = new HotProductTier(2, 10, 1024);
+        catalogCache = newCache(DataSize.ofMegabytes(1));
+    }
+
+    private CatalogCache newCache(DataSize maxWeight) {
+        return newCache(maxWeight, Duration.ofHours(1));
+    }
+
+    private CatalogCache newCache(DataSize maxWeight, Duration refreshAfter) {
+        return new CatalogCache(productRepository, new EntityDtoMapper(), hotProductTier, maxWeight, maxWeight, 100,
+                Duration.ofHours(1), refreshAfter, 1);
+    }
+
+    @Test
+    void testGetProductLoadsOnce() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Camisa");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        assertEquals("Camisa", catalogCache.getProduct(1L).orElseThrow().getName());
+        assertEquals("Camisa", catalogCache.getProduct(1L).orElseThrow().getName());
+
+        verify(productRepository, times(1)).findById(1L);
+        CacheStatsDto stats = catalogCache.getStats().get(0);
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    void testChangeDuringLoadIsNotCached() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Precio viejo");
+        // El producto cambia mientras se estaba leyendo de la base de datos
+        when(productRepository.findById(1L)).thenAnswer(invocation -> {
+            catalogCache.onProductChanged(ProductChangedEvent.deleted(1L));
+            return Optional.of(product);
+        }).thenReturn(Optional.empty());
+
+        assertTrue(catalogCache.getProduct(1L).isPresent());
+        assertTrue(catalogCache.getProduct(1L).isEmpty());
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testMissingProductIsNotCached() {
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(catalogCache.getProduct(1L).isEmpty());
+        assertTrue(catalogCache.getProduct(1L).isEmpty());
+
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testListsFillProductEntries() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(2L, 1L), summary(1L, 1L)));
+
+        assertEquals(List.of(2L, 1L), ids(catalogCache.getAllProducts()));
+        assertEquals(List.of(2L, 1L), ids(catalogCache.getAllProducts()));
+        // El detalle de un producto listado ya no va a la base de datos
+        assertEquals(2L, catalogCache.getProduct(2L).orElseThrow().getId());
+
+        verify(productRepository, times(1)).findAllSummaries();
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testUpdateInvalidatesProductAndOnlyAffectedLists() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(2L, 1L), summary(1L, 1L)));
+        when(productRepository.findSummariesByCategoryId(1L)).thenReturn(List.of(summary(1L, 1L), summary(2L, 1L)));
+        when(productRepository.findSummariesByCategoryId(2L)).thenReturn(List.of());
+        when(productRepository.findSummariesByIdIn(List.of(1L))).thenReturn(List.of(summary(1L, 1L)));
+        catalogCache.getAllProducts();
+        catalogCache.getProductsByCategory(1L);
+        catalogCache.getProductsByCategory(2L);
+
+        // Cambia el precio sin cambiar de categoria: los listados siguen valiendo
+        catalogCache.onProductChanged(ProductChangedEvent.saved(summary(1L, 1L)));
+        catalogCache.getAllProducts();
+        catalogCache.getProductsByCategory(1L);
+        catalogCache.getProductsByCategory(2L);
+
+        verify(productRepository, times(1)).findAllSummaries();
+        verify(productRepository, times(1)).findSummariesByCategoryId(1L);
+        verify(productRepository, times(1)).findSummariesByCategoryId(2L);
+        // Solo se recarga el producto invalidado, y una sola vez
+        verify(productRepository, times(1)).findSummariesByIdIn(List.of(1L));
+    }
+
+    @Test
+    void testCategoryMoveInvalidatesOldAndNewCategoryLists() {
+        when(productRepository.findSummariesByCategoryId(1L)).thenReturn(List.of(summary(1L, 1L)));
+        when(productRepository.findSummariesByCategoryId(2L)).thenReturn(List.of());
+        catalogCache.getProductsByCategory(1L);
+        catalogCache.getProductsByCategory(2L);
+
+        when(productRepository.findSummariesByCategoryId(1L)).thenReturn(List.of());
+        when(productRepository.findSummariesByCategoryId(2L)).thenReturn(List.of(summary(1L, 2L)));
+        catalogCache.onProductChanged(ProductChangedEvent.saved(summary(1L, 2L)));
+
+        assertTrue(catalogCache.getProductsByCategory(1L).isEmpty());
+        assertEquals(List.of(1L), ids(catalogCache.getProductsByCategory(2L)));
+    }
+
+    @Test
+    void testCreateAndDeleteInvalidateLists() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(1L, 1L)));
+        catalogCache.getAllProducts();
+
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(2L, 1L), summary(1L, 1L)));
+        catalogCache.onProductChanged(ProductChangedEvent.saved(summary(2L, 1L)));
+        assertEquals(List.of(2L, 1L), ids(catalogCache.getAllProducts()));
+
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(1L, 1L)));
+        catalogCache.onProductChanged(ProductChangedEvent.deleted(2L));
+        assertEquals(List.of(1L), ids(catalogCache.getAllProducts()));
+        verify(productRepository, times(3)).findAllSummaries();
+    }
+
+    @Test
+    void testDeletedCategoryDropsItsProducts() {
+        when(productRepository.findSummariesByCategoryId(1L)).thenReturn(List.of(summary(1L, 1L)));
+        catalogCache.getProductsByCategory(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        catalogCache.onCategoryChanged(new CategoryChangedEvent(1L, true));
+
+        assertTrue(catalogCache.getProduct(1L).isEmpty());
+        verify(productRepository).findById(1L);
+    }
+
+    @Test
+    void testChangesMadeElsewhereEmptyTheCache() {
+        when(productRepository.findSummariesByCategoryId(1L)).thenReturn(List.of(summary(1L, 1L)));
+        catalogCache.getProductsByCategory(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Solo cambiaron las categorias: los productos siguen valiendo
+        catalogCache.onCatalogOutdated(new CatalogOutdatedEvent(false, true));
+        assertEquals(List.of(1L), ids(catalogCache.getProductsByCategory(1L)));
+
+        // No se sabe que productos cambiaron: todo se vuelve a leer
+        catalogCache.onCatalogOutdated(new CatalogOutdatedEvent(true, false));
+        assertTrue(catalogCache.getProduct(1L).isEmpty());
+        catalogCache.getProductsByCategory(1L);
+        verify(productRepository, times(2)).findSummariesByCategoryId(1L);
+    }
+
+    @Test
+    void testHotProductIsPinnedUntilItChanges() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Camisa");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        hotProductTier.record(1L);
+        hotProductTier.record(1L);
+
+        catalogCache.getProduct(1L);
+        assertEquals("Camisa", catalogCache.getProduct(1L).orElseThrow().getName());
+        assertEquals(1, hotProductTier.getPinnedHits());
+
+        // Al cambiar deja de estar fijado y se vuelve a leer
+        catalogCache.onProductChanged(ProductChangedEvent.deleted(1L));
+        assertEquals(0, hotProductTier.getPinnedCount());
+        catalogCache.getProduct(1L);
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void testStaleProductIsServedWhileRefreshing() throws InterruptedException {
+        catalogCache = newCache(DataSize.ofMegabytes(1), Duration.ZERO);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product(1L, "Precio viejo")))
+                .thenReturn(Optional.of(product(1L, "Precio nuevo")));
+
+        catalogCache.getProduct(1L);
+        // La lectura no espera a la base de datos: devuelve la copia vieja y recarga en segundo plano
+        assertEquals("Precio viejo", catalogCache.getProduct(1L).orElseThrow().getName());
+
+        for (int i = 0; i < 100 && !"Precio nuevo".equals(catalogCache.getProduct(1L).orElseThrow().getName()); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals("Precio nuevo", catalogCache.getProduct(1L).orElseThrow().getName());
+    }
+
+    @Test
+    void testStaleListSurvivesDatabaseErrors() throws InterruptedException {
+        catalogCache = newCache(DataSize.ofMegabytes(1), Duration.ZERO);
+        when(productRepository.findAllSummaries()).thenReturn(List.of(summary(1L, 1L)))
+                .thenThrow(new QueryTimeoutException("Query timed out"));
+
+        StaleReads.track();
+        catalogCache.getAllProducts();
+        assertFalse(StaleReads.stop());
+        StaleReads.track();
+        assertEquals(List.of(1L), ids(catalogCache.getAllProducts()));
+        // La copia vieja queda apuntada para que la cache de respuestas no la guarde
+        assertTrue(StaleReads.stop());
+
+        for (int i = 0; i < 100 && refreshStats().getMissCount() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, refreshStats().getMissCount());
+        assertEquals(List.of(1L), ids(catalogCache.getAllProducts()));
+    }
+
+    @Test
+    void testProductImageIsLoadedOnceUntilItChanges() {
+        when(productRepository.findImageById(1L)).thenReturn(Optional.of(new ProductImageDto("abc123", "image/png")));
+
+        assertEquals("abc123", catalogCache.getProductImage(1L).orElseThrow().getHash());
+        assertEquals("abc123", catalogCache.getProductImage(1L).orElseThrow().getHash());
+        verify(productRepository, times(1)).findImageById(1L);
+
+        // Un producto que no existe tampoco vuelve a consultarse
+        when(productRepository.findImageById(2L)).thenReturn(Optional.empty());
+        assertTrue(catalogCache.getProductImage(2L).isEmpty());
+        assertTrue(catalogCache.getProductImage(2L).isEmpty());
+        verify(productRepository, times(1)).findImageById(2L);
+
+        // Al cambiar la imagen se vuelve a leer
+        catalogCache.onProductChanged(ProductChangedEvent.deleted(1L));
+        catalogCache.getProductImage(1L);
+        verify(productRepository, times(2)).findImageById(1L);
+    }
+
+    @Test
+    void testWarmFillsProductsAndLists() {
+        List<ProductSummary> summaries = List.of(summary(3L, 1L), summary(2L, 2L), summary(1L, 1L));
+
+        assertEquals(summaries, catalogCache.warm(() -> summaries));
+
+        // Todo sale de la cache sin consultar a la base de datos
+        assertEquals(List.of(3L, 2L, 1L), ids(catalogCache.getAllProducts()));
+        assertEquals(List.of(1L, 3L), ids(catalogCache.getProductsByCategory(1L)));
+        ProductDto product = catalogCache.getProduct(2L).orElseThrow();
+        assertEquals("Product 2", product.getName());
+        // El detalle que deja el precalentado lleva version y fecha, igual que uno cargado por id
+        assertEquals(5L, product.getVersion());
+        assertEquals(UPDATED_AT, product.getUpdatedAt());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testEvictsBySize() {
+        catalogCache = newCache(DataSize.ofKilobytes(4));
+        List<ProductSummary> summaries = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            summaries.add(summary(id, 1L));
+        }
+        when(productRepository.findAllSummaries()).thenReturn(summaries);
+
+        catalogCache.getAllProducts();
+        catalogCache.cleanUp();
+
+        CacheStatsDto stats = catalogCache.getStats().get(0);
+        assertTrue(stats.getEvictionCount() > 0);
+        assertTrue(stats.getWeight() <= DataSize.ofKilobytes(4).toBytes());
+    }
+
+    private CacheStatsDto refreshStats() {
+        return catalogCache.getStats().stream().filter(stats -> stats.getName().equals("stale-refreshes")).findFirst().orElseThrow();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        return product;
+    }
+
+    private static List<Long> ids(List<ProductDto> products) {
+        return products.stream().map(ProductDto::getId).toList();
+    }
+
+    private static ProductSummary summary(Long id, Long categoryId) {
+        return new ProductSummary(id, "Product " + id, "Description", BigDecimal.TEN, categoryId, "abc123", 5L, UPDATED_AT);
+    }
+}
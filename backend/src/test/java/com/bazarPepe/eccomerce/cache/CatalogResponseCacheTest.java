@@ -0,0 +1,233 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogResponseCacheTest {
+
+    private static final String BODY = "{\"status\":200,\"productList\":[" + "{\"name\":\"Camisa de algodón\"},".repeat(50) + "{}]}";
+
+    private CatalogResponseCache responseCache;
+    private AtomicInteger controllerCalls;
+    private String eTag;
+    private boolean stale;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new CatalogResponseCache(DataSize.ofMegabytes(1), Duration.ofMinutes(5), Duration.ofHours(1));
+        controllerCalls = new AtomicInteger();
+    }
+
+    @Test
+    void testHitSkipsController() throws Exception {
+        MockHttpServletResponse first = get("/product/get-all", null);
+        MockHttpServletResponse second = get("/product/get-all", null);
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(BODY, first.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals(BODY, second.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("application/json", second.getContentType());
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, second.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    void testServesPrecompressedGzip() throws Exception {
+        get("/category/get-all", null);
+
+        MockHttpServletResponse response = get("/category/get-all", "gzip, deflate, br");
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(response.getContentAsByteArray().length < BODY.length());
+        assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    void testHitAnswersConditionalRequests() throws Exception {
+        eTag = "\"p1-0\"";
+        get("/product/get-all", null);
+
+        MockHttpServletRequest request = request("/product/get-all", null);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responseCache.doFilter(request, response, chain());
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentLength());
+        assertEquals(eTag, get("/product/get-all", null).getHeader(HttpHeaders.ETAG));
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    void testOnlyCatalogListingsAreCached() throws Exception {
+        get("/product/get-by-product-id/1", null);
+        get("/product/get-by-product-id/1", null);
+        MockHttpServletRequest withCursor = request("/product/get-all", null);
+        withCursor.setQueryString("limit=20");
+        responseCache.doFilter(withCursor, new MockHttpServletResponse(), chain());
+        responseCache.doFilter(withCursor, new MockHttpServletResponse(), chain());
+
+        assertEquals(4, controllerCalls.get());
+    }
+
+    @Test
+    void testErrorsAreNotCached() throws Exception {
+        get("/product/get-by-category-id/7", null, HttpServletResponse.SC_NOT_FOUND);
+        get("/product/get-by-category-id/7", null, HttpServletResponse.SC_NOT_FOUND);
+
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void testProductChangeDropsOnlyProductListings() throws Exception {
+        get("/product/get-all", null);
+        get("/category/get-all", null);
+
+        responseCache.onProductChanged(ProductChangedEvent.deleted(1L));
+        get("/product/get-all", null);
+        get("/category/get-all", null);
+        assertEquals(3, controllerCalls.get());
+
+        responseCache.onCategoryChanged(new CategoryChangedEvent(1L, false));
+        get("/product/get-all", null);
+        get("/category/get-all", null);
+        assertEquals(5, controllerCalls.get());
+    }
+
+    @Test
+    void testChangesMadeElsewhereDropEverything() throws Exception {
+        get("/product/get-all", null);
+        get("/category/get-all", null);
+
+        responseCache.onCatalogOutdated(new CatalogOutdatedEvent(false, true));
+        get("/product/get-all", null);
+        get("/category/get-all", null);
+
+        assertEquals(4, controllerCalls.get());
+    }
+
+    @Test
+    void testRespectsMaximumSize() throws Exception {
+        responseCache = new CatalogResponseCache(DataSize.ofBytes(BODY.length()), Duration.ofMinutes(5), Duration.ofHours(1));
+
+        get("/product/get-all", null);
+        get("/product/get-all", null);
+
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void testEntriesExpireWithoutEvents() throws Exception {
+        // Un cambio hecho en otra instancia no llega como evento: la entrada caduca sola
+        responseCache = new CatalogResponseCache(DataSize.ofMegabytes(1), Duration.ofMillis(50), Duration.ofHours(1));
+        get("/product/get-all", null);
+        get("/product/get-all", null);
+        assertEquals(1, controllerCalls.get());
+
+        Thread.sleep(100);
+        get("/product/get-all", null);
+
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void testNeverOutlivesTheCatalogCache() throws Exception {
+        responseCache = new CatalogResponseCache(DataSize.ofMegabytes(1), Duration.ofHours(1), Duration.ofMillis(50));
+        get("/product/get-all", null);
+
+        Thread.sleep(100);
+        get("/product/get-all", null);
+
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    void testResponsesBuiltFromStaleDataAreNotCached() throws Exception {
+        stale = true;
+        get("/product/get-all", null);
+        get("/product/get-all", null);
+        assertEquals(2, controllerCalls.get());
+
+        // Con la copia ya recargada vuelve a guardarse
+        stale = false;
+        get("/product/get-all", null);
+        get("/product/get-all", null);
+        assertEquals(3, controllerCalls.get());
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(CatalogResponseCache.acceptsGzip("gzip"));
+        assertTrue(CatalogResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(CatalogResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(CatalogResponseCache.acceptsGzip("identity"));
+        assertFalse(CatalogResponseCache.acceptsGzip(null));
+    }
+
+    private MockHttpServletResponse get(String path, String acceptEncoding) throws Exception {
+        return get(path, acceptEncoding, HttpServletResponse.SC_OK);
+    }
+
+    private MockHttpServletResponse get(String path, String acceptEncoding, int status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responseCache.doFilter(request(path, acceptEncoding), response, chain(status));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    private MockFilterChain chain() {
+        return chain(HttpServletResponse.SC_OK);
+    }
+
+    // Hace de controlador: cuenta las llamadas y escribe el JSON
+    private MockFilterChain chain(int status) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                controllerCalls.incrementAndGet();
+                if (stale) {
+                    StaleReads.mark();
+                }
+                response.setStatus(status);
+                if (eTag != null) {
+                    response.setHeader(HttpHeaders.ETAG, eTag);
+                }
+                response.setContentType("application/json");
+                response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.cache.CatalogSnapshotFile.PersistedCatalog;
+import com.bazarPepe.eccomerce.dto.CategoryDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        CategoryDto category = new CategoryDto();
+        category.setId(1L);
+        category.setName("Ropa");
+        ProductSummary product = new ProductSummary(7L, "Camisa de algodón", "x".repeat(70_000), new BigDecimal("19.90"), 1L, "abc123", 3L, LocalDateTime.of(2024, 5, 1, 10, 0, 30));
+        ProductSummary withoutCategory = new ProductSummary(8L, "Taza", null, null, null, null, 0L, null);
+
+        CatalogSnapshotFile.write(path, new PersistedCatalog(1234L, List.of(category), List.of(product, withoutCategory), Map.of(7L, 3L)));
+        PersistedCatalog read = CatalogSnapshotFile.read(path).orElseThrow();
+
+        assertEquals(1234L, read.savedAt());
+        assertEquals(List.of(category), read.categories());
+        assertEquals(List.of(product, withoutCategory), read.products());
+        assertEquals(Map.of(7L, 3L), read.popularity());
+        // No quedan temporales junto a la foto
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testMissingFile() throws IOException {
+        assertTrue(CatalogSnapshotFile.read(directory.resolve("missing.snapshot")).isEmpty());
+    }
+
+    @Test
+    void testRejectsCorruptFile() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        CatalogSnapshotFile.write(path, new PersistedCatalog(1L, List.of(),
+                List.of(new ProductSummary(1L, "Camisa", "Algodón", BigDecimal.TEN, 1L, null, 0L, null)), Map.of()));
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> CatalogSnapshotFile.read(path));
+    }
+}
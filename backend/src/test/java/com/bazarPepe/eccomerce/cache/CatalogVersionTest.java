@@ -0,0 +1,140 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CatalogStampDto;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.CategoryRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogVersionTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private final List<Object> published = new ArrayList<>();
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        categoryRepository = mock(CategoryRepository.class);
+        when(productRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(3L, 3L, 5L, UPDATED));
+        when(categoryRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(1L, 1L, 0L, UPDATED));
+        catalogVersion = new CatalogVersion(productRepository, categoryRepository, published::add);
+    }
+
+    @Test
+    void testSameDataGivesTheSameETagOnEveryInstance() {
+        CatalogVersion other = new CatalogVersion(productRepository, categoryRepository, event -> { });
+
+        // Antes de comprobar contra MySQL cada instancia tiene su propio ETag
+        assertNotEquals(catalogVersion.products().eTag(), other.products().eTag());
+
+        catalogVersion.verify();
+        other.verify();
+
+        assertEquals(catalogVersion.products().eTag(), other.products().eTag());
+        assertEquals(catalogVersion.categories().eTag(), other.categories().eTag());
+        String eTag = catalogVersion.products().eTag();
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+    }
+
+    @Test
+    void testChangeMadeElsewhereReloadsBeforeTheNewETag() {
+        List<String> eTagsDuringReload = new ArrayList<>();
+        CatalogVersion[] version = new CatalogVersion[1];
+        version[0] = new CatalogVersion(productRepository, categoryRepository, event -> {
+            published.add(event);
+            eTagsDuringReload.add(version[0].products().eTag());
+        });
+        version[0].verify();
+        String products = version[0].products().eTag();
+        String categories = version[0].categories().eTag();
+        // Otra instancia edita un producto: la suma de versiones sube
+        when(productRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(3L, 3L, 6L, UPDATED));
+
+        version[0].verify();
+
+        CatalogOutdatedEvent event = (CatalogOutdatedEvent) published.get(1);
+        assertTrue(event.isProducts());
+        assertFalse(event.isCategories());
+        // Mientras se recargan las caches se sigue anunciando la version anterior
+        assertEquals(products, eTagsDuringReload.get(1));
+        assertNotEquals(products, version[0].products().eTag());
+        assertEquals(categories, version[0].categories().eTag());
+    }
+
+    @Test
+    void testDeletionMadeElsewhereIsDetected() {
+        catalogVersion.verify();
+        String products = catalogVersion.products().eTag();
+        // Un borrado no mueve updated_at, pero si el numero de filas
+        when(productRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(2L, 3L, 3L, UPDATED));
+
+        catalogVersion.verify();
+
+        assertNotEquals(products, catalogVersion.products().eTag());
+        assertTrue(catalogVersion.products().lastModified() > 0);
+    }
+
+    @Test
+    void testUnchangedDataPublishesNothing() {
+        catalogVersion.verify();
+        published.clear();
+
+        catalogVersion.verify();
+
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void testLocalChangeInvalidatesTheETagUntilTheNextCheck() {
+        catalogVersion.verify();
+        String products = catalogVersion.products().eTag();
+        String categories = catalogVersion.categories().eTag();
+
+        catalogVersion.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        // Sin leer MySQL en el momento: la siguiente comprobacion recarga y vuelve al ETag de los datos
+        assertNotEquals(products, catalogVersion.products().eTag());
+        assertEquals(categories, catalogVersion.categories().eTag());
+        verify(productRepository, times(1)).findCatalogStamp();
+        catalogVersion.verify();
+        assertEquals(products, catalogVersion.products().eTag());
+    }
+
+    @Test
+    void testDeletedCategoryAlsoChangesProductETag() {
+        catalogVersion.verify();
+        String products = catalogVersion.products().eTag();
+
+        catalogVersion.onCategoryChanged(new CategoryChangedEvent(1L, false));
+        assertEquals(products, catalogVersion.products().eTag());
+
+        catalogVersion.onCategoryChanged(new CategoryChangedEvent(1L, true));
+        assertNotEquals(products, catalogVersion.products().eTag());
+    }
+
+    @Test
+    void testFailedCheckKeepsTheCurrentVersion() {
+        catalogVersion.verify();
+        String products = catalogVersion.products().eTag();
+        when(productRepository.findCatalogStamp()).thenThrow(new QueryTimeoutException("timeout"));
+
+        catalogVersion.poll();
+
+        assertEquals(products, catalogVersion.products().eTag());
+    }
+}
@@ -0,0 +1,186 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.cache.CatalogSnapshotFile.PersistedCatalog;
+import com.bazarPepe.eccomerce.dto.CatalogStampDto;
+import com.bazarPepe.eccomerce.dto.CategoryDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CatalogOutdatedEvent;
+import com.bazarPepe.eccomerce.repository.CategoryRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import com.bazarPepe.eccomerce.search.ProductSearchIndex;
+import com.bazarPepe.eccomerce.search.ProductSuggester;
+import com.bazarPepe.eccomerce.service.implementation.CategoryServiceImplementation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CatalogWarmupTest {
+
+    @TempDir
+    Path directory;
+
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private ProductSearchIndex productSearchIndex;
+    private ProductSuggester productSuggester;
+    private CatalogCache catalogCache;
+    private CategoryServiceImplementation categoryService;
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        categoryRepository = mock(CategoryRepository.class);
+        when(productRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(1L, 1L, 0L, null));
+        when(categoryRepository.findCatalogStamp()).thenReturn(new CatalogStampDto(1L, 1L, 0L, null));
+        productSearchIndex = mock(ProductSearchIndex.class);
+        productSuggester = mock(ProductSuggester.class);
+        catalogCache = mock(CatalogCache.class);
+        categoryService = mock(CategoryServiceImplementation.class);
+        when(catalogCache.warm(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        when(productSearchIndex.rebuild(anyList(), anyLong())).thenReturn(true);
+        when(productSuggester.rebuild(anyList(), anyLong())).thenReturn(true);
+        path = directory.resolve("catalog.snapshot");
+    }
+
+    // La comprobacion de la version al arrancar llega a la recarga con CatalogOutdatedEvent, como en la aplicacion
+    private CatalogWarmup warmup(Duration maxAge) {
+        CatalogWarmup[] warmup = new CatalogWarmup[1];
+        CatalogVersion catalogVersion = new CatalogVersion(productRepository, categoryRepository,
+                event -> warmup[0].onCatalogOutdated((CatalogOutdatedEvent) event));
+        warmup[0] = new CatalogWarmup(productRepository, productSearchIndex, productSuggester, catalogCache,
+                catalogVersion, categoryService, true, path, maxAge);
+        return warmup[0];
+    }
+
+    @Test
+    void testColdStartLoadsFromDatabaseAndSavesSnapshot() throws Exception {
+        List<ProductSummary> products = List.of(product(1L));
+        when(productRepository.findAllSummaries()).thenReturn(products);
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.getProducts()).thenReturn(products);
+        when(categoryService.currentSnapshot()).thenReturn(Optional.of(new CategorySnapshot(1, List.of(category()))));
+
+        warmup(Duration.ofDays(1)).warmUp();
+
+        // Una sola lectura alimenta la cache, el buscador y el autocompletado
+        verify(productRepository, times(1)).findAllSummaries();
+        verify(productSearchIndex).rebuild(products, 0L);
+        verify(productSuggester).rebuild(products, 0L);
+        assertEquals(products, CatalogSnapshotFile.read(path).orElseThrow().products());
+    }
+
+    @Test
+    void testWarmStartServesSnapshotAndVerifiesInBackground() throws Exception {
+        List<ProductSummary> products = List.of(product(1L));
+        CatalogSnapshotFile.write(path, new PersistedCatalog(System.currentTimeMillis(), List.of(category()), products, Map.of(1L, 4L)));
+        when(productRepository.findAllSummaries()).thenReturn(List.of(product(1L), product(2L)));
+
+        warmup(Duration.ofDays(1)).warmUp();
+
+        verify(categoryService).preloadSnapshot(List.of(category()));
+        verify(productSearchIndex).rebuild(products);
+        verify(productSuggester).rebuild(products, Map.of(1L, 4L));
+        verify(productSearchIndex, timeout(2000)).rebuild(List.of(product(1L), product(2L)), 0L);
+        verify(categoryService, timeout(2000)).rebuildSnapshot();
+    }
+
+    @Test
+    void testChangeDuringTheLoadReadsTheCatalogAgain() throws Exception {
+        List<ProductSummary> products = List.of(product(1L));
+        when(productRepository.findAllSummaries()).thenReturn(products);
+        // Un evento se aplico al indice mientras se leia: la primera lectura no se usa
+        when(productSearchIndex.changeCount()).thenReturn(0L, 1L);
+        when(productSearchIndex.rebuild(products, 0L)).thenReturn(false);
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.getProducts()).thenReturn(products);
+        when(categoryService.currentSnapshot()).thenReturn(Optional.of(new CategorySnapshot(1, List.of(category()))));
+
+        warmup(Duration.ofDays(1)).warmUp();
+
+        verify(productRepository, times(2)).findAllSummaries();
+        verify(productSearchIndex).rebuild(products, 1L);
+        assertTrue(Files.exists(path));
+    }
+
+    @Test
+    void testCatalogThatNeverSettlesIsNotSaved() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(product(1L)));
+        when(productSuggester.rebuild(anyList(), anyLong())).thenReturn(false);
+        when(productSearchIndex.isReady()).thenReturn(true);
+
+        warmup(Duration.ofDays(1)).warmUp();
+
+        // Lo que ya tienen los indices lleva los cambios; la foto no se da por verificada
+        verify(productRepository, times(3)).findAllSummaries();
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    void testOldOrCorruptSnapshotIsIgnored() throws Exception {
+        CatalogSnapshotFile.write(path, new PersistedCatalog(0L, List.of(), List.of(product(1L)), Map.of()));
+        when(productRepository.findAllSummaries()).thenReturn(List.of());
+
+        warmup(Duration.ofDays(1)).warmUp();
+        Files.write(path, new byte[]{1, 2, 3});
+        warmup(Duration.ofDays(1)).warmUp();
+
+        verify(categoryService, never()).preloadSnapshot(any());
+        verify(productRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void testChangesMadeElsewhereReloadTheCatalog() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(product(1L)));
+        CatalogWarmup warmup = warmup(Duration.ofDays(1));
+
+        // Solo categorias: no hace falta volver a leer los productos
+        warmup.onCatalogOutdated(new CatalogOutdatedEvent(false, true));
+        verify(categoryService).rebuildSnapshot();
+        verify(productRepository, never()).findAllSummaries();
+
+        warmup.onCatalogOutdated(new CatalogOutdatedEvent(true, false));
+        verify(productRepository).findAllSummaries();
+        verify(productSearchIndex).rebuild(List.of(product(1L)), 0L);
+    }
+
+    @Test
+    void testSaveSkipsUnchangedCatalog() throws Exception {
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.getProducts()).thenReturn(List.of(product(1L)));
+        when(categoryService.currentSnapshot()).thenReturn(Optional.of(new CategorySnapshot(1, List.of())));
+        CatalogWarmup warmup = warmup(Duration.ofDays(1));
+
+        warmup.save();
+        Files.delete(path);
+        warmup.save();
+
+        assertFalse(Files.exists(path));
+    }
+
+    private static CategoryDto category() {
+        CategoryDto category = new CategoryDto();
+        category.setId(1L);
+        category.setName("Ropa");
+        return category;
+    }
+
+    private static ProductSummary product(Long id) {
+        return new ProductSummary(id, "Product " + id, "Description", BigDecimal.TEN, 1L, null, 0L, null);
+    }
+}
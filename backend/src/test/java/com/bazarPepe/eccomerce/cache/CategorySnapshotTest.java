@@ -0,0 +1,26 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.CategoryDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategorySnapshotTest {
+
+    @Test
+    void testCopiesCategories() {
+        List<CategoryDto> categories = new ArrayList<>();
+        categories.add(new CategoryDto());
+        CategorySnapshot snapshot = new CategorySnapshot(1L, categories);
+
+        // Cambiar la lista original no cambia la foto
+        categories.add(new CategoryDto());
+
+        assertEquals(1L, snapshot.version());
+        assertEquals(1, snapshot.categories().size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.categories().clear());
+    }
+}
@@ -0,0 +1,56 @@
+package com.bazarPepe.eccomerce.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+    @Test
+    void testNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        for (long key = 1; key <= 500; key++) {
+            for (int i = 0; i < key % 7; i++) {
+                sketch.increment(key);
+            }
+        }
+
+        for (long key = 1; key <= 500; key++) {
+            assertTrue(sketch.estimate(key) >= key % 7);
+        }
+    }
+
+    @Test
+    void testHeavyKeyStandsOut() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        for (long key = 1; key <= 1000; key++) {
+            sketch.increment(key);
+        }
+        for (int i = 0; i < 300; i++) {
+            sketch.increment(42L);
+        }
+
+        // Con 1024 contadores por fila las colisiones apenas suman
+        assertTrue(sketch.estimate(42L) >= 301);
+        assertTrue(sketch.estimate(42L) < 310);
+        assertTrue(sketch.estimate(7L) < 10);
+    }
+
+    @Test
+    void testHalve() {
+        CountMinSketch sketch = new CountMinSketch(256, 2);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(5L);
+        }
+
+        sketch.halve();
+
+        assertEquals(5, sketch.estimate(5L));
+    }
+
+    @Test
+    void testRejectsInvalidDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(100, 4));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(64, 5));
+    }
+}
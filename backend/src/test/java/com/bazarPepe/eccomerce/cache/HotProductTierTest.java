@@ -0,0 +1,81 @@
+package com.bazarPepe.eccomerce.cache;
+
+import com.bazarPepe.eccomerce.dto.HotProductDto;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotProductTierTest {
+
+    @Test
+    void testBecomesHotAtThreshold() {
+        HotProductTier tier = new HotProductTier(3, 10, 1024);
+        tier.record(1L);
+        tier.record(1L);
+        assertFalse(tier.isHot(1L));
+
+        tier.record(1L);
+
+        assertTrue(tier.isHot(1L));
+    }
+
+    @Test
+    void testOnlyHotProductsArePinned() {
+        HotProductTier tier = new HotProductTier(1, 10, 1024);
+        tier.record(1L);
+
+        tier.pin(product(1L));
+        tier.pin(product(2L));
+
+        assertNotNull(tier.getPinned(1L));
+        assertNull(tier.getPinned(2L));
+        assertEquals(1, tier.getPinnedHits());
+    }
+
+    @Test
+    void testFullTierKeepsTheHottest() {
+        HotProductTier tier = new HotProductTier(1, 2, 1024);
+        record(tier, 1L, 5);
+        record(tier, 2L, 3);
+        tier.pin(product(2L));
+
+        // Un producto tibio no entra; uno mas visto desplaza al mas frio
+        record(tier, 3L, 2);
+        assertFalse(tier.isHot(3L));
+        record(tier, 3L, 2);
+
+        assertTrue(tier.isHot(3L));
+        assertFalse(tier.isHot(2L));
+        assertNull(tier.getPinned(2L));
+        assertEquals(List.of(1L, 3L), tier.getHotProducts().stream().map(HotProductDto::getProductId).toList());
+    }
+
+    @Test
+    void testDecayCoolsDownProducts() {
+        HotProductTier tier = new HotProductTier(4, 10, 1024);
+        record(tier, 1L, 4);
+        tier.pin(product(1L));
+
+        tier.decay();
+        assertTrue(tier.isHot(1L));
+        tier.decay();
+
+        assertFalse(tier.isHot(1L));
+        assertEquals(0, tier.getPinnedCount());
+    }
+
+    private static void record(HotProductTier tier, Long productId, int views) {
+        for (int i = 0; i < views; i++) {
+            tier.record(productId);
+        }
+    }
+
+    private static ProductDto product(Long id) {
+        ProductDto product = new ProductDto();
+        product.setId(id);
+        return product;
+    }
+}
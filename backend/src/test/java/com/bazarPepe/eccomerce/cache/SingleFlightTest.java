@@ -0,0 +1,114 @@
+package com.bazarPepe.eccomerce.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void testConcurrentLoadsShareOneCall() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.load(1L, id -> {
+                calls.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "Camisa";
+            }));
+            loading.await();
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> singleFlight.load(1L, id -> {
+                    calls.incrementAndGet();
+                    return "Otra carga";
+                })));
+            }
+            // Espera a que todos se hayan unido a la carga en marcha
+            while (singleFlight.getCoalescedCount() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("Camisa", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("Camisa", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(1, singleFlight.getLoadCount());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.load(1L, id -> {
+                loading.countDown();
+                await(release);
+                throw new IllegalStateException("Connection refused");
+            }));
+            loading.await();
+            Future<String> follower = executor.submit(() -> singleFlight.load(1L, id -> "Otra carga"));
+            while (singleFlight.getCoalescedCount() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            // El error no se queda guardado: la siguiente llamada vuelve a cargar
+            assertEquals("Camisa", singleFlight.load(1L, id -> "Camisa"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testForgetStartsFreshLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> singleFlight.load(1L, id -> {
+                loading.countDown();
+                await(release);
+                return "Precio viejo";
+            }));
+            loading.await();
+
+            singleFlight.forget(1L);
+
+            assertEquals("Precio nuevo", singleFlight.load(1L, id -> "Precio nuevo"));
+            release.countDown();
+            assertEquals("Precio viejo", stale.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,21 +1,35 @@
 package com.bazarPepe.eccomerce.controller;
 
+import com.bazarPepe.eccomerce.cache.CatalogVersion;
 import com.bazarPepe.eccomerce.dto.CategoryDto;
 import com.bazarPepe.eccomerce.dto.Response;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.repository.CategoryRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
 import com.bazarPepe.eccomerce.service.interfaces.CategoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CategoryControllerTest {
@@ -23,6 +37,9 @@ class CategoryControllerTest {
     @Mock
     private CategoryService categoryService;
 
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion(mock(ProductRepository.class), mock(CategoryRepository.class), event -> { });
+
     @InjectMocks
     private CategoryController categoryController;
 
@@ -73,7 +90,7 @@ class CategoryControllerTest {
         when(categoryService.getAllCategories()).thenReturn(mockResponse);
 
         // Ejecutar método
-        ResponseEntity<Response> responseEntity = categoryController.getAllCategories();
+        ResponseEntity<Response> responseEntity = categoryController.getAllCategories(webRequest());
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
@@ -141,11 +158,39 @@ class CategoryControllerTest {
         when(categoryService.getCategoryById(anyLong())).thenReturn(mockResponse);
 
         // Ejecutar método
-        ResponseEntity<Response> responseEntity = categoryController.getCategoryById(categoryId);
+        ResponseEntity<Response> responseEntity = categoryController.getCategoryById(categoryId, webRequest());
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
         assertEquals("Category retrieved successfully", responseEntity.getBody().getMessage());
         assertEquals("Electronics", responseEntity.getBody().getCategory().getName());
     }
+
+    @Test
+    void testGetAllCategoriesNotModified() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        when(categoryService.getAllCategories()).thenReturn(Response.builder().status(200).build());
+        categoryController.getAllCategories(new ServletWebRequest(new MockHttpServletRequest("GET", "/category/get-all"), first));
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/category/get-all");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<Response> responseEntity = categoryController.getAllCategories(new ServletWebRequest(request, response));
+
+        // El cliente ya tiene la version actual: 304 sin llamar al servicio
+        assertNull(responseEntity);
+        assertEquals(304, response.getStatus());
+        verify(categoryService, times(1)).getAllCategories();
+
+        // Tras un cambio el ETag anterior ya no vale
+        catalogVersion.onCategoryChanged(new CategoryChangedEvent(1L, false));
+        MockHttpServletRequest afterChange = new MockHttpServletRequest("GET", "/category/get-all");
+        afterChange.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        assertNotNull(categoryController.getAllCategories(new ServletWebRequest(afterChange, new MockHttpServletResponse())));
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/category"), new MockHttpServletResponse());
+    }
 }
@@ -1,8 +1,12 @@
 package com.bazarPepe.eccomerce.controller;
 
+import com.bazarPepe.eccomerce.dto.OrderIntakeDto;
 import com.bazarPepe.eccomerce.dto.OrderRequest;
 import com.bazarPepe.eccomerce.dto.Response;
+import com.bazarPepe.eccomerce.enums.OrderIntakeStatus;
 import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.order.OrderIdempotency;
+import com.bazarPepe.eccomerce.order.OrderIntakeQueue;
 import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDateTime;
@@ -19,6 +24,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class OrderItemControllerTest {
@@ -26,6 +33,12 @@ class OrderItemControllerTest {
     @Mock
     private OrderItemService orderItemService;
 
+    @Mock
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @Mock
+    private OrderIdempotency orderIdempotency;
+
     @InjectMocks
     private OrderItemController orderItemController;
 
@@ -46,16 +59,41 @@ class OrderItemControllerTest {
                 .build();
 
         // Configurar comportamiento del mock
-        when(orderItemService.placeOrder(any(OrderRequest.class))).thenReturn(mockResponse);
+        when(orderIdempotency.placeOrder(eq("key-1"), any(OrderRequest.class))).thenReturn(mockResponse);
 
         // Ejecutar el método
-        ResponseEntity<Response> responseEntity = orderItemController.placeOrder(orderRequest);
+        ResponseEntity<Response> responseEntity = orderItemController.placeOrder("key-1", orderRequest);
 
         // Verificar resultados
         assertEquals(201, responseEntity.getBody().getStatus());
         assertEquals("Order placed successfully", responseEntity.getBody().getMessage());
     }
 
+    @Test
+    void testPlaceOrderAsync() {
+        OrderRequest orderRequest = new OrderRequest();
+        OrderIntakeDto queued = new OrderIntakeDto("ref-1", OrderIntakeStatus.QUEUED, null, null);
+        when(orderIntakeQueue.submit(orderRequest)).thenReturn(queued);
+
+        ResponseEntity<Response> responseEntity = orderItemController.placeOrderAsync(orderRequest);
+
+        // El pedido solo se encola: 202 con la referencia para consultar su estado
+        assertEquals(HttpStatus.ACCEPTED, responseEntity.getStatusCode());
+        assertEquals(queued, responseEntity.getBody().getOrderIntake());
+        verifyNoInteractions(orderItemService);
+    }
+
+    @Test
+    void testGetOrderIntakeStatus() {
+        OrderIntakeDto completed = new OrderIntakeDto("ref-1", OrderIntakeStatus.COMPLETED, 7L, "The order has been completed.");
+        when(orderIntakeQueue.getStatus("ref-1")).thenReturn(completed);
+
+        ResponseEntity<Response> responseEntity = orderItemController.getOrderIntakeStatus("ref-1");
+
+        assertEquals(200, responseEntity.getBody().getStatus());
+        assertEquals(7L, responseEntity.getBody().getOrderIntake().getOrderId());
+    }
+
     @Test
     void testUpdateOrderItemStatus() {
         // Preparar datos de entrada y salida simulados
@@ -1,22 +1,45 @@
 package com.bazarPepe.eccomerce.controller;
 
+import com.bazarPepe.eccomerce.cache.CatalogVersion;
+import com.bazarPepe.eccomerce.dto.CacheStatsDto;
+import com.bazarPepe.eccomerce.dto.HotProductDto;
+import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.exception.InvalidCredentialsException;
+import com.bazarPepe.eccomerce.image.ImageResponseWriter;
+import com.bazarPepe.eccomerce.image.ThumbnailGenerator;
+import com.bazarPepe.eccomerce.repository.CategoryRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
 import com.bazarPepe.eccomerce.service.interfaces.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class ProductControllerTest {
@@ -24,12 +47,22 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ImageResponseWriter imageResponseWriter;
+
+    @Mock
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion(mock(ProductRepository.class), mock(CategoryRepository.class), event -> { });
+
     @InjectMocks
     private ProductController productController;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(thumbnailGenerator.resolve(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
@@ -57,6 +90,12 @@ class ProductControllerTest {
         assertEquals("Product created successfully", responseEntity.getBody().getMessage());
     }
 
+    @Test
+    void testUpdateStockRejectsNegativeQuantity() {
+        assertThrows(InvalidCredentialsException.class, () -> productController.updateStock(1L, -1));
+        verify(productService, never()).updateStock(any(), anyLong());
+    }
+
     @Test
     void testCreateProductWithInvalidData() {
         // Datos inválidos
@@ -132,7 +171,7 @@ class ProductControllerTest {
         when(productService.getProductById(anyLong())).thenReturn(mockResponse);
 
         // Ejecutar el método
-        ResponseEntity<Response> responseEntity = productController.getProductById(productId);
+        ResponseEntity<Response> responseEntity = productController.getProductById(productId, webRequest());
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
@@ -151,13 +190,68 @@ class ProductControllerTest {
         when(productService.getAllProduct()).thenReturn(mockResponse);
 
         // Ejecutar el método
-        ResponseEntity<Response> responseEntity = productController.getAllProduct();
+        ResponseEntity<Response> responseEntity = productController.getAllProduct(null, null, webRequest());
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
         assertEquals("All products retrieved successfully", responseEntity.getBody().getMessage());
     }
 
+    @Test
+    void testGetAllProductNotModified() {
+        when(productService.getAllProduct()).thenReturn(Response.builder().status(200).build());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/get-all");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, catalogVersion.products().eTag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<Response> responseEntity = productController.getAllProduct(null, null, new ServletWebRequest(request, response));
+
+        // Ni cache ni base de datos ni serializacion
+        assertNull(responseEntity);
+        assertEquals(304, response.getStatus());
+        verify(productService, never()).getAllProduct();
+    }
+
+    @Test
+    void testGetProductByIdUsesProductVersion() {
+        ProductDto product = new ProductDto();
+        product.setId(1L);
+        product.setVersion(3L);
+        product.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 10, 0));
+        when(productService.getProductById(1L)).thenReturn(Response.builder().status(200).product(product).build());
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        productController.getProductById(1L, new ServletWebRequest(new MockHttpServletRequest("GET", "/product/get-by-product-id/1"), first));
+        assertEquals("\"1-3\"", first.getHeader(HttpHeaders.ETAG));
+        assertNotNull(first.getHeader(HttpHeaders.LAST_MODIFIED));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/get-by-product-id/1");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"1-3\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(productController.getProductById(1L, new ServletWebRequest(request, response)));
+        assertEquals(304, response.getStatus());
+
+        // Otra version del producto: respuesta completa
+        product.setVersion(4L);
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/product/get-by-product-id/1");
+        stale.addHeader(HttpHeaders.IF_NONE_MATCH, "\"1-3\"");
+        assertNotNull(productController.getProductById(1L, new ServletWebRequest(stale, new MockHttpServletResponse())));
+    }
+
+    @Test
+    void testGetAllProductWithCursor() {
+        Response mockResponse = Response.builder()
+                .status(200)
+                .nextCursor("next")
+                .build();
+        when(productService.getProductPage("abc", 10)).thenReturn(mockResponse);
+
+        ResponseEntity<Response> responseEntity = productController.getAllProduct("abc", 10, webRequest());
+
+        assertEquals("next", responseEntity.getBody().getNextCursor());
+        verify(productService, never()).getAllProduct();
+    }
+
     @Test
     void testGetProductsByCategory() {
         // Preparar datos simulados
@@ -172,7 +266,7 @@ class ProductControllerTest {
         when(productService.getProductsByCategory(anyLong())).thenReturn(mockResponse);
 
         // Ejecutar el método
-        ResponseEntity<Response> responseEntity = productController.getProductsByCategory(categoryId);
+        ResponseEntity<Response> responseEntity = productController.getProductsByCategory(categoryId, webRequest());
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
@@ -190,13 +284,180 @@ class ProductControllerTest {
                 .build();
 
         // Configurar comportamiento del mock
-        when(productService.searchProduct(any())).thenReturn(mockResponse);
+        when(productService.searchProduct(searchValue, null, null)).thenReturn(mockResponse);
 
         // Ejecutar el método
-        ResponseEntity<Response> responseEntity = productController.searchForProduct(searchValue);
+        ResponseEntity<Response> responseEntity = productController.searchForProduct(searchValue, null, null);
 
         // Verificar resultados
         assertEquals(200, responseEntity.getBody().getStatus());
         assertEquals("Products found successfully", responseEntity.getBody().getMessage());
     }
+
+    @Test
+    void testSuggestProducts() {
+        Response mockResponse = Response.builder()
+                .status(200)
+                .suggestions(List.of("Camisa"))
+                .build();
+        when(productService.suggestProducts("cam", 5)).thenReturn(mockResponse);
+
+        ResponseEntity<Response> responseEntity = productController.suggestProducts("cam", 5);
+
+        assertEquals(List.of("Camisa"), responseEntity.getBody().getSuggestions());
+    }
+
+    @Test
+    void testGetCacheStats() {
+        Response mockResponse = Response.builder()
+                .status(200)
+                .cacheStats(List.of(new CacheStatsDto("products", 3, 1, 0.75, 0, 1, 200)))
+                .build();
+        when(productService.getCacheStats()).thenReturn(mockResponse);
+
+        ResponseEntity<Response> responseEntity = productController.getCacheStats();
+
+        assertEquals(200, responseEntity.getBody().getStatus());
+        assertEquals("products", responseEntity.getBody().getCacheStats().get(0).getName());
+    }
+
+    @Test
+    void testGetHotProducts() {
+        Response mockResponse = Response.builder()
+                .status(200)
+                .hotProducts(List.of(new HotProductDto(1L, "Camisa", 120, true)))
+                .build();
+        when(productService.getHotProducts()).thenReturn(mockResponse);
+
+        ResponseEntity<Response> responseEntity = productController.getHotProducts();
+
+        assertEquals(200, responseEntity.getBody().getStatus());
+        assertEquals(1L, responseEntity.getBody().getHotProducts().get(0).getProductId());
+    }
+
+    @Test
+    void testGetProductImage() throws Exception {
+        when(productService.getProductImage(1L)).thenReturn(new ProductImageDto("abc", "image/png"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, null, null, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"abc\"", response.getHeader("ETag"));
+        assertEquals("image/png", response.getContentType());
+        // Sin ?v= la URL puede servir otra imagen manana: se revalida con el ETag
+        assertEquals("no-cache, public", response.getHeader("Cache-Control"));
+        verify(imageResponseWriter).write("abc", request, response);
+    }
+
+    @Test
+    void testOnlyTheCurrentVersionIsCachedForever() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        when(productService.getProductImage(1L)).thenReturn(new ProductImageDto(hash, "image/png"));
+
+        MockHttpServletResponse current = new MockHttpServletResponse();
+        productController.getProductImage(1L, null, hash.substring(0, 16), new MockHttpServletRequest(), current);
+        assertEquals("max-age=31536000, public, immutable", current.getHeader("Cache-Control"));
+
+        // Una URL con la version anterior recibe la imagen nueva, pero no para siempre
+        MockHttpServletResponse stale = new MockHttpServletResponse();
+        productController.getProductImage(1L, null, "fedcba9876543210", new MockHttpServletRequest(), stale);
+        assertEquals(200, stale.getStatus());
+        assertEquals("no-cache, public", stale.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testGetProductImageNotModified() throws Exception {
+        when(productService.getProductImage(1L)).thenReturn(new ProductImageDto("abc", "image/png"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "W/\"other\", \"abc\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, null, null, request, response);
+
+        // El cliente ya tiene la version actual: no se envian los bytes
+        assertEquals(304, response.getStatus());
+        verify(imageResponseWriter, never()).write(any(), any(), any());
+    }
+
+    @Test
+    void testGetProductImageVariant() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        ProductImageDto original = new ProductImageDto(hash, "image/png");
+        when(productService.getProductImage(1L)).thenReturn(original);
+        when(thumbnailGenerator.resolve(original, 320)).thenReturn(new ProductImageDto(hash + "-w320", "image/png"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, 320, hash.substring(0, 16), request, response);
+
+        assertEquals("\"" + hash + "-w320\"", response.getHeader("ETag"));
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+        verify(imageResponseWriter).write(hash + "-w320", request, response);
+    }
+
+    @Test
+    void testGetProductImageVariantNotReadyFallsBackToOriginal() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        when(productService.getProductImage(1L)).thenReturn(new ProductImageDto(hash, "image/png"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, 320, hash.substring(0, 16), request, response);
+
+        // Mientras se genera la miniatura se sirve el original, pero sin cachearlo para siempre
+        assertEquals("\"" + hash + "\"", response.getHeader("ETag"));
+        assertEquals("max-age=60, public", response.getHeader("Cache-Control"));
+        verify(imageResponseWriter).write(hash, request, response);
+    }
+
+    @Test
+    void testVersionedImageNotModifiedWithoutLookup() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"" + hash + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, null, hash.substring(0, 16), request, response);
+
+        // La URL versionada ya identifica la imagen: ni cache ni base de datos
+        assertEquals(304, response.getStatus());
+        assertEquals("\"" + hash + "\"", response.getHeader("ETag"));
+        // Sin mirar el producto no se sabe si v sigue siendo la actual: no se vuelve a dar un ano de cache
+        assertNull(response.getHeader("Cache-Control"));
+        verifyNoInteractions(productService, imageResponseWriter);
+    }
+
+    @Test
+    void testVersionedVariantNotModifiedWithoutLookup() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"" + hash + "-w320\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, 300, hash.substring(0, 16), request, response);
+
+        assertEquals(304, response.getStatus());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testFallbackOriginalIsRevalidated() throws Exception {
+        String hash = "0123456789abcdef".repeat(4);
+        when(productService.getProductImage(1L)).thenReturn(new ProductImageDto(hash, "image/png"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", "\"" + hash + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.getProductImage(1L, 320, hash.substring(0, 16), request, response);
+
+        // El cliente tiene el original servido mientras se generaba la miniatura: se comprueba si ya existe
+        verify(productService).getProductImage(1L);
+        verify(thumbnailGenerator).resolve(any(), eq(320));
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/product"), new MockHttpServletResponse());
+    }
 }
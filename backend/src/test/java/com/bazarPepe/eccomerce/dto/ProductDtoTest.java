@@ -3,7 +3,6 @@ package com.bazarPepe.eccomerce.dto;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
-import java.util.Base64;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,39 +16,25 @@ class ProductDtoTest {
         assertNull(productDto.getName());
         assertNull(productDto.getDescription());
         assertNull(productDto.getPrice());
-        assertNull(productDto.getImage());
+        assertNull(productDto.getImageUrl());
         assertNull(productDto.getCategory());
     }
 
     @Test
     void testAllArgsConstructor() {
         CategoryDto categoryDto = new CategoryDto();
-        ProductDto productDto = new ProductDto(1L, "Product Name", "Description", BigDecimal.valueOf(100), "ImageData", categoryDto);
+        ProductDto productDto = new ProductDto(1L, "Product Name", "Description", BigDecimal.valueOf(100), "/product/1/image?v=abc", categoryDto, null, null);
 
         assertEquals(1L, productDto.getId());
         assertEquals("Product Name", productDto.getName());
         assertEquals("Description", productDto.getDescription());
         assertEquals(BigDecimal.valueOf(100), productDto.getPrice());
-        assertEquals("ImageData", productDto.getImage());
+        assertEquals("/product/1/image?v=abc", productDto.getImageUrl());
         assertEquals(categoryDto, productDto.getCategory());
     }
 
-    @Test
-    void testConstructorWithImageBytes() {
-        byte[] imageBytes = "TestImage".getBytes();
-        ProductDto productDto = new ProductDto(1L, "Product Name", "Description", BigDecimal.valueOf(100), imageBytes);
-
-        assertEquals(1L, productDto.getId());
-        assertEquals("Product Name", productDto.getName());
-        assertEquals("Description", productDto.getDescription());
-        assertEquals(BigDecimal.valueOf(100), productDto.getPrice());
-        assertEquals(Base64.getEncoder().encodeToString(imageBytes), productDto.getImage());
-        assertNull(productDto.getCategory());
-    }
-
     @Test
     void testSettersAndGetters() {
-        byte[] imageBytes = "TestImage".getBytes();
         CategoryDto categoryDto = new CategoryDto();
 
         ProductDto productDto = new ProductDto();
@@ -57,14 +42,14 @@ class ProductDtoTest {
         productDto.setName("Product Name");
         productDto.setDescription("Description");
         productDto.setPrice(BigDecimal.valueOf(100));
-        productDto.setImage(Base64.getEncoder().encodeToString(imageBytes));
+        productDto.setImageUrl("/product/1/image?v=abc");
         productDto.setCategory(categoryDto);
 
         assertEquals(1L, productDto.getId());
         assertEquals("Product Name", productDto.getName());
         assertEquals("Description", productDto.getDescription());
         assertEquals(BigDecimal.valueOf(100), productDto.getPrice());
-        assertEquals(Base64.getEncoder().encodeToString(imageBytes), productDto.getImage());
+        assertEquals("/product/1/image?v=abc", productDto.getImageUrl());
         assertEquals(categoryDto, productDto.getCategory());
     }
 
@@ -76,24 +61,17 @@ class ProductDtoTest {
         productDto.setName(null);
         productDto.setDescription(null);
         productDto.setPrice(null);
-        productDto.setImage(null);
+        productDto.setImageUrl(null);
         productDto.setCategory(null);
 
         assertNull(productDto.getId());
         assertNull(productDto.getName());
         assertNull(productDto.getDescription());
         assertNull(productDto.getPrice());
-        assertNull(productDto.getImage());
+        assertNull(productDto.getImageUrl());
         assertNull(productDto.getCategory());
     }
 
-    @Test
-    void testImageEncodingWithNull() {
-        ProductDto productDto = new ProductDto(1L, "Product Name", "Description", BigDecimal.valueOf(100), (byte[]) null);
-
-        assertNull(productDto.getImage());
-    }
-
     @Test
     void testToString() {
         ProductDto productDto = new ProductDto();
@@ -107,8 +85,8 @@ class ProductDtoTest {
 
     @Test
     void testEqualsAndHashCode() {
-        ProductDto product1 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), (byte[]) null);
-        ProductDto product2 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), (byte[]) null);
+        ProductDto product1 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), null, null, null, null);
+        ProductDto product2 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), null, null, null, null);
 
         assertEquals(product1, product2);
         assertEquals(product1.hashCode(), product2.hashCode());
@@ -116,8 +94,8 @@ class ProductDtoTest {
 
     @Test
     void testNotEquals() {
-        ProductDto product1 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), (byte[]) null);
-        ProductDto product2 = new ProductDto(2L, "Other Product", "Other Description", BigDecimal.valueOf(200), (byte[]) null);
+        ProductDto product1 = new ProductDto(1L, "Product", "Description", BigDecimal.valueOf(100), null, null, null, null);
+        ProductDto product2 = new ProductDto(2L, "Other Product", "Other Description", BigDecimal.valueOf(200), null, null, null, null);
 
         assertNotEquals(product1, product2);
     }
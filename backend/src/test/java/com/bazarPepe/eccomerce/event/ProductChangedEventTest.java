@@ -0,0 +1,31 @@
+package com.bazarPepe.eccomerce.event;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductChangedEventTest {
+
+    @Test
+    void testSaved() {
+        ProductSummary product = new ProductSummary(1L, "Name", "Description", BigDecimal.ONE, 2L, null, 0L, null);
+
+        ProductChangedEvent event = ProductChangedEvent.saved(product);
+
+        assertEquals(1L, event.getProductId());
+        assertSame(product, event.getProduct());
+        assertFalse(event.isDeleted());
+    }
+
+    @Test
+    void testDeleted() {
+        ProductChangedEvent event = ProductChangedEvent.deleted(1L);
+
+        assertEquals(1L, event.getProductId());
+        assertNull(event.getProduct());
+        assertTrue(event.isDeleted());
+    }
+}
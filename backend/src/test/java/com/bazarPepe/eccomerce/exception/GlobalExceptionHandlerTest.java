@@ -3,10 +3,12 @@ package com.bazarPepe.eccomerce.exception;
 import com.bazarPepe.eccomerce.dto.Response;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -54,6 +56,17 @@ class GlobalExceptionHandlerTest {
         assertEquals("Invalid credentials", responseEntity.getBody().getMessage());
     }
 
+    @Test
+    void testHandleInvalidImageException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleInvalidImageException(
+                new InvalidImageException("The provided file is not a valid image."), mockRequest);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("The provided file is not a valid image.", responseEntity.getBody().getMessage());
+    }
+
     @Test
     void testHandleValidationExceptions() {
         MethodArgumentNotValidException mockException = mock(MethodArgumentNotValidException.class);
@@ -78,4 +91,88 @@ class GlobalExceptionHandlerTest {
         assertEquals(400, responseEntity.getBody().getStatus());
         assertEquals("Incorrect data, please try another option.", responseEntity.getBody().getMessage());
     }
+
+    @Test
+    void testHandleUploadRejectedException() {
+        UploadRejectedException exception = new UploadRejectedException("Too many uploads in progress, please try again later.");
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleUploadRejectedException(exception, mockRequest);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+        assertEquals("5", responseEntity.getHeaders().getFirst("Retry-After"));
+        assertEquals(503, responseEntity.getBody().getStatus());
+        assertEquals("Too many uploads in progress, please try again later.", responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void testHandleDatabaseUnavailableException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleDatabaseUnavailableException(
+                new QueryTimeoutException("Query timed out"), mockRequest);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+        assertEquals("5", responseEntity.getHeaders().getFirst("Retry-After"));
+        assertEquals(503, responseEntity.getBody().getStatus());
+    }
+
+    @Test
+    void testHandleOutOfStockException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleOutOfStockException(
+                new OutOfStockException("There is not enough stock for product 1."), mockRequest);
+
+        assertEquals(HttpStatus.CONFLICT, responseEntity.getStatusCode());
+        assertEquals("There is not enough stock for product 1.", responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void testHandleIdempotencyKeyException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleIdempotencyKeyException(
+                new IdempotencyKeyException("The Idempotency-Key was already used for a different order."), mockRequest);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, responseEntity.getStatusCode());
+        assertEquals(422, responseEntity.getBody().getStatus());
+    }
+
+    @Test
+    void testHandleOrderIntakeRejectedException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleOrderIntakeRejectedException(
+                new OrderIntakeRejectedException("Too many orders in progress, please try again later."), mockRequest);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst("Retry-After"));
+        assertEquals("Too many orders in progress, please try again later.", responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void testHandleMaxUploadSizeExceededException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleMaxUploadSizeExceededException(
+                new MaxUploadSizeExceededException(10L), mockRequest);
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, responseEntity.getStatusCode());
+        assertEquals(413, responseEntity.getBody().getStatus());
+        assertEquals("The image exceeds the maximum allowed size.", responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void testHandleImageTooLargeException() {
+        WebRequest mockRequest = mock(WebRequest.class);
+
+        ResponseEntity<Response> responseEntity = globalExceptionHandler.handleImageTooLargeException(
+                new ImageTooLargeException("The image exceeds the maximum allowed size."), mockRequest);
+
+        // Igual que el limite del multipart
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, responseEntity.getStatusCode());
+        assertEquals(413, responseEntity.getBody().getStatus());
+        assertEquals("The image exceeds the maximum allowed size.", responseEntity.getBody().getMessage());
+    }
 }
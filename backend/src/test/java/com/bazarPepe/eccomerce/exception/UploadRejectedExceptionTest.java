@@ -0,0 +1,15 @@
+package com.bazarPepe.eccomerce.exception;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UploadRejectedExceptionTest {
+
+    @Test
+    void testMessage() {
+        UploadRejectedException exception = new UploadRejectedException("Too many uploads in progress, please try again later.");
+
+        assertEquals("Too many uploads in progress, please try again later.", exception.getMessage());
+    }
+}
@@ -0,0 +1,130 @@
+package com.bazarPepe.eccomerce.id;
+
+import com.bazarPepe.eccomerce.entity.Order;
+import com.bazarPepe.eccomerce.entity.OrderItem;
+import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.repository.OrderRepository;
+import jakarta.persistence.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//COMPARA CUANTAS SENTENCIAS Y CUANTO TIEMPO CUESTA GUARDAR PEDIDOS GRANDES CON IDS SNOWFLAKE (EN LOTES)
+//FRENTE A LAS MISMAS FILAS CON IDENTITY (UN INSERT POR FILA). EN MYSQL CADA SENTENCIA ES ADEMAS UN VIAJE DE RED
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "NODE_ID=0",
+        "spring.jpa.show-sql=false"})
+class OrderBatchInsertBenchmarkTest {
+
+    private static final int ORDERS = 50;
+    private static final int LINES = 40;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testOrderAndItsLinesAreInsertedInBatches() {
+        orderRepository.save(order(LINES));
+        entityManager.flush();
+
+        // Un pedido de 40 lineas: una sentencia para el pedido y otra para todas sus lineas
+        assertEquals(LINES + 1, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void benchmarkBulkInserts() {
+        // Una ronda de calentamiento de cada uno para no medir el JIT
+        insertOrders();
+        insertIdentityRows();
+        entityManager.clear();
+
+        statistics.clear();
+        long start = System.nanoTime();
+        insertOrders();
+        long snowflakeNanos = System.nanoTime() - start;
+        long snowflakeStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        start = System.nanoTime();
+        insertIdentityRows();
+        long identityNanos = System.nanoTime() - start;
+        long identityStatements = statistics.getPrepareStatementCount();
+
+        System.out.printf("%d rows: snowflake %d prepared statements in %d ms, identity %d prepared statements in %d ms%n",
+                ORDERS * (LINES + 1), snowflakeStatements, snowflakeNanos / 1_000_000, identityStatements, identityNanos / 1_000_000);
+        assertEquals(ORDERS * (LINES + 1), identityStatements);
+        assertTrue(snowflakeStatements * 10 < identityStatements);
+    }
+
+    private void insertOrders() {
+        for (int i = 0; i < ORDERS; i++) {
+            orderRepository.save(order(LINES));
+        }
+        entityManager.flush();
+    }
+
+    private void insertIdentityRows() {
+        for (int i = 0; i < ORDERS * (LINES + 1); i++) {
+            entityManager.persist(new IdentityRow(BigDecimal.TEN));
+        }
+        entityManager.flush();
+    }
+
+    private static Order order(int lines) {
+        Order order = new Order();
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setQuantity(1);
+            orderItem.setPrice(BigDecimal.TEN);
+            orderItem.setStatus(OrderStatus.PENDING);
+            orderItem.setOrder(order);
+            orderItems.add(orderItem);
+        }
+        order.setOrderItemList(orderItems);
+        order.setTotalPrice(BigDecimal.TEN.multiply(BigDecimal.valueOf(lines)));
+        return order;
+    }
+
+    // La misma fila con el id de antes
+    @Entity
+    @Table(name = "benchmark_identity_rows")
+    static class IdentityRow {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        private BigDecimal price;
+
+        protected IdentityRow() {
+        }
+
+        IdentityRow(BigDecimal price) {
+            this.price = price;
+        }
+    }
+}
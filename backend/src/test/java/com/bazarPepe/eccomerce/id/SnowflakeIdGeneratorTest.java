@@ -0,0 +1,21 @@
+package com.bazarPepe.eccomerce.id;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void testNodeIdMustBeSetExplicitly() {
+        assertEquals(7, SnowflakeIdGenerator.nodeId("7"));
+        assertEquals(0, SnowflakeIdGenerator.nodeId(" 0 "));
+
+        // Sin configurar no se arranca con el nodo 0: dos instancias repetirian ids
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.nodeId(null));
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.nodeId(""));
+        // Placeholder sin resolver
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.nodeId("${NODE_ID}"));
+        assertThrows(IllegalStateException.class, () -> SnowflakeIdGenerator.nodeId("-1"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.bazarPepe.eccomerce.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdsTest {
+
+    private static final long NOW = SnowflakeIds.EPOCH + 1_000_000L;
+
+    @Test
+    void testIdsAreIncreasingAndCarryTimeAndNode() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIds ids = new SnowflakeIds(3, clock::get);
+
+        long first = ids.next();
+        long second = ids.next();
+        clock.addAndGet(5);
+        long third = ids.next();
+
+        assertTrue(first < second && second < third);
+        assertEquals(NOW, SnowflakeIds.timestampOf(first));
+        assertEquals(NOW + 5, SnowflakeIds.timestampOf(third));
+        assertEquals(3, SnowflakeIds.nodeOf(third));
+    }
+
+    @Test
+    void testSequenceOverflowAndClockGoingBackNeverRepeat() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIds ids = new SnowflakeIds(0, clock::get);
+
+        long previous = 0;
+        // Mas de 128 ids en el mismo milisegundo y despues el reloj retrocede
+        for (int i = 0; i < 1000; i++) {
+            if (i == 500) {
+                clock.addAndGet(-10);
+            }
+            long id = ids.next();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void testConcurrentIdsAreUnique() {
+        SnowflakeIds ids = new SnowflakeIds(1);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> assertTrue(seen.add(ids.next())));
+
+        assertEquals(100_000, seen.size());
+    }
+
+    @Test
+    void testFitsInJavaScriptNumbers() {
+        // Dentro de 60 años el id todavia cabe en 53 bits
+        SnowflakeIds ids = new SnowflakeIds(SnowflakeIds.MAX_NODE_ID, () -> SnowflakeIds.EPOCH + 60L * 365 * 24 * 3600 * 1000);
+
+        assertTrue(ids.next() < 1L << 53);
+    }
+
+    @Test
+    void testRejectsInvalidNode() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIds(SnowflakeIds.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIds(-1));
+    }
+}
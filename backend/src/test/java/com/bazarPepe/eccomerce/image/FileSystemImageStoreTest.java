@@ -0,0 +1,89 @@
+package com.bazarPepe.eccomerce.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemImageStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new FileSystemImageStore(tempDir.toString());
+    }
+
+    @Test
+    void testSaveUsesSha256AsKey() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(new byte[]{1, 2, 3}), "image/png");
+
+        assertEquals("039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81", key);
+        assertTrue(imageStore.exists(key));
+        assertEquals(tempDir.resolve("03").resolve("90").resolve(key), imageStore.localPath(key).orElseThrow());
+    }
+
+    @Test
+    void testSaveDeduplicatesIdenticalImages() throws Exception {
+        String first = imageStore.save(new ByteArrayInputStream("same image".getBytes()), "image/png");
+        String second = imageStore.save(new ByteArrayInputStream("same image".getBytes()), "image/png");
+
+        assertEquals(first, second);
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testOpenReturnsStoredBytes() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream("image bytes".getBytes()), "image/png");
+
+        try (InputStream in = imageStore.open(key)) {
+            assertArrayEquals("image bytes".getBytes(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testUnknownKey() {
+        String key = "0000000000000000000000000000000000000000000000000000000000000000";
+
+        assertFalse(imageStore.exists(key));
+        assertTrue(imageStore.localPath(key).isEmpty());
+    }
+
+    @Test
+    void testRejectsPathTraversalKeys() {
+        assertThrows(IllegalArgumentException.class, () -> imageStore.exists("../../etc/passwd"));
+    }
+
+    @Test
+    void testRejectsKeysThatAreNotHashes() {
+        // Letras y digitos fuera de ASCII o de hex tampoco son claves validas
+        assertThrows(IllegalArgumentException.class, () -> imageStore.exists("abcd\u0661\u0662"));
+        assertThrows(IllegalArgumentException.class, () -> imageStore.exists("ABCDEF"));
+        assertThrows(IllegalArgumentException.class, () -> imageStore.exists("abcd-x320"));
+        assertFalse(imageStore.exists("abcd-w320"));
+    }
+
+    @Test
+    void testSaveVariantUsesGivenKey() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(new byte[]{1, 2, 3}), "image/png");
+
+        imageStore.saveVariant(key + "-w128", "thumbnail".getBytes(), "image/png");
+
+        try (InputStream in = imageStore.open(key + "-w128")) {
+            assertArrayEquals("thumbnail".getBytes(), in.readAllBytes());
+        }
+        assertEquals(tempDir.resolve("03").resolve("90").resolve(key + "-w128"), imageStore.localPath(key + "-w128").orElseThrow());
+    }
+}
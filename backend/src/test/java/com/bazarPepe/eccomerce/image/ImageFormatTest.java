@@ -0,0 +1,39 @@
+package com.bazarPepe.eccomerce.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageFormatTest {
+
+    @Test
+    void testDetectsSupportedFormats() {
+        assertEquals(Optional.of(ImageFormat.JPEG), detect(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals(Optional.of(ImageFormat.PNG), detect(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A));
+        assertEquals(Optional.of(ImageFormat.GIF), detect('G', 'I', 'F', '8', '9', 'a'));
+        assertEquals(Optional.of(ImageFormat.WEBP), detect('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+    }
+
+    @Test
+    void testRejectsUnknownOrTruncatedHeaders() {
+        assertEquals(Optional.empty(), detect('%', 'P', 'D', 'F'));
+        assertEquals(Optional.empty(), detect(0xFF, 0xD8));
+        assertEquals(Optional.empty(), detect('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E'));
+    }
+
+    @Test
+    void testContentTypes() {
+        assertEquals("image/jpeg", ImageFormat.JPEG.getContentType());
+        assertEquals("image/webp", ImageFormat.WEBP.getContentType());
+    }
+
+    private static Optional<ImageFormat> detect(int... bytes) {
+        byte[] header = new byte[ImageFormat.HEADER_LENGTH];
+        for (int i = 0; i < bytes.length; i++) {
+            header[i] = (byte) bytes[i];
+        }
+        return ImageFormat.detect(header, bytes.length);
+    }
+}
@@ -0,0 +1,132 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.exception.ImageTooLargeException;
+import com.bazarPepe.eccomerce.exception.InvalidImageException;
+import com.bazarPepe.eccomerce.exception.UploadRejectedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageIngestorTest {
+
+    private static final byte[] PNG_HEADER = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemImageStore imageStore;
+    private UploadMemoryBudget uploadMemoryBudget;
+    private ImageIngestor imageIngestor;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new FileSystemImageStore(tempDir.toString());
+        uploadMemoryBudget = new UploadMemoryBudget(DataSize.ofKilobytes(8), Duration.ofMillis(50));
+        imageIngestor = new ImageIngestor(imageStore, uploadMemoryBudget, DataSize.ofBytes(1024), DataSize.ofKilobytes(4));
+    }
+
+    @Test
+    void testIngestStoresImageWithSniffedContentType() throws Exception {
+        // El cliente dice JPEG pero los bytes son PNG: manda lo que hay en el fichero
+        MockMultipartFile file = new MockMultipartFile("image", "photo.jpg", "image/jpeg", png(100));
+
+        ProductImageDto image = imageIngestor.ingest(file);
+
+        assertEquals("image/png", image.getContentType());
+        try (InputStream in = imageStore.open(image.getHash())) {
+            assertArrayEquals(png(100), in.readAllBytes());
+        }
+        assertEquals(8 * 1024, uploadMemoryBudget.availableBytes());
+    }
+
+    @Test
+    void testDiscardDeletesTheImageAndItsVariants() throws Exception {
+        ProductImageDto image = imageIngestor.ingest(new MockMultipartFile("image", "photo.png", "image/png", png(100)));
+        String variant = ImageVariant.SMALL.keyFor(image.getHash());
+        imageStore.saveVariant(variant, png(20), "image/png");
+
+        imageIngestor.discard(image.getHash());
+
+        assertFalse(imageStore.exists(image.getHash()));
+        assertFalse(imageStore.exists(variant));
+        // Ya borrada: no falla
+        imageIngestor.discard(image.getHash());
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotImages() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("image", "fake.png", "image/png", "%PDF-1.7 not an image".getBytes());
+
+        InvalidImageException exception = assertThrows(InvalidImageException.class, () -> imageIngestor.ingest(file));
+
+        assertEquals("The provided file is not a valid image.", exception.getMessage());
+        assertNoStoredFiles();
+    }
+
+    @Test
+    void testRejectsImagesOverTheDeclaredSizeCap() {
+        MockMultipartFile file = new MockMultipartFile("image", "big.png", "image/png", png(2048));
+
+        assertThrows(ImageTooLargeException.class, () -> imageIngestor.ingest(file));
+    }
+
+    @Test
+    void testStopsReadingWhenStreamIsLargerThanDeclared() throws Exception {
+        // Tamaño declarado pequeño pero el stream sigue: se corta al pasar el limite
+        MockMultipartFile file = new MockMultipartFile("image", "big.png", "image/png", new byte[0]) {
+            @Override
+            public long getSize() {
+                return 10;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return false;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(png(4096));
+            }
+        };
+
+        assertThrows(ImageTooLargeException.class, () -> imageIngestor.ingest(file));
+        assertNoStoredFiles();
+        assertEquals(8 * 1024, uploadMemoryBudget.availableBytes());
+    }
+
+    @Test
+    void testRejectsUploadWhenMemoryBudgetIsExhausted() {
+        MockMultipartFile file = new MockMultipartFile("image", "photo.png", "image/png", png(100));
+
+        try (UploadMemoryBudget.Lease ignored = uploadMemoryBudget.acquire(DataSize.ofKilobytes(8).toBytes())) {
+            assertThrows(UploadRejectedException.class, () -> imageIngestor.ingest(file));
+        }
+        assertNotNull(imageIngestor.ingest(file).getHash());
+    }
+
+    private static byte[] png(int size) {
+        byte[] content = new byte[size];
+        System.arraycopy(PNG_HEADER, 0, content, 0, PNG_HEADER.length);
+        return content;
+    }
+
+    private void assertNoStoredFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+}
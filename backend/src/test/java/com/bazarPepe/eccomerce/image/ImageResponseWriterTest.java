@@ -0,0 +1,85 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageResponseWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemImageStore imageStore;
+    private ImageResponseWriter imageResponseWriter;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new FileSystemImageStore(tempDir.toString());
+        imageResponseWriter = new ImageResponseWriter(imageStore);
+    }
+
+    @Test
+    void testWritesFileThroughChannelWhenSendfileIsNotAvailable() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream("small image".getBytes()), "image/png");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageResponseWriter.write(key, request, response);
+
+        assertArrayEquals("small image".getBytes(), response.getContentAsByteArray());
+        assertEquals(11, response.getContentLengthLong());
+        assertNull(request.getAttribute(ImageResponseWriter.SENDFILE_FILENAME_ATTR));
+    }
+
+    @Test
+    void testDelegatesLargeFilesToTomcatSendfile() throws Exception {
+        byte[] largeImage = new byte[(int) ImageResponseWriter.SENDFILE_MIN_SIZE];
+        Arrays.fill(largeImage, (byte) 7);
+        String key = imageStore.save(new ByteArrayInputStream(largeImage), "image/png");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(ImageResponseWriter.SENDFILE_SUPPORT_ATTR, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageResponseWriter.write(key, request, response);
+
+        // El cuerpo lo escribe Tomcat directamente desde el fichero
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(imageStore.localPath(key).orElseThrow().toString(), request.getAttribute(ImageResponseWriter.SENDFILE_FILENAME_ATTR));
+        assertEquals(0L, request.getAttribute(ImageResponseWriter.SENDFILE_START_ATTR));
+        assertEquals((long) largeImage.length, request.getAttribute(ImageResponseWriter.SENDFILE_END_ATTR));
+        assertEquals(largeImage.length, response.getContentLengthLong());
+    }
+
+    @Test
+    void testMissingImage() {
+        assertThrows(NotFoundException.class, () -> imageResponseWriter.write(
+                "0000000000000000000000000000000000000000000000000000000000000000",
+                new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testRedirectsToPresignedUrlWhenStoreIsRemote() throws Exception {
+        ImageStore remoteStore = mock(ImageStore.class);
+        when(remoteStore.presignedUrl("abcd")).thenReturn(Optional.of(URI.create("https://bucket.example.com/abcd?X-Amz-Signature=1").toURL()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new ImageResponseWriter(remoteStore).write("abcd", new MockHttpServletRequest(), response);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://bucket.example.com/abcd?X-Amz-Signature=1", response.getRedirectedUrl());
+        assertEquals(ImageResponseWriter.REDIRECT_CACHE_CONTROL, response.getHeader("Cache-Control"));
+        verify(remoteStore, never()).open(any());
+    }
+}
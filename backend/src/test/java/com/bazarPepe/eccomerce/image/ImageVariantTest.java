@@ -0,0 +1,32 @@
+package com.bazarPepe.eccomerce.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageVariantTest {
+
+    @Test
+    void testForWidthPicksSmallestVariantThatCoversIt() {
+        assertEquals(Optional.of(ImageVariant.SMALL), ImageVariant.forWidth(50));
+        assertEquals(Optional.of(ImageVariant.SMALL), ImageVariant.forWidth(128));
+        assertEquals(Optional.of(ImageVariant.MEDIUM), ImageVariant.forWidth(129));
+        assertEquals(Optional.of(ImageVariant.LARGE), ImageVariant.forWidth(800));
+        assertEquals(Optional.empty(), ImageVariant.forWidth(1200));
+    }
+
+    @Test
+    void testKeyIsDerivedFromOriginal() {
+        assertEquals("abcd-w320", ImageVariant.MEDIUM.keyFor("abcd"));
+    }
+
+    @Test
+    void testContentTypeFor() {
+        assertEquals(Optional.of("image/jpeg"), ImageVariant.contentTypeFor("image/jpeg"));
+        assertEquals(Optional.of("image/png"), ImageVariant.contentTypeFor("image/png"));
+        assertEquals(Optional.of("image/png"), ImageVariant.contentTypeFor("image/gif"));
+        assertEquals(Optional.empty(), ImageVariant.contentTypeFor("image/webp"));
+    }
+}
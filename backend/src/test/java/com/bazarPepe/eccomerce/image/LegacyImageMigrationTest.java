@@ -0,0 +1,63 @@
+package com.bazarPepe.eccomerce.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegacyImageMigrationTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3};
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 4, 5, 6};
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private FileSystemImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, image BLOB, image_hash VARCHAR(64), image_content_type VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE product_images (product_id BIGINT PRIMARY KEY, data BLOB, content_type VARCHAR(255))");
+        imageStore = new FileSystemImageStore(tempDir.toString());
+    }
+
+    @Test
+    void testImagesLeaveMySqlOnceTheyAreInTheStore() throws Exception {
+        jdbcTemplate.update("INSERT INTO products (id) VALUES (1)");
+        jdbcTemplate.update("INSERT INTO product_images VALUES (1, ?, 'image/png')", (Object) PNG);
+        jdbcTemplate.update("INSERT INTO products (id, image) VALUES (2, ?)", (Object) JPEG);
+        // Ya subida de nuevo: su copia en product_images sobra y no se vuelve a migrar
+        jdbcTemplate.update("INSERT INTO products (id, image_hash, image_content_type) VALUES (3, 'abcd', 'image/png')");
+        jdbcTemplate.update("INSERT INTO product_images VALUES (3, ?, 'image/png')", (Object) JPEG);
+
+        new LegacyImageMigration(jdbcTemplate, imageStore).run(null);
+
+        String hash = jdbcTemplate.queryForObject("SELECT image_hash FROM products WHERE id = 1", String.class);
+        try (InputStream in = imageStore.open(hash)) {
+            assertArrayEquals(PNG, in.readAllBytes());
+        }
+        assertNotNull(jdbcTemplate.queryForObject("SELECT image_hash FROM products WHERE id = 2", String.class));
+        assertEquals("abcd", jdbcTemplate.queryForObject("SELECT image_hash FROM products WHERE id = 3", String.class));
+        // Los bytes ya no estan en MySQL: ni la tabla de user-001 ni la columna original
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_images", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE image IS NOT NULL", Integer.class));
+    }
+
+    @Test
+    void testNothingToDoWithoutTheOldTables() {
+        jdbcTemplate.execute("DROP TABLE product_images");
+        jdbcTemplate.execute("ALTER TABLE products DROP COLUMN image");
+
+        assertDoesNotThrow(() -> new LegacyImageMigration(jdbcTemplate, imageStore).run(null));
+    }
+}
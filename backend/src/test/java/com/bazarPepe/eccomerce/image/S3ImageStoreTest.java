@@ -0,0 +1,103 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.Upload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class S3ImageStoreTest {
+
+    private static final String KEY = "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
+
+    private AmazonS3 amazonS3;
+    private TransferManager transferManager;
+    private S3ImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        amazonS3 = mock(AmazonS3.class);
+        transferManager = mock(TransferManager.class);
+        when(transferManager.upload(any(PutObjectRequest.class))).thenReturn(mock(Upload.class));
+        imageStore = new S3ImageStore(amazonS3, transferManager, "images", Duration.ofHours(1));
+    }
+
+    @Test
+    void testSaveUploadsUnderContentHash() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(new byte[]{1, 2, 3}), "image/png");
+
+        assertEquals(KEY, key);
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(transferManager).upload(captor.capture());
+        assertEquals("images", captor.getValue().getBucketName());
+        assertEquals(KEY, captor.getValue().getKey());
+        assertEquals("image/png", captor.getValue().getMetadata().getContentType());
+        assertEquals(3, captor.getValue().getMetadata().getContentLength());
+        // El temporal se borra al terminar la subida
+        assertFalse(captor.getValue().getFile().exists());
+    }
+
+    @Test
+    void testSaveSkipsUploadWhenObjectAlreadyExists() throws Exception {
+        when(amazonS3.doesObjectExist("images", KEY)).thenReturn(true);
+
+        String key = imageStore.save(new ByteArrayInputStream(new byte[]{1, 2, 3}), "image/png");
+
+        assertEquals(KEY, key);
+        verify(transferManager, never()).upload(any(PutObjectRequest.class));
+    }
+
+    @Test
+    void testImagesAreNeverServedFromLocalDisk() {
+        assertTrue(imageStore.localPath(KEY).isEmpty());
+    }
+
+    @Test
+    void testPresignedUrlPointsToConfiguredEndpoint() {
+        // Cliente real contra un endpoint local: la firma se calcula sin red
+        AmazonS3 localClient = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:9000", "us-east-1"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("minioadmin", "minioadmin")))
+                .build();
+        S3ImageStore store = new S3ImageStore(localClient, transferManager, "images", Duration.ofHours(1));
+
+        URL url = store.presignedUrl(KEY).orElseThrow();
+
+        assertEquals("localhost", url.getHost());
+        assertEquals(9000, url.getPort());
+        assertEquals("/images/" + KEY, url.getPath());
+        assertTrue(url.getQuery().contains("X-Amz-Signature="));
+        assertTrue(url.getQuery().contains("X-Amz-Expires="));
+    }
+
+    @Test
+    void testRejectsTooShortPresignedUrlTtl() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new S3ImageStore(amazonS3, transferManager, "images", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testSaveVariantPutsObjectUnderGivenKey() throws Exception {
+        imageStore.saveVariant(KEY + "-w320", new byte[]{1, 2}, "image/jpeg");
+
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(amazonS3).putObject(captor.capture());
+        assertEquals(KEY + "-w320", captor.getValue().getKey());
+        assertEquals("image/jpeg", captor.getValue().getMetadata().getContentType());
+        assertEquals(2, captor.getValue().getMetadata().getContentLength());
+    }
+}
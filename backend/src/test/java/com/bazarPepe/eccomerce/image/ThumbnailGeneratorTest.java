@@ -0,0 +1,162 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ThumbnailGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemImageStore imageStore;
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = spy(new FileSystemImageStore(tempDir.toString()));
+        thumbnailGenerator = new ThumbnailGenerator(imageStore, 1, 4, 40_000_000L, 1000, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailGenerator.shutdown();
+    }
+
+    @Test
+    void testGeneratesOnlyVariantsSmallerThanOriginal() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "jpeg")), "image/jpeg");
+
+        thumbnailGenerator.generate(key, "image/jpeg");
+
+        assertEquals(128, read(ImageVariant.SMALL.keyFor(key)).getWidth());
+        assertEquals(64, read(ImageVariant.SMALL.keyFor(key)).getHeight());
+        assertEquals(320, read(ImageVariant.MEDIUM.keyFor(key)).getWidth());
+        // El original mide menos de 800px: no se amplia
+        assertFalse(imageStore.exists(ImageVariant.LARGE.keyFor(key)));
+    }
+
+    @Test
+    void testResolveReturnsVariantOnceGenerated() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "png")), "image/png");
+        ProductImageDto original = new ProductImageDto(key, "image/png");
+
+        assertSame(original, thumbnailGenerator.resolve(original, 100));
+        thumbnailGenerator.generate(key, "image/png");
+
+        ProductImageDto variant = thumbnailGenerator.resolve(original, 100);
+        assertEquals(ImageVariant.SMALL.keyFor(key), variant.getHash());
+        assertEquals("image/png", variant.getContentType());
+        assertSame(original, thumbnailGenerator.resolve(original, null));
+        assertSame(original, thumbnailGenerator.resolve(original, 2000));
+    }
+
+    @Test
+    void testMissingVariantIsCheckedOnce() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "png")), "image/png");
+        ProductImageDto original = new ProductImageDto(key, "image/png");
+
+        assertSame(original, thumbnailGenerator.resolve(original, 100));
+        assertSame(original, thumbnailGenerator.resolve(original, 100));
+        verify(imageStore, times(1)).exists(ImageVariant.SMALL.keyFor(key));
+
+        // Al terminar la generacion se apunta sola: no hace falta volver a preguntar al almacen
+        thumbnailGenerator.generate(key, "image/png");
+        assertEquals(ImageVariant.SMALL.keyFor(key), thumbnailGenerator.resolve(original, 100).getHash());
+        verify(imageStore, times(1)).exists(ImageVariant.SMALL.keyFor(key));
+    }
+
+    @Test
+    void testVariantLargerThanTheOriginalNeverChecksTheStore() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "png")), "image/png");
+        ProductImageDto original = new ProductImageDto(key, "image/png");
+        thumbnailGenerator.generate(key, "image/png");
+
+        assertSame(original, thumbnailGenerator.resolve(original, 800));
+        assertSame(original, thumbnailGenerator.resolve(original, 800));
+
+        verify(imageStore, never()).exists(any());
+    }
+
+    @Test
+    void testMissingVariantIsCheckedAgainLater() throws Exception {
+        thumbnailGenerator = new ThumbnailGenerator(imageStore, 1, 4, 40_000_000L, 1000, Duration.ofMillis(50));
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "png")), "image/png");
+        ProductImageDto original = new ProductImageDto(key, "image/png");
+        thumbnailGenerator.resolve(original, 100);
+
+        // Otra instancia genera la miniatura en el almacen compartido
+        imageStore.saveVariant(ImageVariant.SMALL.keyFor(key), image(128, 64, "png"), "image/png");
+        Thread.sleep(100);
+
+        assertEquals(ImageVariant.SMALL.keyFor(key), thumbnailGenerator.resolve(original, 100).getHash());
+    }
+
+    @Test
+    void testSubmitGeneratesInBackground() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream(image(400, 400, "png")), "image/png");
+
+        thumbnailGenerator.submit(key, "image/png");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!imageStore.exists(ImageVariant.MEDIUM.keyFor(key)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(imageStore.exists(ImageVariant.SMALL.keyFor(key)));
+        assertTrue(imageStore.exists(ImageVariant.MEDIUM.keyFor(key)));
+    }
+
+    @Test
+    void testSkipsImagesOverThePixelLimit() throws Exception {
+        ThumbnailGenerator limited = new ThumbnailGenerator(imageStore, 1, 4, 1000L, 1000, Duration.ofMinutes(10));
+        String key = imageStore.save(new ByteArrayInputStream(image(500, 250, "png")), "image/png");
+
+        limited.generate(key, "image/png");
+        limited.shutdown();
+
+        assertFalse(imageStore.exists(ImageVariant.SMALL.keyFor(key)));
+    }
+
+    @Test
+    void testUnreadableImageIsIgnored() throws Exception {
+        String key = imageStore.save(new ByteArrayInputStream("not really a jpeg".getBytes()), "image/jpeg");
+
+        assertDoesNotThrow(() -> thumbnailGenerator.generate(key, "image/jpeg"));
+        assertFalse(imageStore.exists(ImageVariant.SMALL.keyFor(key)));
+    }
+
+    @Test
+    void testScaleKeepsAspectRatio() {
+        BufferedImage scaled = ThumbnailGenerator.scale(new BufferedImage(3000, 1000, BufferedImage.TYPE_INT_RGB), 320, true);
+
+        assertEquals(320, scaled.getWidth());
+        assertEquals(107, scaled.getHeight());
+    }
+
+    private BufferedImage read(String key) throws Exception {
+        try (InputStream in = imageStore.open(key)) {
+            return ImageIO.read(in);
+        }
+    }
+
+    private static byte[] image(int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+package com.bazarPepe.eccomerce.image;
+
+import com.bazarPepe.eccomerce.exception.UploadRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadMemoryBudgetTest {
+
+    @Test
+    void testLeasesAreReturnedOnClose() {
+        UploadMemoryBudget budget = new UploadMemoryBudget(DataSize.ofKilobytes(64), Duration.ofMillis(10));
+
+        try (UploadMemoryBudget.Lease lease = budget.acquire(DataSize.ofKilobytes(16).toBytes())) {
+            assertEquals(48 * 1024, budget.availableBytes());
+        }
+        assertEquals(64 * 1024, budget.availableBytes());
+    }
+
+    @Test
+    void testRejectsWhenBudgetIsExhausted() {
+        UploadMemoryBudget budget = new UploadMemoryBudget(DataSize.ofKilobytes(64), Duration.ofMillis(10));
+
+        try (UploadMemoryBudget.Lease lease = budget.acquire(DataSize.ofKilobytes(64).toBytes())) {
+            assertThrows(UploadRejectedException.class, () -> budget.acquire(1));
+        }
+    }
+
+    @Test
+    void testQueuesUntilMemoryIsReleased() throws Exception {
+        UploadMemoryBudget budget = new UploadMemoryBudget(DataSize.ofKilobytes(64), Duration.ofSeconds(5));
+        UploadMemoryBudget.Lease first = budget.acquire(DataSize.ofKilobytes(64).toBytes());
+
+        CompletableFuture<UploadMemoryBudget.Lease> waiting = CompletableFuture.supplyAsync(() -> budget.acquire(1024));
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        first.close();
+        waiting.get(1, TimeUnit.SECONDS).close();
+        assertEquals(64 * 1024, budget.availableBytes());
+    }
+
+    @Test
+    void testOversizedRequestsAreCappedToTheWholeBudget() {
+        UploadMemoryBudget budget = new UploadMemoryBudget(DataSize.ofKilobytes(4), Duration.ofMillis(10));
+
+        try (UploadMemoryBudget.Lease lease = budget.acquire(DataSize.ofMegabytes(1).toBytes())) {
+            assertEquals(0, budget.availableBytes());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.bazarPepe.eccomerce.inventory;
+
+import com.bazarPepe.eccomerce.event.StockReservedEvent;
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OutOfStockException;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockLedgerTest {
+
+    private ProductRepository productRepository;
+    private JdbcTemplate jdbcTemplate;
+    //products.stock EN MYSQL; NULL ES UN PRODUCTO SIN CONTROL DE STOCK
+    private final Map<Long, Long> database = new HashMap<>();
+    private final List<Long> updatedProducts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        database.put(1L, 5L);
+        database.put(2L, 1L);
+        database.put(3L, null);
+        when(productRepository.findAllStock()).thenAnswer(invocation -> {
+            synchronized (database) {
+                return database.entrySet().stream()
+                        .filter(row -> row.getValue() != null)
+                        .map(row -> new Object[]{row.getKey(), row.getValue()})
+                        .toList();
+            }
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            return execute(invocation.getArgument(0), Arrays.copyOfRange(arguments, 1, arguments.length));
+        });
+    }
+
+    private StockLedger ledger() {
+        StockLedger ledger = new StockLedger(productRepository, jdbcTemplate, 8);
+        ledger.load();
+        return ledger;
+    }
+
+    @Test
+    void testReservationIsAllOrNothing() {
+        StockLedger ledger = ledger();
+
+        assertThrows(OutOfStockException.class, () -> ledger.reserve(Map.of(1L, 2, 2L, 2)));
+
+        // Ninguna linea se queda reservada si una falla, y sin stock en memoria ni se va a MySQL
+        assertEquals(5L, ledger.getAvailable(1L));
+        assertEquals(1L, ledger.getAvailable(2L));
+        assertEquals(5L, database.get(1L));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testProductsWithoutStockAreNotLimited() {
+        StockLedger ledger = ledger();
+
+        Map<Long, Integer> reserved = ledger.reserve(Map.of(1L, 2, 3L, 1000));
+
+        assertEquals(Map.of(1L, 2), reserved);
+        assertEquals(3L, ledger.getAvailable(1L));
+        assertEquals(3L, database.get(1L));
+        assertNull(ledger.getAvailable(3L));
+        assertNull(database.get(3L));
+    }
+
+    @Test
+    void testConcurrentCheckoutsNeverOversell() throws InterruptedException {
+        database.put(1L, 100L);
+        database.put(2L, 100L);
+        StockLedger ledger = ledger();
+        AtomicInteger placed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            // La mitad de los pedidos llevan los productos en orden inverso: con locks en orden no hay interbloqueo
+            Map<Long, Integer> order = i % 2 == 0 ? Map.of(1L, 1, 2L, 1) : Map.of(2L, 1, 1L, 1);
+            executor.execute(() -> {
+                try {
+                    ledger.reserve(order);
+                    placed.incrementAndGet();
+                } catch (OutOfStockException e) {
+                    // Sin stock
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, placed.get());
+        assertEquals(0L, ledger.getAvailable(1L));
+        assertEquals(0L, database.get(1L));
+        assertEquals(0L, database.get(2L));
+    }
+
+    @Test
+    void testUnitsSoldByAnotherInstanceAreNotSoldAgain() {
+        database.put(2L, 5L);
+        StockLedger ledger = ledger();
+        // Otra instancia vende las 5 unidades del producto 2; la vista de esta aun no lo sabe
+        database.put(2L, 0L);
+
+        assertThrows(OutOfStockException.class, () -> ledger.reserve(Map.of(2L, 1, 1L, 2)));
+
+        // MySQL rechaza la linea y lo ya descontado de la otra se devuelve en la misma transaccion
+        assertEquals(0L, database.get(2L));
+        assertEquals(5L, database.get(1L));
+        assertEquals(5L, ledger.getAvailable(1L));
+        // Las filas se bloquean siempre en orden de producto
+        assertEquals(List.of(1L, 2L, 1L), updatedProducts);
+    }
+
+    @Test
+    void testRolledBackOrderReleasesItsStock() {
+        StockLedger ledger = ledger();
+        Map<Long, Integer> reserved = ledger.reserve(Map.of(1L, 4));
+
+        ledger.onReservationRolledBack(new StockReservedEvent(reserved));
+
+        assertEquals(5L, ledger.getAvailable(1L));
+    }
+
+    @Test
+    void testReconcileKeepsUncommittedReservations() {
+        StockLedger ledger = ledger();
+        Map<Long, Integer> reserved = ledger.reserve(Map.of(1L, 2));
+        // En MySQL el pedido aun sin confirmar no se ve; otra instancia vendio 1 unidad, repuso el 2 y controla el 4
+        when(productRepository.findAllStock()).thenReturn(List.of(new Object[]{1L, 4L}, new Object[]{2L, 10L}, new Object[]{4L, 7L}));
+
+        ledger.reconcile();
+
+        assertEquals(2L, ledger.getAvailable(1L));
+        assertEquals(10L, ledger.getAvailable(2L));
+        assertEquals(7L, ledger.getAvailable(4L));
+
+        // Confirmado, MySQL ya lo tiene descontado
+        ledger.onReservationCommitted(new StockReservedEvent(reserved));
+        when(productRepository.findAllStock()).thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        ledger.reconcile();
+
+        assertEquals(2L, ledger.getAvailable(1L));
+    }
+
+    @Test
+    void testSetStockWritesTheAbsoluteValue() {
+        StockLedger ledger = ledger();
+        ledger.onReservationCommitted(new StockReservedEvent(ledger.reserve(Map.of(1L, 2))));
+        // Otra instancia vendio 2 unidades mas que esta aun no ha visto
+        database.put(1L, 1L);
+
+        ledger.setStock(1L, 10);
+
+        assertEquals(10L, database.get(1L));
+        assertEquals(10L, ledger.getAvailable(1L));
+    }
+
+    @Test
+    void testSetStockStartsTrackingAProduct() {
+        StockLedger ledger = ledger();
+        ledger.setStock(3L, 0);
+
+        assertThrows(OutOfStockException.class, () -> ledger.reserve(Map.of(3L, 1)));
+        // En MySQL pasa de NULL a 0
+        assertEquals(0L, database.get(3L));
+        assertThrows(NotFoundException.class, () -> ledger.setStock(99L, 5));
+    }
+
+    @Test
+    void testDeletedProductsLeaveTheLedger() {
+        StockLedger ledger = ledger();
+
+        database.remove(1L);
+        ledger.remove(1L);
+        assertNull(ledger.getAvailable(1L));
+        // Otra instancia borra el producto 2
+        database.remove(2L);
+        ledger.reconcile();
+
+        assertNull(ledger.getAvailable(1L));
+        assertNull(ledger.getAvailable(2L));
+    }
+
+    private int execute(String sql, Object[] parameters) {
+        synchronized (database) {
+            if (sql.contains("stock - ?")) {
+                long quantity = ((Number) parameters[0]).longValue();
+                Long productId = (Long) parameters[1];
+                updatedProducts.add(productId);
+                if (!database.containsKey(productId)) {
+                    return 0;
+                }
+                Long stock = database.get(productId);
+                if (stock != null && stock < quantity) {
+                    return 0;
+                }
+                database.put(productId, stock == null ? null : stock - quantity);
+                return 1;
+            }
+            if (sql.contains("stock + ?")) {
+                Long productId = (Long) parameters[1];
+                updatedProducts.add(productId);
+                Long stock = database.get(productId);
+                database.put(productId, stock == null ? null : stock + ((Number) parameters[0]).longValue());
+                return 1;
+            }
+            Long productId = (Long) parameters[1];
+            if (!database.containsKey(productId)) {
+                return 0;
+            }
+            database.put(productId, ((Number) parameters[0]).longValue());
+            return 1;
+        }
+    }
+}
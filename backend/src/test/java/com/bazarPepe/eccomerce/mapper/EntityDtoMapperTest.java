@@ -13,6 +13,7 @@ import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class EntityDtoMapperTest {
 
@@ -68,6 +69,57 @@ class EntityDtoMapperTest {
         assertEquals("12345", addressDto.getZipCode());
     }
 
+    @Test
+    void testMapProductToDtoBasic_ImageUrlIsVersionedByHash() {
+        Product product = new Product();
+        product.setId(7L);
+        product.setName("Product Name");
+        product.setImageHash("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+
+        ProductDto productDto = mapper.mapProductToDtoBasic(product);
+
+        assertEquals("/product/7/image?v=0123456789abcdef", productDto.getImageUrl());
+    }
+
+    @Test
+    void testMapProductToDtoBasic_CarriesVersion() {
+        Product product = new Product();
+        product.setId(7L);
+        product.setVersion(3L);
+        product.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        ProductDto productDto = mapper.mapProductToDtoBasic(product);
+
+        assertEquals(3L, productDto.getVersion());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 0), productDto.getUpdatedAt());
+    }
+
+    @Test
+    void testMapProductToDtoBasic_WithoutImage() {
+        Product product = new Product();
+        product.setId(7L);
+
+        ProductDto productDto = mapper.mapProductToDtoBasic(product);
+
+        assertNull(productDto.getImageUrl());
+    }
+
+    @Test
+    void testMapProductSummaryToDto() {
+        ProductSummary summary = new ProductSummary(7L, "Product Name", "Description", BigDecimal.TEN, 3L, "0123456789abcdef0123", 4L, LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        ProductDto productDto = mapper.mapProductSummaryToDto(summary);
+
+        assertEquals(7L, productDto.getId());
+        assertEquals("Product Name", productDto.getName());
+        assertEquals("Description", productDto.getDescription());
+        assertEquals(BigDecimal.TEN, productDto.getPrice());
+        assertEquals("/product/7/image?v=0123456789abcdef", productDto.getImageUrl());
+        // Igual que desde la entidad: el DTO cacheado puede responder con ETag y Last-Modified
+        assertEquals(4L, productDto.getVersion());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 0), productDto.getUpdatedAt());
+    }
+
     @Test
     void testMapOrderItemToDtoPlusProductAndUser() {
         // Preparar entidad Product
@@ -0,0 +1,172 @@
+package com.bazarPepe.eccomerce.order;
+
+import com.bazarPepe.eccomerce.dto.OrderItemRequest;
+import com.bazarPepe.eccomerce.dto.OrderRequest;
+import com.bazarPepe.eccomerce.dto.Response;
+import com.bazarPepe.eccomerce.entity.IdempotencyRecord;
+import com.bazarPepe.eccomerce.entity.User;
+import com.bazarPepe.eccomerce.exception.IdempotencyKeyException;
+import com.bazarPepe.eccomerce.repository.IdempotencyRecordRepository;
+import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
+import com.bazarPepe.eccomerce.service.interfaces.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OrderIdempotencyTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private OrderItemService orderItemService;
+    private UserService userService;
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    private PlatformTransactionManager transactionManager;
+    private OrderIdempotency orderIdempotency;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        orderItemService = mock(OrderItemService.class);
+        userService = mock(UserService.class);
+        idempotencyRecordRepository = mock(IdempotencyRecordRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        user = new User();
+        user.setId(1L);
+        when(userService.getLoginUser()).thenReturn(user);
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(any(), any())).thenReturn(Optional.empty());
+        when(orderItemService.placeOrder(any())).thenReturn(Response.builder().status(200).message("The order has been completed.").build());
+        orderIdempotency = new OrderIdempotency(orderItemService, userService, idempotencyRecordRepository,
+                transactionManager, objectMapper, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    void testWithoutKeyEveryRequestPlacesAnOrder() {
+        orderIdempotency.placeOrder(null, orderRequest(1L, 2));
+        orderIdempotency.placeOrder(null, orderRequest(1L, 2));
+
+        verify(orderItemService, times(2)).placeOrder(any());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void testRetryReplaysTheFirstResponse() {
+        Response first = orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+        Response retry = orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+
+        // El reintento sale de memoria: ni pedido nuevo ni consulta a la tabla
+        assertSame(first, retry);
+        verify(orderItemService, times(1)).placeOrder(any());
+        verify(idempotencyRecordRepository, times(1)).findByUserIdAndIdempotencyKey(1L, "key-1");
+        verify(idempotencyRecordRepository).saveAndFlush(argThat(saved ->
+                saved.getUserId().equals(1L) && saved.getIdempotencyKey().equals("key-1") && saved.getResponse().contains("The order has been completed.")));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testKeyStoredInTheDatabaseIsReplayed() throws Exception {
+        // Otra instancia (o antes de un reinicio) ya atendio esta clave
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setRequestHash(OrderIdempotency.hash(orderRequest(1L, 2)));
+        stored.setResponse(objectMapper.writeValueAsString(Response.builder().status(200).message("The order has been completed.").build()));
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(stored));
+
+        Response response = orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("The order has been completed.", response.getMessage());
+        verify(orderItemService, never()).placeOrder(any());
+    }
+
+    @Test
+    void testKeysAreScopedPerUser() {
+        orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+        User other = new User();
+        other.setId(2L);
+        when(userService.getLoginUser()).thenReturn(other);
+
+        orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+
+        verify(orderItemService, times(2)).placeOrder(any());
+    }
+
+    @Test
+    void testKeyReusedForADifferentOrderIsRejected() {
+        orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+
+        assertThrows(IdempotencyKeyException.class, () -> orderIdempotency.placeOrder("key-1", orderRequest(1L, 3)));
+        assertThrows(IdempotencyKeyException.class, () -> orderIdempotency.placeOrder("k".repeat(OrderIdempotency.MAX_KEY_LENGTH + 1), orderRequest(1L, 2)));
+        verify(orderItemService, times(1)).placeOrder(any());
+    }
+
+    @Test
+    void testLostRaceReplaysTheWinner() throws Exception {
+        IdempotencyRecord winner = new IdempotencyRecord();
+        winner.setRequestHash(OrderIdempotency.hash(orderRequest(1L, 2)));
+        winner.setResponse(objectMapper.writeValueAsString(Response.builder().status(200).message("Placed by another node").build()));
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty(), Optional.of(winner));
+        when(idempotencyRecordRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        Response response = orderIdempotency.placeOrder("key-1", orderRequest(1L, 2));
+
+        // El pedido propio se deshace y se devuelve el de la otra instancia
+        assertEquals("Placed by another node", response.getMessage());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testConcurrentRetriesPlaceOneOrder() throws Exception {
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderItemService.placeOrder(any())).thenAnswer(invocation -> {
+            placing.countDown();
+            release.await();
+            return Response.builder().status(200).build();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response> first = executor.submit(() -> orderIdempotency.placeOrder("key-1", orderRequest(1L, 2)));
+            placing.await();
+            Future<Response> second = executor.submit(() -> orderIdempotency.placeOrder("key-1", orderRequest(1L, 2)));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertSame(first.get(), second.get());
+            verify(orderItemService, times(1)).placeOrder(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPurgeDeletesExpiredKeys() {
+        orderIdempotency.purgeExpired();
+
+        verify(idempotencyRecordRepository).deleteCreatedBefore(any());
+    }
+
+    private static OrderRequest orderRequest(Long productId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item));
+        orderRequest.setTotalPrice(BigDecimal.TEN);
+        return orderRequest;
+    }
+}
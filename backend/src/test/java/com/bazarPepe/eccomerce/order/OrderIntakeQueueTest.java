@@ -0,0 +1,229 @@
+package com.bazarPepe.eccomerce.order;
+
+import com.bazarPepe.eccomerce.dto.OrderIntakeDto;
+import com.bazarPepe.eccomerce.dto.OrderItemRequest;
+import com.bazarPepe.eccomerce.dto.OrderRequest;
+import com.bazarPepe.eccomerce.entity.User;
+import com.bazarPepe.eccomerce.enums.OrderIntakeStatus;
+import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OrderIntakeRejectedException;
+import com.bazarPepe.eccomerce.service.interfaces.OrderItemService;
+import com.bazarPepe.eccomerce.service.interfaces.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OrderIntakeQueueTest {
+
+    private OrderItemService orderItemService;
+    private UserService userService;
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @BeforeEach
+    void setUp() {
+        orderItemService = mock(OrderItemService.class);
+        userService = mock(UserService.class);
+        User user = new User();
+        user.setId(1L);
+        when(userService.getLoginUser()).thenReturn(user);
+        // Guarda todos los pedidos del lote dandoles un id
+        when(orderItemService.placeQueuedOrders(anyList())).thenAnswer(invocation -> invocation.<List<QueuedOrder>>getArgument(0).stream()
+                .collect(Collectors.toMap(QueuedOrder::reference, order -> 100L)));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orderIntakeQueue.shutdown();
+    }
+
+    private OrderIntakeQueue queue(int capacity, int workers) {
+        OrderIntakeQueue queue = new OrderIntakeQueue(orderItemService, userService, capacity, workers, 20, Duration.ofHours(1), Duration.ofSeconds(5));
+        queue.start();
+        return queue;
+    }
+
+    @Test
+    void testWorkersStartWithTheLifecycle() throws InterruptedException {
+        orderIntakeQueue = new OrderIntakeQueue(orderItemService, userService, 10, 1, 20, Duration.ofHours(1), Duration.ofSeconds(5));
+        String reference = orderIntakeQueue.submit(orderRequest()).getReference();
+
+        // Sin arrancar nadie guarda los pedidos
+        Thread.sleep(100);
+        assertFalse(orderIntakeQueue.isRunning());
+        assertEquals(1, orderIntakeQueue.getQueuedCount());
+
+        orderIntakeQueue.start();
+
+        assertTrue(orderIntakeQueue.isRunning());
+        assertEquals(OrderIntakeStatus.COMPLETED, awaitDone(reference).getStatus());
+    }
+
+    @Test
+    void testQueuedOrderIsPlacedInBackground() throws InterruptedException {
+        orderIntakeQueue = queue(10, 1);
+
+        OrderIntakeDto queued = orderIntakeQueue.submit(orderRequest());
+        assertEquals(OrderIntakeStatus.QUEUED, queued.getStatus());
+
+        OrderIntakeDto status = awaitDone(queued.getReference());
+        assertEquals(OrderIntakeStatus.COMPLETED, status.getStatus());
+        assertEquals(100L, status.getOrderId());
+    }
+
+    @Test
+    void testFullQueueRejectsOrders() {
+        orderIntakeQueue = queue(1, 0);
+        orderIntakeQueue.submit(orderRequest());
+
+        assertThrows(OrderIntakeRejectedException.class, () -> orderIntakeQueue.submit(orderRequest()));
+        assertEquals(1, orderIntakeQueue.getQueuedCount());
+    }
+
+    @Test
+    void testFailingOrderDoesNotFailItsBatch() {
+        orderIntakeQueue = queue(10, 0);
+        QueuedOrder good = new QueuedOrder("good", userService.getLoginUser(), orderRequest());
+        QueuedOrder bad = new QueuedOrder("bad", userService.getLoginUser(), orderRequest());
+        QueuedOrder missingProduct = new QueuedOrder("missing", userService.getLoginUser(), orderRequest());
+        when(orderItemService.placeQueuedOrders(anyList())).thenAnswer(invocation -> {
+            List<QueuedOrder> batch = invocation.getArgument(0);
+            if (batch.contains(bad)) {
+                throw new IllegalStateException("Deadlock found when trying to get lock");
+            }
+            return batch.contains(good) ? Map.of("good", 7L) : Map.of();
+        });
+
+        orderIntakeQueue.persist(List.of(good, bad, missingProduct));
+
+        // El lote falla y se reintenta de uno en uno
+        verify(orderItemService, times(4)).placeQueuedOrders(anyList());
+    }
+
+    @Test
+    void testStatusIsOnlyVisibleToItsOwner() {
+        orderIntakeQueue = queue(10, 0);
+        String reference = orderIntakeQueue.submit(orderRequest()).getReference();
+        User other = new User();
+        other.setId(2L);
+        when(userService.getLoginUser()).thenReturn(other);
+
+        assertThrows(NotFoundException.class, () -> orderIntakeQueue.getStatus(reference));
+        assertThrows(NotFoundException.class, () -> orderIntakeQueue.getStatus("unknown"));
+    }
+
+    @Test
+    void testShutdownDrainsTheQueue() throws InterruptedException {
+        orderIntakeQueue = queue(100, 2);
+        for (int i = 0; i < 50; i++) {
+            orderIntakeQueue.submit(orderRequest());
+        }
+
+        orderIntakeQueue.shutdown();
+
+        assertEquals(0, orderIntakeQueue.getQueuedCount());
+        assertThrows(OrderIntakeRejectedException.class, () -> orderIntakeQueue.submit(orderRequest()));
+    }
+
+    @Test
+    void testOrdersLeftOnShutdownAreMarkedFailed() throws InterruptedException {
+        orderIntakeQueue = new OrderIntakeQueue(orderItemService, userService, 10, 0, 20, Duration.ofHours(1), Duration.ofMillis(50));
+        orderIntakeQueue.start();
+        String reference = orderIntakeQueue.submit(orderRequest()).getReference();
+
+        orderIntakeQueue.stop();
+
+        // Sin tiempo para guardarlo: la referencia que ya tiene el cliente dice que no se hizo
+        OrderIntakeDto status = orderIntakeQueue.getStatus(reference);
+        assertEquals(OrderIntakeStatus.FAILED, status.getStatus());
+        assertEquals(0, orderIntakeQueue.getQueuedCount());
+        assertFalse(orderIntakeQueue.isRunning());
+        verify(orderItemService, never()).placeQueuedOrders(anyList());
+    }
+
+    @Test
+    void testOrderBeingPlacedOnShutdownIsMarkedFailed() throws InterruptedException {
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Una escritura en MySQL que no atiende a la interrupcion del hilo
+        when(orderItemService.placeQueuedOrders(anyList())).thenAnswer(invocation -> {
+            placing.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return Map.of();
+                } catch (InterruptedException e) {
+                    // Se ignora
+                }
+            }
+        });
+        orderIntakeQueue = new OrderIntakeQueue(orderItemService, userService, 10, 1, 20, Duration.ofHours(1), Duration.ofMillis(50));
+        orderIntakeQueue.start();
+        String reference = orderIntakeQueue.submit(orderRequest()).getReference();
+        assertTrue(placing.await(5, TimeUnit.SECONDS));
+        assertEquals(OrderIntakeStatus.PROCESSING, orderIntakeQueue.getStatus(reference).getStatus());
+
+        orderIntakeQueue.stop();
+
+        assertEquals(OrderIntakeStatus.FAILED, orderIntakeQueue.getStatus(reference).getStatus());
+        assertFalse(orderIntakeQueue.isRunning());
+        release.countDown();
+    }
+
+    @Test
+    void testNoOrderIsLeftQueuedWhenSubmittedDuringShutdown() throws InterruptedException {
+        orderIntakeQueue = queue(1000, 2);
+        List<String> accepted = new CopyOnWriteArrayList<>();
+        Thread client = Thread.ofVirtual().start(() -> {
+            while (true) {
+                try {
+                    accepted.add(orderIntakeQueue.submit(orderRequest()).getReference());
+                } catch (OrderIntakeRejectedException e) {
+                    if (!orderIntakeQueue.isRunning()) {
+                        return;
+                    }
+                }
+            }
+        });
+        Thread.sleep(50);
+
+        orderIntakeQueue.shutdown();
+        client.join();
+
+        // Todo pedido aceptado acaba guardado o fallido, ninguno se queda en la cola para siempre
+        assertFalse(accepted.isEmpty());
+        for (String reference : accepted) {
+            assertNotEquals(OrderIntakeStatus.QUEUED, orderIntakeQueue.getStatus(reference).getStatus());
+        }
+    }
+
+    private OrderIntakeDto awaitDone(String reference) throws InterruptedException {
+        OrderIntakeDto status = orderIntakeQueue.getStatus(reference);
+        for (int i = 0; i < 100 && (status.getStatus() == OrderIntakeStatus.QUEUED
+                || status.getStatus() == OrderIntakeStatus.PROCESSING); i++) {
+            Thread.sleep(20);
+            status = orderIntakeQueue.getStatus(reference);
+        }
+        return status;
+    }
+
+    private static OrderRequest orderRequest() {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(1L);
+        item.setQuantity(1);
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item));
+        return orderRequest;
+    }
+}
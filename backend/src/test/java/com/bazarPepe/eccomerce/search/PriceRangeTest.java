@@ -0,0 +1,28 @@
+package com.bazarPepe.eccomerce.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriceRangeTest {
+
+    @Test
+    void testOfUsesExclusiveUpperBounds() {
+        assertEquals(Optional.of(PriceRange.UNDER_10), PriceRange.of(new BigDecimal("9.99")));
+        assertEquals(Optional.of(PriceRange.FROM_10_TO_25), PriceRange.of(BigDecimal.TEN));
+        assertEquals(Optional.of(PriceRange.FROM_100_TO_250), PriceRange.of(new BigDecimal("249.99")));
+        assertEquals(Optional.of(PriceRange.OVER_250), PriceRange.of(new BigDecimal("10000")));
+        assertEquals(Optional.empty(), PriceRange.of(null));
+        assertEquals(Optional.empty(), PriceRange.of(new BigDecimal("-1")));
+    }
+
+    @Test
+    void testFromKey() {
+        assertEquals(Optional.of(PriceRange.FROM_25_TO_50), PriceRange.fromKey("25-50"));
+        assertEquals(Optional.of(PriceRange.OVER_250), PriceRange.fromKey("250+"));
+        assertEquals(Optional.empty(), PriceRange.fromKey("cheap"));
+    }
+}
@@ -0,0 +1,210 @@
+package com.bazarPepe.eccomerce.search;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllSummaries()).thenReturn(List.of(
+                product(1L, 1L, "Camisa de algodón", "Camisa blanca de manga larga", 20),
+                product(2L, 1L, "Pantalón vaquero", "Pantalón azul con bolsillos", 40),
+                product(3L, 2L, "Taza de cerámica", "Taza blanca para café", 8),
+                product(4L, 1L, "Camiseta técnica", "Para correr, tejido transpirable", 15)
+        ));
+        productSearchIndex = new ProductSearchIndex(productRepository, 200);
+    }
+
+    @Test
+    void testNotReadyUntilBuilt() {
+        assertFalse(productSearchIndex.isReady());
+
+        productSearchIndex.rebuild();
+
+        assertTrue(productSearchIndex.isReady());
+    }
+
+    @Test
+    void testMatchesIgnoringCaseAndAccents() {
+        productSearchIndex.rebuild();
+
+        assertEquals(List.of(2L), ids(productSearchIndex.search("PANTALON")));
+        assertEquals(List.of(3L), ids(productSearchIndex.search("cerámica")));
+    }
+
+    @Test
+    void testNameMatchesRankAboveDescriptionMatches() {
+        productSearchIndex.rebuild();
+
+        // "blanca" solo esta en descripciones; "taza" en el nombre de la 3
+        assertEquals(3L, ids(productSearchIndex.search("taza blanca")).get(0));
+        assertEquals(List.of(3L, 1L), ids(productSearchIndex.search("taza blanca")));
+    }
+
+    @Test
+    void testPrefixMatchesButExactWordWins() {
+        productSearchIndex.rebuild();
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(product(5L, 2L, "Taz", "Juego de mesa")));
+
+        // "taz" es exacto para la 5 y prefijo de "taza" en la 3
+        assertEquals(List.of(5L, 3L), ids(productSearchIndex.search("taz")));
+        assertEquals(2, productSearchIndex.search("cami").size());
+        assertEquals(List.of(4L), ids(productSearchIndex.search("camiset")));
+        assertTrue(productSearchIndex.search("zapato").isEmpty());
+    }
+
+    @Test
+    void testProductsMatchingAllWordsComeFirst() {
+        productSearchIndex.rebuild();
+
+        List<Long> results = ids(productSearchIndex.search("camisa manga"));
+
+        assertEquals(1L, results.get(0));
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        productSearchIndex.rebuild();
+
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(product(5L, 2L, "Tetera", "Tetera de hierro")));
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(product(2L, 1L, "Chaqueta vaquera", "Chaqueta azul")));
+        productSearchIndex.onProductChanged(ProductChangedEvent.deleted(3L));
+
+        assertEquals(List.of(5L), ids(productSearchIndex.search("tetera")));
+        assertTrue(productSearchIndex.search("pantalon").isEmpty());
+        assertEquals(List.of(2L), ids(productSearchIndex.search("chaqueta")));
+        assertTrue(productSearchIndex.search("taza").isEmpty());
+    }
+
+    @Test
+    void testDeletingCategoryRemovesItsProducts() {
+        productSearchIndex.rebuild();
+
+        productSearchIndex.onCategoryChanged(new CategoryChangedEvent(1L, true));
+
+        assertTrue(productSearchIndex.search("camisa").isEmpty());
+        assertEquals(List.of(3L), ids(productSearchIndex.search("taza")));
+    }
+
+    @Test
+    void testCorrectsMisspelledWords() {
+        productSearchIndex.rebuild();
+
+        assertEquals(Optional.of("pantalon"), productSearchIndex.correct("pantlaon"));
+        assertEquals(Optional.of("taza blanca"), productSearchIndex.correct("tzaa blanca"));
+        assertEquals(List.of(2L), ids(productSearchIndex.search(productSearchIndex.correct("pantlaon").orElseThrow())));
+    }
+
+    @Test
+    void testNoCorrectionForKnownOrHopelessWords() {
+        productSearchIndex.rebuild();
+
+        assertEquals(Optional.empty(), productSearchIndex.correct("camisa"));
+        // Los prefijos tambien son conocidos
+        assertEquals(Optional.empty(), productSearchIndex.correct("cami"));
+        assertEquals(Optional.empty(), productSearchIndex.correct("ordenador"));
+        assertEquals(Optional.empty(), productSearchIndex.correct("xz"));
+    }
+
+    @Test
+    void testCorrectionsFollowIncrementalUpdates() {
+        productSearchIndex.rebuild();
+
+        productSearchIndex.onProductChanged(ProductChangedEvent.deleted(2L));
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(product(5L, 2L, "Tetera", "Tetera de hierro")));
+
+        assertEquals(Optional.empty(), productSearchIndex.correct("pantlaon"));
+        assertEquals(Optional.of("tetera"), productSearchIndex.correct("tetrea"));
+    }
+
+    @Test
+    void testFacetCountsFromBitsets() {
+        productSearchIndex.rebuild();
+
+        SearchResult result = productSearchIndex.search("blanca", null, null);
+
+        assertEquals(2, result.getTotalMatches());
+        assertEquals(Map.of(1L, 1, 2L, 1), result.getCategoryCounts());
+        assertEquals(Map.of(PriceRange.FROM_10_TO_25, 1, PriceRange.UNDER_10, 1), result.getPriceRangeCounts());
+    }
+
+    @Test
+    void testFiltersAndDisjunctiveCounts() {
+        productSearchIndex.rebuild();
+
+        SearchResult result = productSearchIndex.search("blanca", 2L, null);
+
+        assertEquals(List.of(3L), ids(result.getProducts()));
+        // La faceta de categoria no se filtra por si misma: sigue mostrando la otra categoria
+        assertEquals(Map.of(1L, 1, 2L, 1), result.getCategoryCounts());
+        assertEquals(Map.of(PriceRange.UNDER_10, 1), result.getPriceRangeCounts());
+
+        SearchResult byPrice = productSearchIndex.search("blanca", null, PriceRange.FROM_10_TO_25);
+        assertEquals(List.of(1L), ids(byPrice.getProducts()));
+        assertEquals(Map.of(1L, 1), byPrice.getCategoryCounts());
+    }
+
+    @Test
+    void testFacetsFollowIncrementalUpdates() {
+        productSearchIndex.rebuild();
+
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(
+                new ProductSummary(3L, "Taza de cerámica", "Taza blanca para café", BigDecimal.valueOf(300), 5L, null, 0L, null)));
+        productSearchIndex.onProductChanged(ProductChangedEvent.deleted(1L));
+
+        SearchResult result = productSearchIndex.search("blanca", null, null);
+        assertEquals(Map.of(5L, 1), result.getCategoryCounts());
+        assertEquals(Map.of(PriceRange.OVER_250, 1), result.getPriceRangeCounts());
+    }
+
+    @Test
+    void testStaleRebuildDoesNotUndoAnAppliedChange() {
+        productSearchIndex.rebuild();
+        long observed = productSearchIndex.changeCount();
+        List<ProductSummary> read = productRepository.findAllSummaries();
+        // El cambio llega entre la lectura y la reconstruccion
+        productSearchIndex.onProductChanged(ProductChangedEvent.saved(product(2L, 1L, "Chaqueta vaquera", "Chaqueta azul")));
+
+        assertFalse(productSearchIndex.rebuild(read, observed));
+
+        assertEquals(List.of(2L), ids(productSearchIndex.search("chaqueta")));
+        assertTrue(productSearchIndex.rebuild(read, productSearchIndex.changeCount()));
+    }
+
+    @Test
+    void testResultsAreCapped() {
+        productSearchIndex = new ProductSearchIndex(productRepository, 1);
+        productSearchIndex.rebuild();
+
+        assertEquals(1, productSearchIndex.search("blanca").size());
+    }
+
+    private static ProductSummary product(Long id, Long categoryId, String name, String description) {
+        return product(id, categoryId, name, description, 10);
+    }
+
+    private static ProductSummary product(Long id, Long categoryId, String name, String description, int price) {
+        return new ProductSummary(id, name, description, BigDecimal.valueOf(price), categoryId, null, 0L, null);
+    }
+
+    private static List<Long> ids(List<ProductSummary> products) {
+        return products.stream().map(ProductSummary::getId).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bazarPepe.eccomerce.search;
+
+import com.bazarPepe.eccomerce.dto.ProductSummary;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
+import com.bazarPepe.eccomerce.event.OrderPlacedEvent;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
+import com.bazarPepe.eccomerce.repository.OrderItemRepository;
+import com.bazarPepe.eccomerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSuggesterTest {
+
+    private ProductRepository productRepository;
+    private OrderItemRepository orderItemRepository;
+    private ProductSuggester productSuggester;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        when(productRepository.findAllSummaries()).thenReturn(List.of(
+                product(1L, "Camisa de algodón"),
+                product(2L, "Camiseta técnica"),
+                product(3L, "Cámara de fotos"),
+                product(4L, "Taza de cerámica")
+        ));
+        List<Object[]> sales = new ArrayList<>();
+        sales.add(new Object[]{2L, 10L});
+        sales.add(new Object[]{3L, 5L});
+        when(orderItemRepository.sumQuantitiesByProduct()).thenReturn(sales);
+        productSuggester = new ProductSuggester(productRepository, orderItemRepository);
+        productSuggester.rebuild();
+    }
+
+    @Test
+    void testRanksByPopularity() {
+        assertEquals(List.of("Camiseta técnica", "Cámara de fotos", "Camisa de algodón"), productSuggester.suggest("ca", 10));
+        assertEquals(List.of("Camiseta técnica", "Camisa de algodón"), productSuggester.suggest("cami", 10));
+    }
+
+    @Test
+    void testMatchesAnyWordIgnoringAccentsAndCase() {
+        assertEquals(List.of("Camisa de algodón"), productSuggester.suggest("ALGO", 10));
+        assertEquals(List.of("Taza de cerámica"), productSuggester.suggest("ceram", 10));
+        assertEquals(List.of("Camisa de algodón"), productSuggester.suggest("camisa de al", 10));
+    }
+
+    @Test
+    void testLimitAndEmptyPrefix() {
+        assertEquals(List.of("Camiseta técnica"), productSuggester.suggest("c", 1));
+        assertTrue(productSuggester.suggest("  ", 10).isEmpty());
+        assertTrue(productSuggester.suggest("zz", 10).isEmpty());
+        assertTrue(productSuggester.suggest("zapato", 10).isEmpty());
+    }
+
+    @Test
+    void testProductChangesArePatched() {
+        productSuggester.onProductChanged(ProductChangedEvent.saved(product(5L, "Camisola")));
+        productSuggester.onProductChanged(ProductChangedEvent.deleted(2L));
+
+        assertEquals(List.of("Camisola", "Camisa de algodón"), productSuggester.suggest("cami", 10));
+    }
+
+    @Test
+    void testOrdersChangeRankingOnRefresh() {
+        productSuggester.onOrderPlaced(new OrderPlacedEvent(Map.of(1L, 50)));
+
+        // Hasta el refresco se mantiene el orden anterior
+        assertEquals("Camiseta técnica", productSuggester.suggest("cami", 10).get(0));
+
+        productSuggester.refreshPopularity();
+
+        assertEquals("Camisa de algodón", productSuggester.suggest("cami", 10).get(0));
+    }
+
+    @Test
+    void testDeletedCategoryReloadsFromRepository() {
+        when(productRepository.findAllSummaries()).thenReturn(List.of(product(4L, "Taza de cerámica")));
+
+        productSuggester.onCategoryChanged(new CategoryChangedEvent(1L, true));
+
+        assertTrue(productSuggester.suggest("cami", 10).isEmpty());
+        assertEquals(List.of("Taza de cerámica"), productSuggester.suggest("ta", 10));
+    }
+
+    @Test
+    void testStaleRebuildIsSkipped() {
+        long observed = productSuggester.changeCount();
+        List<ProductSummary> read = productRepository.findAllSummaries();
+        productSuggester.onProductChanged(ProductChangedEvent.saved(product(5L, "Camisola")));
+
+        assertFalse(productSuggester.rebuild(read, observed));
+
+        assertTrue(productSuggester.suggest("cami", 10).contains("Camisola"));
+    }
+
+    @Test
+    void testDuplicateNamesAreSuggestedOnce() {
+        productSuggester.onProductChanged(ProductChangedEvent.saved(product(6L, "Taza de cerámica")));
+
+        assertEquals(List.of("Taza de cerámica"), productSuggester.suggest("taza", 10));
+    }
+
+    private static ProductSummary product(Long id, String name) {
+        return new ProductSummary(id, name, "", BigDecimal.ONE, 1L, null, 0L, null);
+    }
+}
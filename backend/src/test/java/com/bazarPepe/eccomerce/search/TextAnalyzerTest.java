@@ -0,0 +1,26 @@
+package com.bazarPepe.eccomerce.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextAnalyzerTest {
+
+    @Test
+    void testLowercasesAndStripsAccents() {
+        assertEquals(List.of("camion", "electrico", "pequeno"), TextAnalyzer.tokenize("Camión ELÉCTRICO pequeño"));
+    }
+
+    @Test
+    void testSplitsOnPunctuation() {
+        assertEquals(List.of("usb", "c", "cable", "2m"), TextAnalyzer.tokenize("USB-C cable, 2m!"));
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertEquals(List.of(), TextAnalyzer.tokenize(null));
+        assertEquals(List.of(), TextAnalyzer.tokenize("  ,.; "));
+    }
+}
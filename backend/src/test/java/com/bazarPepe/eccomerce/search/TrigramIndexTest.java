@@ -0,0 +1,71 @@
+package com.bazarPepe.eccomerce.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    @Test
+    void testCandidatesAreOrderedBySimilarity() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("camisa");
+        index.add("camiseta");
+        index.add("pantalon");
+
+        List<String> candidates = index.candidates("camsia", 0.2, 10);
+
+        assertEquals("camisa", candidates.get(0));
+        assertFalse(candidates.contains("pantalon"));
+    }
+
+    @Test
+    void testRemovedTermsAreNotReturnedAndIdsAreReused() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("camisa");
+        index.add("taza");
+        index.remove("camisa");
+        index.add("tetera");
+
+        assertEquals(2, index.size());
+        assertTrue(index.candidates("camisa", 0.1, 10).isEmpty());
+        assertEquals(List.of("tetera"), index.candidates("tetera", 0.9, 10));
+    }
+
+    @Test
+    void testAddingTheSameTermTwiceIsIgnored() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("taza");
+        index.add("taza");
+
+        assertEquals(1, index.size());
+        assertEquals(List.of("taza"), index.candidates("taza", 0.5, 10));
+    }
+
+    @Test
+    void testTrigramsAreDistinctAndPadded() {
+        // $$a, $aa, aaa, aa$
+        assertEquals(4, TrigramIndex.trigrams("aaaa").length);
+        assertEquals(2, TrigramIndex.trigrams("a").length);
+    }
+
+    @Test
+    void testEditDistanceCountsTranspositionAsOneEdit() {
+        assertEquals(0, TrigramIndex.editDistance("camisa", "camisa"));
+        assertEquals(1, TrigramIndex.editDistance("camsia", "camisa"));
+        assertEquals(1, TrigramIndex.editDistance("camisas", "camisa"));
+        assertEquals(2, TrigramIndex.editDistance("kamiza", "camisa"));
+    }
+
+    @Test
+    void testHandlesManyTerms() {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < 20_000; i++) {
+            index.add("producto" + i);
+        }
+
+        assertEquals("producto12345", index.candidates("prodcto12345", 0.3, 5).get(0));
+    }
+}
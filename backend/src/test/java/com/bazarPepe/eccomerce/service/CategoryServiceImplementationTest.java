@@ -3,6 +3,7 @@ package com.bazarPepe.eccomerce.service;
 import com.bazarPepe.eccomerce.dto.CategoryDto;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.entity.Category;
+import com.bazarPepe.eccomerce.event.CategoryChangedEvent;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
 import com.bazarPepe.eccomerce.repository.CategoryRepository;
@@ -12,6 +13,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +34,9 @@ class CategoryServiceImplementationTest {
     @Mock
     private EntityDtoMapper entityDtoMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private Category mockCategory;
     private CategoryDto mockCategoryDto;
 
@@ -125,6 +131,91 @@ class CategoryServiceImplementationTest {
         assertEquals("Electronics", response.getCategoryList().get(0).getName());
     }
 
+    @Test
+    void testGetAllCategories_ServedFromSnapshot() {
+        when(categoryRepository.findAll()).thenReturn(List.of(mockCategory));
+        when(entityDtoMapper.mapCategoryToDtoBasic(mockCategory)).thenReturn(mockCategoryDto);
+
+        Response first = categoryService.getAllCategories();
+        Response second = categoryService.getAllCategories();
+
+        // Solo la primera lectura va a la base de datos
+        verify(categoryRepository, times(1)).findAll();
+        assertSame(first.getCategoryList(), second.getCategoryList());
+        assertThrows(UnsupportedOperationException.class, () -> second.getCategoryList().add(new CategoryDto()));
+    }
+
+    @Test
+    void testGetAllCategories_RebuiltAfterChange() {
+        when(categoryRepository.findAll()).thenReturn(List.of(mockCategory));
+        when(entityDtoMapper.mapCategoryToDtoBasic(any(Category.class)))
+                .thenAnswer(invocation -> new EntityDtoMapper().mapCategoryToDtoBasic(invocation.getArgument(0)));
+        categoryService.getAllCategories();
+
+        Category newCategory = new Category();
+        newCategory.setId(2L);
+        newCategory.setName("Books");
+        when(categoryRepository.findAll()).thenReturn(List.of(mockCategory, newCategory));
+        CategoryDto request = new CategoryDto();
+        request.setName("Books");
+        categoryService.createCategory(request);
+
+        Response response = categoryService.getAllCategories();
+
+        assertEquals(2, response.getCategoryList().size());
+        verify(categoryRepository, times(2)).findAll();
+    }
+
+    @Test
+    void testCreateCategory_SnapshotFailureDoesNotFailChange() {
+        when(categoryRepository.findAll()).thenThrow(new RuntimeException("Connection refused")).thenReturn(List.of(mockCategory));
+        when(entityDtoMapper.mapCategoryToDtoBasic(mockCategory)).thenReturn(mockCategoryDto);
+
+        Response response = categoryService.createCategory(mockCategoryDto);
+
+        assertEquals(200, response.getStatus());
+        // La siguiente lectura vuelve a cargar la foto
+        assertEquals(1, categoryService.getAllCategories().getCategoryList().size());
+    }
+
+    @Test
+    void testGetAllCategories_StaleSnapshotServedWhileDatabaseIsDown() {
+        when(entityDtoMapper.mapCategoryToDtoBasic(any(Category.class)))
+                .thenAnswer(invocation -> new EntityDtoMapper().mapCategoryToDtoBasic(invocation.getArgument(0)));
+        when(categoryRepository.findAll()).thenReturn(List.of(mockCategory));
+        categoryService.getAllCategories();
+
+        // La reconstruccion tras el cambio y la siguiente lectura fallan: se sirve la foto anterior
+        when(categoryRepository.findAll()).thenThrow(new QueryTimeoutException("Query timed out"));
+        categoryService.createCategory(mockCategoryDto);
+        Response response = categoryService.getAllCategories();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("Electronics", response.getCategoryList().get(0).getName());
+        // Mientras tanto no se insiste en cada lectura
+        categoryService.getAllCategories();
+        verify(categoryRepository, times(3)).findAll();
+    }
+
+    @Test
+    void testGetAllCategories_DatabaseDownWithoutSnapshot() {
+        when(categoryRepository.findAll()).thenThrow(new QueryTimeoutException("Query timed out"));
+
+        assertThrows(QueryTimeoutException.class, () -> categoryService.getAllCategories());
+    }
+
+    @Test
+    void testGetCategoryById_StaleWhileDatabaseIsDown() {
+        when(entityDtoMapper.mapCategoryToDtoBasic(any(Category.class)))
+                .thenAnswer(invocation -> new EntityDtoMapper().mapCategoryToDtoBasic(invocation.getArgument(0)));
+        when(categoryRepository.findAll()).thenReturn(List.of(mockCategory));
+        categoryService.getAllCategories();
+        when(categoryRepository.findById(anyLong())).thenThrow(new QueryTimeoutException("Query timed out"));
+
+        assertEquals("Electronics", categoryService.getCategoryById(1L).getCategory().getName());
+        assertThrows(QueryTimeoutException.class, () -> categoryService.getCategoryById(2L));
+    }
+
     @Test
     void testGetCategoryById_Success() {
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
@@ -166,6 +257,9 @@ class CategoryServiceImplementationTest {
         // Verificar interacciones
         verify(categoryRepository, times(1)).findById(1L);
         verify(categoryRepository, times(1)).delete(mockCategory);
+        // Los indices en memoria tienen que olvidar los productos borrados en cascada
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof CategoryChangedEvent changed && changed.isDeleted() && changed.getCategoryId() == 1L));
 
         // Validar respuesta
         assertEquals(200, response.getStatus());
@@ -6,8 +6,13 @@ import com.bazarPepe.eccomerce.entity.OrderItem;
 import com.bazarPepe.eccomerce.entity.Product;
 import com.bazarPepe.eccomerce.entity.User;
 import com.bazarPepe.eccomerce.enums.OrderStatus;
+import com.bazarPepe.eccomerce.event.OrderPlacedEvent;
+import com.bazarPepe.eccomerce.event.StockReservedEvent;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.exception.OutOfStockException;
+import com.bazarPepe.eccomerce.inventory.StockLedger;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
+import com.bazarPepe.eccomerce.order.QueuedOrder;
 import com.bazarPepe.eccomerce.repository.OrderItemRepository;
 import com.bazarPepe.eccomerce.repository.OrderRepository;
 import com.bazarPepe.eccomerce.repository.ProductRepository;
@@ -16,9 +21,11 @@ import com.bazarPepe.eccomerce.service.interfaces.UserService;
 import com.bazarPepe.eccomerce.specification.OrderItemSpecification;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageImpl;
@@ -26,8 +33,11 @@ import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -53,6 +63,12 @@ class OrderItemServiceImplementationTest {
     @Mock
     private EntityDtoMapper entityDtoMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StockLedger stockLedger;
+
     private User mockUser;
     private Product mockProduct;
 
@@ -75,7 +91,7 @@ class OrderItemServiceImplementationTest {
     void testPlaceOrder_Success() {
         // Configuración del usuario y producto simulados
         when(userService.getLoginUser()).thenReturn(mockUser);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(mockProduct));
 
         // Crear OrderItemRequest
         OrderItemRequest orderItemRequest = new OrderItemRequest();
@@ -92,6 +108,9 @@ class OrderItemServiceImplementationTest {
 
         // Verificaciones
         verify(orderRepository, times(1)).save(any(Order.class));
+        // Las unidades vendidas alimentan el ranking del autocompletado
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof OrderPlacedEvent placed && placed.getQuantitiesByProduct().equals(Map.of(1L, 2))));
         assertEquals(200, response.getStatus());
         assertEquals("The order has been completed.", response.getMessage());
     }
@@ -99,7 +118,7 @@ class OrderItemServiceImplementationTest {
     @Test
     void testPlaceOrder_ProductNotFound() {
         // Configuración de excepción al buscar el producto
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of());
 
         // Crear OrderItemRequest
         OrderItemRequest orderItemRequest = new OrderItemRequest();
@@ -114,6 +133,103 @@ class OrderItemServiceImplementationTest {
         assertThrows(NotFoundException.class, () -> orderItemService.placeOrder(orderRequest));
 
         verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testPlaceOrder_LoadsAllProductsAtOnce() {
+        Product secondProduct = new Product();
+        secondProduct.setId(2L);
+        secondProduct.setPrice(BigDecimal.valueOf(5));
+        when(userService.getLoginUser()).thenReturn(mockUser);
+        when(productRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(mockProduct, secondProduct));
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item(1L, 1), item(2L, 3), item(1L, 2)));
+
+        orderItemService.placeOrder(orderRequest);
+
+        // Una sola consulta para todas las lineas y el pedido se guarda con todas ellas
+        verify(productRepository, never()).findById(any());
+        ArgumentCaptor<Order> order = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(order.capture());
+        assertEquals(3, order.getValue().getOrderItemList().size());
+        assertEquals(0, BigDecimal.valueOf(315).compareTo(order.getValue().getTotalPrice()));
+    }
+
+    @Test
+    void testPlaceOrder_OneOfSeveralProductsNotFound() {
+        when(userService.getLoginUser()).thenReturn(mockUser);
+        when(productRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(mockProduct));
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item(1L, 1), item(2L, 1)));
+
+        assertThrows(NotFoundException.class, () -> orderItemService.placeOrder(orderRequest));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testPlaceOrder_ReservesStockForAllLines() {
+        when(userService.getLoginUser()).thenReturn(mockUser);
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(mockProduct));
+        when(stockLedger.reserve(Map.of(1L, 3))).thenReturn(Map.of(1L, 3));
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item(1L, 1), item(1L, 2)));
+
+        orderItemService.placeOrder(orderRequest);
+
+        // Las lineas del mismo producto se reservan juntas y la reserva se anuncia para devolverla si hay rollback
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof StockReservedEvent reserved && reserved.getQuantitiesByProduct().equals(Map.of(1L, 3))));
+        verify(orderRepository).save(any(Order.class));
+    }
+
+    @Test
+    void testPlaceOrder_OutOfStock() {
+        when(userService.getLoginUser()).thenReturn(mockUser);
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(mockProduct));
+        when(stockLedger.reserve(any())).thenThrow(new OutOfStockException("There is not enough stock for product 1."));
+        OrderRequest orderRequest = new OrderRequest();
+        orderRequest.setItems(List.of(item(1L, 2)));
+
+        assertThrows(OutOfStockException.class, () -> orderItemService.placeOrder(orderRequest));
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testPlaceQueuedOrders_SkipsOrdersWithoutStock() {
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(mockProduct));
+        when(stockLedger.reserve(Map.of(1L, 1))).thenReturn(Map.of(1L, 1));
+        when(stockLedger.reserve(Map.of(1L, 5))).thenThrow(new OutOfStockException("There is not enough stock for product 1."));
+        OrderRequest small = new OrderRequest();
+        small.setItems(List.of(item(1L, 1)));
+        OrderRequest large = new OrderRequest();
+        large.setItems(List.of(item(1L, 5)));
+
+        Map<String, Long> placed = orderItemService.placeQueuedOrders(List.of(
+                new QueuedOrder("small", mockUser, small), new QueuedOrder("large", mockUser, large)));
+
+        assertEquals(Set.of("small"), placed.keySet());
+    }
+
+    @Test
+    void testPlaceQueuedOrders_OneLoadForTheWholeBatch() {
+        when(productRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(mockProduct));
+        OrderRequest first = new OrderRequest();
+        first.setItems(List.of(item(1L, 1)));
+        OrderRequest missing = new OrderRequest();
+        missing.setItems(List.of(item(2L, 1)));
+        OrderRequest second = new OrderRequest();
+        second.setItems(List.of(item(1L, 4)));
+
+        Map<String, Long> placed = orderItemService.placeQueuedOrders(List.of(
+                new QueuedOrder("a", mockUser, first), new QueuedOrder("b", mockUser, missing), new QueuedOrder("c", mockUser, second)));
+
+        // Una sola consulta de productos y un solo guardado; el pedido sin producto se queda fuera
+        verify(productRepository, times(1)).findAllById(any());
+        verify(orderRepository).saveAll(argThat((Iterable<Order> orders) -> ((Collection<?>) orders).size() == 2));
+        assertEquals(Set.of("a", "c"), placed.keySet());
+        verify(eventPublisher, times(2)).publishEvent(any(OrderPlacedEvent.class));
     }
 
     @Test
@@ -194,4 +310,11 @@ class OrderItemServiceImplementationTest {
 
         verify(orderItemRepository, never()).save(any(OrderItem.class));
     }
+
+    private static OrderItemRequest item(Long productId, int quantity) {
+        OrderItemRequest orderItemRequest = new OrderItemRequest();
+        orderItemRequest.setProductId(productId);
+        orderItemRequest.setQuantity(quantity);
+        return orderItemRequest;
+    }
 }
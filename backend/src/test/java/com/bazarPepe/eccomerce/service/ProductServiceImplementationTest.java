@@ -1,25 +1,44 @@
 package com.bazarPepe.eccomerce.service;
 
+import com.bazarPepe.eccomerce.cache.CatalogCache;
+import com.bazarPepe.eccomerce.cache.HotProductTier;
+import com.bazarPepe.eccomerce.dto.CacheStatsDto;
+import com.bazarPepe.eccomerce.dto.HotProductDto;
+import com.bazarPepe.eccomerce.dto.FacetCountDto;
 import com.bazarPepe.eccomerce.dto.ProductDto;
+import com.bazarPepe.eccomerce.dto.ProductImageDto;
+import com.bazarPepe.eccomerce.dto.ProductSummary;
 import com.bazarPepe.eccomerce.dto.Response;
 import com.bazarPepe.eccomerce.entity.Category;
 import com.bazarPepe.eccomerce.entity.Product;
+import com.bazarPepe.eccomerce.event.ProductChangedEvent;
 import com.bazarPepe.eccomerce.exception.InvalidCredentialsException;
+import com.bazarPepe.eccomerce.exception.InvalidImageException;
 import com.bazarPepe.eccomerce.exception.NotFoundException;
+import com.bazarPepe.eccomerce.image.ImageIngestor;
+import com.bazarPepe.eccomerce.image.ThumbnailGenerator;
+import com.bazarPepe.eccomerce.inventory.StockLedger;
 import com.bazarPepe.eccomerce.mapper.EntityDtoMapper;
 import com.bazarPepe.eccomerce.repository.CategoryRepository;
 import com.bazarPepe.eccomerce.repository.ProductRepository;
+import com.bazarPepe.eccomerce.search.PriceRange;
+import com.bazarPepe.eccomerce.search.ProductSearchIndex;
+import com.bazarPepe.eccomerce.search.ProductSuggester;
+import com.bazarPepe.eccomerce.search.SearchResult;
 import com.bazarPepe.eccomerce.service.implementation.ProductServiceImplementation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +55,30 @@ class ProductServiceImplementationTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ImageIngestor imageIngestor;
+
+    @Mock
+    private ThumbnailGenerator thumbnailGenerator;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductSuggester productSuggester;
+
+    @Mock
+    private CatalogCache catalogCache;
+
+    @Mock
+    private HotProductTier hotProductTier;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private StockLedger stockLedger;
+
     @Mock
     private EntityDtoMapper entityDtoMapper;
 
@@ -48,6 +91,9 @@ class ProductServiceImplementationTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(entityDtoMapper.mapProductToSummary(any(Product.class)))
+                .thenAnswer(invocation -> new EntityDtoMapper().mapProductToSummary(invocation.getArgument(0)));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         mockProduct = new Product();
         mockProduct.setId(1L);
@@ -63,12 +109,15 @@ class ProductServiceImplementationTest {
     @Test
     void testCreateProduct_Success() throws Exception {
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
-        when(mockMultipartFile.getBytes()).thenReturn(new byte[]{1, 2, 3});
         when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
 
         Response response = productService.createProduct(1L, mockMultipartFile, "New Product", "Description", BigDecimal.valueOf(200.00));
 
-        verify(productRepository, times(1)).save(any(Product.class));
+        verify(productRepository, times(1)).save(argThat(product ->
+                "abc123".equals(product.getImageHash()) && "image/png".equals(product.getImageContentType())));
+        verify(thumbnailGenerator).submit("abc123", "image/png");
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
         assertEquals(200, response.getStatus());
         assertEquals("Product created successfully.", response.getMessage());
     }
@@ -107,16 +156,30 @@ class ProductServiceImplementationTest {
         verify(productRepository, never()).save(any(Product.class));
     }
 
+    @Test
+    void testCreateProduct_RejectedImageIsNotSaved() {
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
+        when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenThrow(new InvalidImageException("The provided file is not a valid image."));
+
+        assertThrows(InvalidImageException.class, () ->
+                productService.createProduct(1L, mockMultipartFile, "New Product", "Description", BigDecimal.valueOf(200.00))
+        );
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
     @Test
     void testUpdateProduct_FullUpdate() throws Exception {
         when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
-        when(mockMultipartFile.getBytes()).thenReturn(new byte[]{1, 2, 3});
         when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
 
         Response response = productService.updateProduct(1L, 1L, mockMultipartFile, "Updated Product", "Updated Description", BigDecimal.valueOf(150.00));
 
         verify(productRepository, times(1)).save(mockProduct);
+        assertEquals("abc123", mockProduct.getImageHash());
+        verify(thumbnailGenerator).submit("abc123", "image/png");
         assertEquals("Updated Product", mockProduct.getName());
         assertEquals("Updated Description", mockProduct.getDescription());
         assertEquals(BigDecimal.valueOf(150.00), mockProduct.getPrice());
@@ -125,6 +188,65 @@ class ProductServiceImplementationTest {
         assertEquals("Product updated successfully.", response.getMessage());
     }
 
+    @Test
+    void testCreateProduct_FailedSaveDiscardsTheImage() {
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
+        when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
+        when(productRepository.save(any(Product.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(DataIntegrityViolationException.class, () ->
+                productService.createProduct(1L, mockMultipartFile, "New Product", "Description", BigDecimal.valueOf(200.00)));
+
+        // El producto no existe: la imagen recien subida no se queda huerfana
+        verify(imageIngestor).discard("abc123");
+        verify(thumbnailGenerator, never()).submit(any(), any());
+    }
+
+    @Test
+    void testCreateProduct_FailedSaveKeepsAnImageOtherProductsUse() {
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(mockCategory));
+        when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
+        when(productRepository.save(any(Product.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(productRepository.existsByImageHash("abc123")).thenReturn(true);
+
+        assertThrows(DataIntegrityViolationException.class, () ->
+                productService.createProduct(1L, mockMultipartFile, "New Product", "Description", BigDecimal.valueOf(200.00)));
+
+        verify(imageIngestor, never()).discard(any());
+    }
+
+    @Test
+    void testUpdateProduct_ReplacedImageIsDiscarded() {
+        mockProduct.setImageHash("old123");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
+        when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
+
+        productService.updateProduct(1L, null, mockMultipartFile, null, null, null);
+
+        // La imagen anterior ya no es de ningun producto: se borra con sus miniaturas
+        verify(thumbnailGenerator).forget("old123");
+        verify(imageIngestor).discard("old123");
+        verify(imageIngestor, never()).discard("abc123");
+    }
+
+    @Test
+    void testUpdateProduct_FailedSaveKeepsTheCurrentImage() {
+        mockProduct.setImageHash("old123");
+        when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
+        when(mockMultipartFile.getContentType()).thenReturn("image/png");
+        when(imageIngestor.ingest(mockMultipartFile)).thenReturn(new ProductImageDto("abc123", "image/png"));
+        when(productRepository.save(any(Product.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(DataIntegrityViolationException.class, () ->
+                productService.updateProduct(1L, null, mockMultipartFile, null, null, null));
+
+        verify(imageIngestor).discard("abc123");
+        verify(imageIngestor, never()).discard("old123");
+    }
+
     @Test
     void testUpdateProduct_PartialUpdate() throws Exception {
         when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
@@ -132,6 +254,7 @@ class ProductServiceImplementationTest {
         Response response = productService.updateProduct(1L, null, null, "Partially Updated Product", null, null);
 
         verify(productRepository, times(1)).save(mockProduct);
+        verifyNoInteractions(imageIngestor);
         assertEquals("Partially Updated Product", mockProduct.getName());
         assertEquals("Test Description", mockProduct.getDescription());
         assertEquals(BigDecimal.valueOf(100.00), mockProduct.getPrice());
@@ -146,6 +269,11 @@ class ProductServiceImplementationTest {
         Response response = productService.deleteProduct(1L);
 
         verify(productRepository, times(1)).delete(mockProduct);
+        verify(stockLedger).remove(1L);
+        // Sin imagen no hay nada que borrar del almacen
+        verifyNoInteractions(imageIngestor);
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof ProductChangedEvent changed && changed.isDeleted() && changed.getProductId() == 1L));
         assertEquals(200, response.getStatus());
         assertEquals("The product has been deleted successfully.", response.getMessage());
     }
@@ -160,62 +288,269 @@ class ProductServiceImplementationTest {
         assertEquals("The product was not found.", exception.getMessage());
     }
 
+    @Test
+    void testUpdateStock_Success() {
+        when(productRepository.existsById(1L)).thenReturn(true);
+
+        Response response = productService.updateStock(1L, 25);
+
+        verify(stockLedger).setStock(1L, 25);
+        assertEquals("The stock has been updated successfully.", response.getMessage());
+    }
+
+    @Test
+    void testUpdateStock_NotFound() {
+        when(productRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> productService.updateStock(1L, 25));
+        verifyNoInteractions(stockLedger);
+    }
+
     @Test
     void testGetProductById_Success() {
-        when(productRepository.findById(1L)).thenReturn(Optional.of(mockProduct));
         ProductDto productDto = new ProductDto();
         productDto.setId(1L);
-        when(entityDtoMapper.mapProductToDtoBasic(mockProduct)).thenReturn(productDto);
+        when(catalogCache.getProduct(1L)).thenReturn(Optional.of(productDto));
 
         Response response = productService.getProductById(1L);
 
         assertEquals(200, response.getStatus());
         assertEquals(productDto, response.getProduct());
+        // Se lee a traves de la cache del catalogo y cuenta como visita
+        verify(productRepository, never()).findById(any());
+        verify(hotProductTier).record(1L);
+    }
+
+    @Test
+    void testGetProductImage() {
+        when(catalogCache.getProductImage(1L)).thenReturn(Optional.of(new ProductImageDto("abc123", "image/png")));
+
+        ProductImageDto image = productService.getProductImage(1L);
+
+        assertEquals("abc123", image.getHash());
+        assertEquals("image/png", image.getContentType());
+        verifyNoInteractions(imageIngestor);
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetProductImage_NotFound() {
+        when(catalogCache.getProductImage(1L)).thenReturn(Optional.empty());
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () ->
+                productService.getProductImage(1L)
+        );
+        assertEquals("The product was not found.", exception.getMessage());
+    }
+
+    @Test
+    void testGetProductImage_NoImage() {
+        when(catalogCache.getProductImage(1L)).thenReturn(Optional.of(new ProductImageDto(null, null)));
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () ->
+                productService.getProductImage(1L)
+        );
+        assertEquals("The product has no image.", exception.getMessage());
     }
 
     @Test
     void testGetProductById_NotFound() {
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(catalogCache.getProduct(1L)).thenReturn(Optional.empty());
 
         NotFoundException exception = assertThrows(NotFoundException.class, () ->
                 productService.getProductById(1L)
         );
         assertEquals("The product was not found.", exception.getMessage());
+        // Un id que no existe no cuenta como visita
+        verifyNoInteractions(hotProductTier);
     }
 
     @Test
     void testGetAllProducts() {
-        when(productRepository.findAll(Sort.by(Sort.Direction.DESC, "id"))).thenReturn(List.of(mockProduct));
         ProductDto productDto = new ProductDto();
         productDto.setId(1L);
-        when(entityDtoMapper.mapProductToDtoBasic(mockProduct)).thenReturn(productDto);
+        when(catalogCache.getAllProducts()).thenReturn(List.of(productDto));
 
         Response response = productService.getAllProduct();
 
         assertEquals(200, response.getStatus());
         assertEquals(1, response.getProductList().size());
+        // Los listados no cargan entidades
+        verify(productRepository, never()).findAll();
+        verify(entityDtoMapper, never()).mapProductToDtoBasic(any());
+    }
+
+    @Test
+    void testGetProductPage_WalksPagesWithCursor() {
+        when(productRepository.findFirstSummaries(Limit.of(3))).thenReturn(List.of(summary(30L), summary(20L), summary(10L)));
+        when(productRepository.findSummariesBefore(20L, Limit.of(3))).thenReturn(List.of(summary(10L)));
+        when(entityDtoMapper.mapProductSummaryToDto(any(ProductSummary.class))).thenReturn(new ProductDto());
+
+        Response firstPage = productService.getProductPage(null, 2);
+
+        assertEquals(2, firstPage.getProductList().size());
+        assertNotNull(firstPage.getNextCursor());
+
+        // El cursor apunta al ultimo producto devuelto: la siguiente pagina empieza despues del 20
+        Response secondPage = productService.getProductPage(firstPage.getNextCursor(), 2);
+
+        assertEquals(1, secondPage.getProductList().size());
+        assertNull(secondPage.getNextCursor());
+        verify(productRepository, never()).findAllSummaries();
+    }
+
+    @Test
+    void testGetProductPage_InvalidArguments() {
+        assertThrows(InvalidCredentialsException.class, () -> productService.getProductPage(null, 0));
+        assertThrows(InvalidCredentialsException.class, () -> productService.getProductPage(null, 101));
+        assertThrows(InvalidCredentialsException.class, () -> productService.getProductPage("not-a-cursor", 10));
     }
 
     @Test
     void testSearchProduct() {
-        when(productRepository.findByNameContainingOrDescriptionContaining("Test", "Test")).thenReturn(List.of(mockProduct));
+        ProductSummary summary = summary(1L);
+        when(productRepository.searchSummaries("Test")).thenReturn(List.of(summary));
         ProductDto productDto = new ProductDto();
         productDto.setId(1L);
-        when(entityDtoMapper.mapProductToDtoBasic(mockProduct)).thenReturn(productDto);
+        when(entityDtoMapper.mapProductSummaryToDto(summary)).thenReturn(productDto);
 
-        Response response = productService.searchProduct("Test");
+        Response response = productService.searchProduct("Test", null, null);
 
         assertEquals(200, response.getStatus());
         assertEquals(1, response.getProductList().size());
     }
 
+    @Test
+    void testSearchProduct_UsesIndexWhenReady() {
+        ProductSummary summary = summary(1L);
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search("Test", 1L, PriceRange.FROM_10_TO_25)).thenReturn(new SearchResult(List.of(summary), 3,
+                Map.of(1L, 1, 2L, 2), Map.of(PriceRange.FROM_10_TO_25, 1)));
+        when(entityDtoMapper.mapProductSummaryToDto(summary)).thenReturn(new ProductDto());
+
+        Response response = productService.searchProduct("Test", 1L, "10-25");
+
+        assertEquals(1, response.getProductList().size());
+        assertEquals(2, response.getCategoryFacets().size());
+        assertEquals(List.of(new FacetCountDto("10-25", 1)), response.getPriceFacets());
+        verify(productRepository, never()).searchSummaries(any());
+    }
+
+    @Test
+    void testSearchProduct_FallsBackToCorrectedQuery() {
+        ProductSummary summary = summary(1L);
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search("camsia", null, null)).thenReturn(new SearchResult(List.of(), 0, Map.of(), Map.of()));
+        when(productSearchIndex.correct("camsia")).thenReturn(Optional.of("camisa"));
+        when(productSearchIndex.search("camisa", null, null)).thenReturn(new SearchResult(List.of(summary), 1, Map.of(1L, 1), Map.of()));
+        when(entityDtoMapper.mapProductSummaryToDto(summary)).thenReturn(new ProductDto());
+
+        Response response = productService.searchProduct("camsia", null, null);
+
+        assertEquals(1, response.getProductList().size());
+        assertEquals("Showing results for: camisa", response.getMessage());
+    }
+
+    @Test
+    void testSearchProduct_FiltersWithoutCorrectionWhenTextMatches() {
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search("Test", 9L, null)).thenReturn(new SearchResult(List.of(), 4, Map.of(1L, 4), Map.of()));
+
+        assertThrows(NotFoundException.class, () -> productService.searchProduct("Test", 9L, null));
+        verify(productSearchIndex, never()).correct(any());
+    }
+
+    @Test
+    void testSearchProduct_FallbackAppliesFilters() {
+        when(productRepository.searchSummaries("Test")).thenReturn(List.of(
+                new ProductSummary(1L, "Test", "", BigDecimal.valueOf(15), 1L, null, 0L, null),
+                new ProductSummary(2L, "Test", "", BigDecimal.valueOf(15), 2L, null, 0L, null),
+                new ProductSummary(3L, "Test", "", BigDecimal.valueOf(500), 1L, null, 0L, null)));
+        when(entityDtoMapper.mapProductSummaryToDto(any(ProductSummary.class))).thenReturn(new ProductDto());
+
+        Response response = productService.searchProduct("Test", 1L, "10-25");
+
+        assertEquals(1, response.getProductList().size());
+        assertNull(response.getCategoryFacets());
+    }
+
+    @Test
+    void testSearchProduct_InvalidPriceRange() {
+        InvalidCredentialsException exception = assertThrows(InvalidCredentialsException.class, () ->
+                productService.searchProduct("Test", null, "cheap")
+        );
+        assertEquals("Invalid price range.", exception.getMessage());
+    }
+
     @Test
     void testSearchProduct_NotFound() {
-        when(productRepository.findByNameContainingOrDescriptionContaining("Nonexistent", "Nonexistent")).thenReturn(List.of());
+        when(productRepository.searchSummaries("Nonexistent")).thenReturn(List.of());
 
         NotFoundException exception = assertThrows(NotFoundException.class, () ->
-                productService.searchProduct("Nonexistent")
+                productService.searchProduct("Nonexistent", null, null)
         );
         assertEquals("No products were found.", exception.getMessage());
     }
+
+    @Test
+    void testSuggestProducts() {
+        when(productSuggester.suggest("cam", 8)).thenReturn(List.of("Camisa", "Camiseta"));
+
+        Response response = productService.suggestProducts("cam", null);
+
+        assertEquals(List.of("Camisa", "Camiseta"), response.getSuggestions());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testSuggestProducts_InvalidLimit() {
+        assertThrows(InvalidCredentialsException.class, () -> productService.suggestProducts("cam", 0));
+        assertThrows(InvalidCredentialsException.class, () -> productService.suggestProducts("cam", 21));
+    }
+
+    @Test
+    void testGetProductsByCategory() {
+        when(catalogCache.getProductsByCategory(1L)).thenReturn(List.of(new ProductDto()));
+
+        Response response = productService.getProductsByCategory(1L);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, response.getProductList().size());
+    }
+
+    @Test
+    void testGetProductsByCategory_NotFound() {
+        when(catalogCache.getProductsByCategory(1L)).thenReturn(List.of());
+
+        NotFoundException exception = assertThrows(NotFoundException.class, () ->
+                productService.getProductsByCategory(1L)
+        );
+        assertEquals("No products were found for this category.", exception.getMessage());
+    }
+
+    @Test
+    void testGetCacheStats() {
+        CacheStatsDto stats = new CacheStatsDto("products", 3, 1, 0.75, 0, 1, 200);
+        when(catalogCache.getStats()).thenReturn(List.of(stats));
+
+        Response response = productService.getCacheStats();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(List.of(stats), response.getCacheStats());
+    }
+
+    @Test
+    void testGetHotProducts() {
+        HotProductDto hot = new HotProductDto(1L, "Camisa", 120, true);
+        when(hotProductTier.getHotProducts()).thenReturn(List.of(hot));
+
+        Response response = productService.getHotProducts();
+
+        assertEquals(200, response.getStatus());
+        assertEquals(List.of(hot), response.getHotProducts());
+    }
+
+    private static ProductSummary summary(Long id) {
+        return new ProductSummary(id, "Product " + id, "Description", BigDecimal.TEN, 1L, "abc123", 0L, null);
+    }
 }
@@ -88,7 +88,7 @@ const AdminOrderDetails = () => {
                         <div>
                             <h2>Product Information</h2>
                             <img
-                                src={`data:${orderItem.product.imageType || "image/jpeg"};base64,${orderItem.product.image}`}
+                                src={ApiService.getImageUrl(orderItem.product, 128)}
                                 alt={orderItem.product.name}
                                 style={{ width: '150px', height: '150px' }}
                             />
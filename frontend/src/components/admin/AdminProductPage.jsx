@@ -78,7 +78,7 @@ const AdminProductPage = () => {
                         {products.map((product) => (
                             <li key={product.id}>
                                 <img 
-                                    src={`data:${product?.imageType || "image/jpeg"};base64,${product?.image}`}
+                                    src={ApiService.getImageUrl(product, 128)}
                                     alt={product?.name} 
                                 />
                                 <span>{product.name}</span>
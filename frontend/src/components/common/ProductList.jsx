@@ -1,6 +1,7 @@
 import React from "react";
 import { Link } from "react-router-dom";
 import {useCart} from '../context/CartContext';
+import ApiService from "../../service/ApiService";
 import '../../style/productList.css';
 
 //COMPONENTE PARA RENDERIZAR LA LISTA DE PRODUCTOS
@@ -32,8 +33,8 @@ const ProductList=({products})=>{
                 //ENCUENTRA SI EL PRODUCTO ESTA EN EL CARRITO
                 const cartItem=cart.find(item=>item.id===product.id);
 
-                // Construir la URL Base64
-                const imageUrl = `data:image/jpeg;base64,${product.image}`;
+                // URL de la imagen servida por el backend
+                const imageUrl = ApiService.getImageUrl(product, 320);
 
                 return (
                     <div className="product-item" key={index}>
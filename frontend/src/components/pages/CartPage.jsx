@@ -94,7 +94,7 @@ const CartPage = () => {
                             <li key={item.id}>
                                 {/* IMAGEN DEL PRODUCTO */}
                                 <img
-                                    src={`data:${item.imageType || "image/jpeg"};base64,${item.image}`}
+                                    src={ApiService.getImageUrl(item, 128)}
                                     alt={item.name}
                                 />
                                 <div>
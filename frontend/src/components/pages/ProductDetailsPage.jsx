@@ -53,7 +53,7 @@ const ProductDetailsPage = () => {
 
     const cartItem = cart.find(item => item.id === product.id);
     // Construir la URL Base64
-    const imageUrl = `data:image/jpeg;base64,${product.image}`;
+    const imageUrl = ApiService.getImageUrl(product);
 
     return (
         <div className="product-detail">
@@ -101,7 +101,7 @@ const ProfilePage = () => {
                             <li key={order.id} data-testid={`order-item-${order.id}`}>
                                 {/* IMAGEN DEL PRODUCTO */}
                                 <img 
-                                    src={`data:${order.product?.imageType || "image/jpeg"};base64,${order.product?.image}`}
+                                    src={ApiService.getImageUrl(order.product, 128)}
                                     alt={order.product?.name} 
                                     data-testid={`order-product-image-${order.id}`}
                                 />
@@ -42,6 +42,15 @@ export default class ApiService {
     // ENDPOINTS PARA PRODUCTS
     // ----------------------------------
 
+    /** CONSTRUYE LA URL ABSOLUTA DE LA IMAGEN DE UN PRODUCTO, OPCIONALMENTE EN UN ANCHO REDUCIDO */
+    static getImageUrl(product, width) {
+        if (!product?.imageUrl) {
+            return null;
+        }
+        const url = `${this.BASE_URL}${product.imageUrl}`;
+        return width ? `${url}&width=${width}` : url;
+    }
+
     /** AGREGA UN NUEVO PRODUCTO CON FORM DATA */
     static async addProduct(formData) {
         const response = await axios.post(`${this.BASE_URL}/product/create`, formData, {
@@ -70,10 +79,10 @@ export default class ApiService {
         return response.data;
     }
 
-    /** BUSCA PRODUCTOS POR UN VALOR DE BÚSQUEDA */
-    static async searchProducts(searchValue) {
+    /** BUSCA PRODUCTOS POR UN VALOR DE BÚSQUEDA; LA RESPUESTA INCLUYE LAS FACETAS DE CATEGORÍA Y PRECIO */
+    static async searchProducts(searchValue, { categoryId, priceRange } = {}) {
         const response = await axios.get(`${this.BASE_URL}/product/search`, {
-            params: { searchValue }
+            params: { searchValue, categoryId, priceRange }
         });
         return response.data;
     }